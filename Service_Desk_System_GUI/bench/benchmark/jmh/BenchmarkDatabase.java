@@ -0,0 +1,73 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark.jmh;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import service.desk.system.Customer;
+import service.desk.system.SupportStaffMember;
+import util.DatabaseConfig;
+import util.DatabaseUtil;
+import util.DatasetGenerator;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * A throwaway in-memory Derby database filled with a dataset of a given size, shared by the JMH
+ * benchmarks. Each benchmark trial creates its own database with a unique name and drops it in
+ * its tear-down, so runs never touch the project database or each other.
+ *
+ * For a dataset of N tickets there are N / 10 customers and N / 100 agents (at least 5), generated
+ * by DatasetGenerator with a fixed seed, so every trial sees the same skewed data.
+ */
+final class BenchmarkDatabase {
+    private final String url;
+    List<Customer> customers;
+    List<SupportStaffMember> agents;
+    private int firstTicketId;
+    private int ticketCount;
+
+    private BenchmarkDatabase(String url) {
+        this.url = url;
+    }
+
+    // Points DatabaseUtil at a new in-memory database and generates the dataset
+    static BenchmarkDatabase create(int ticketCount) throws SQLException {
+        String name = "jmh" + System.nanoTime();
+        BenchmarkDatabase database = new BenchmarkDatabase("jdbc:derby:memory:" + name);
+        DatabaseUtil.configure(DatabaseConfig.fromUrl(database.url + ";create=true", false));
+        DatabaseUtil.initializeDatabase();
+
+        DatasetGenerator.Dataset dataset = new DatasetGenerator(DatasetGenerator.DEFAULT_SEED)
+                .generate(Math.max(1, ticketCount / 10), Math.max(5, ticketCount / 100), ticketCount);
+        database.customers = dataset.getCustomers();
+        database.agents = dataset.getAgents();
+        database.firstTicketId = dataset.getFirstTicketId();
+        database.ticketCount = ticketCount;
+        return database;
+    }
+
+    // The ID of the i-th generated ticket, wrapping around
+    int ticketId(int i) {
+        return firstTicketId + Math.floorMod(i, ticketCount);
+    }
+
+    // Closes the pool and drops the in-memory database
+    void drop() {
+        DatabaseUtil.closeConnection();
+        try {
+            DriverManager.getConnection(url + ";drop=true").close();
+        } catch (SQLException e) {
+            // Derby reports a successful drop with SQL state 08006
+            if (!"08006".equals(e.getSQLState())) {
+                System.out.println("Error dropping benchmark database: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark.jmh;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.desk.system.Message;
+import service.desk.system.Ticket;
+import util.DatabaseUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * JMH benchmarks for the ticket and message queries and inserts of DatabaseUtil, for datasets
+ * of different sizes. Run with "ant bench" (see build.xml), e.g.
+ *   ant bench -Dbench.args="PersistenceBenchmark.getAllTickets -p tickets=1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    // Number of tickets in the dataset
+    @Param({"1000", "10000"})
+    public int tickets;
+
+    private BenchmarkDatabase database;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.create(tickets);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.drop();
+    }
+
+    // Cycles through the tickets of the dataset
+    private int nextTicketId() {
+        return database.ticketId(++next);
+    }
+
+    @Benchmark
+    public int insertTicket() throws SQLException {
+        next++;
+        return DatabaseUtil.insertTicket(new Ticket(0, database.customers.get(next % database.customers.size()),
+                database.agents.get(next % database.agents.size()), "Benchmark topic", "Benchmark content", LocalDateTime.now(), 1));
+    }
+
+    @Benchmark
+    public Message insertMessage() throws SQLException {
+        Message message = new Message(0, nextTicketId(), "Customer", "Customer", "Benchmark message", LocalDateTime.now());
+        DatabaseUtil.insertMessage(message);
+        return message;
+    }
+
+    // Reads every open ticket with its customer and agent
+    @Benchmark
+    public List<Ticket> getAllTickets() throws SQLException {
+        return DatabaseUtil.getAllTickets();
+    }
+
+    @Benchmark
+    public List<Message> getMessagesForTicket() throws SQLException {
+        return DatabaseUtil.getMessagesForTicket(nextTicketId());
+    }
+}
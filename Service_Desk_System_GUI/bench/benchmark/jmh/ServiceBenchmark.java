@@ -0,0 +1,121 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark.jmh;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.desk.system.Customer;
+import service.desk.system.SupportStaffMember;
+import services.PersonService;
+import services.TicketAssignmentEngine;
+import services.TicketService;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * JMH benchmarks for the service layer: person lookups (with and without the PersonService
+ * cache), resolving tickets and choosing an agent for a new ticket. Run with "ant bench", e.g.
+ *   ant bench -Dbench.args="ServiceBenchmark.getPersonById -p tickets=10000 -p cacheSize=0"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    // Number of tickets in the dataset
+    @Param({"1000", "10000"})
+    public int tickets;
+
+    private BenchmarkDatabase database;
+    private TicketService ticketService;
+    private TicketAssignmentEngine assignmentEngine;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.create(tickets);
+        assignmentEngine = new TicketAssignmentEngine();
+        ticketService = new TicketService(assignmentEngine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.drop();
+    }
+
+    @Benchmark
+    public Customer getPersonById(People people) {
+        return people.customerService.getPersonById(people.nextCustomer().getId());
+    }
+
+    @Benchmark
+    public Customer findPersonByEmail(People people) {
+        return people.customerService.findPersonByEmail(people.nextCustomer().getEmail());
+    }
+
+    // Reads the ticket and writes its status; most generated tickets (and all of them after the first
+    // pass) are already closed, which still costs the same read and compare-and-set update
+    @Benchmark
+    public void resolveTicket() {
+        ticketService.resolveTicket(database.ticketId(++next));
+    }
+
+    // Picks the least-loaded agent and records the new ticket, as done for every created ticket
+    @Benchmark
+    public SupportStaffMember assignAgent() {
+        return assignmentEngine.assignAgent();
+    }
+
+    // Reloads the open ticket counts of all agents from the database
+    @Benchmark
+    public void refreshAssignmentEngine() {
+        assignmentEngine.refresh();
+    }
+
+    /*
+     * The customer service of the lookup benchmarks, so only they are run once per cache size.
+     */
+    @State(Scope.Benchmark)
+    public static class People {
+        // Entries in the PersonService cache; 0 sends every lookup to the database
+        @Param({"0", "1000"})
+        public int cacheSize;
+
+        private PersonService<Customer> customerService;
+        private List<Customer> customers;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ServiceBenchmark benchmark) {
+            customerService = new PersonService<>(Customer.class, cacheSize, TimeUnit.MINUTES.toMillis(5));
+            customers = benchmark.database.customers;
+        }
+
+        private Customer nextCustomer() {
+            next = (next + 1) % customers.size();
+            return customers.get(next);
+        }
+    }
+}
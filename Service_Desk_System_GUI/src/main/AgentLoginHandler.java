@@ -4,8 +4,7 @@
  */
 package main;
 
-import service.desk.system.SupportStaffMember;
-import services.PersonService;
+import services.AsyncServiceFacade;
 import javax.swing.*;
 import java.awt.*;
 /**
@@ -21,13 +20,13 @@ import java.awt.*;
  * and handles cases where the user might want to go back to the main menu.
  */
 public class AgentLoginHandler {
-    private final PersonService<SupportStaffMember> agentService;
+    private final AsyncServiceFacade services;
     private final SetLastMessageCallback setLastMessageCallback;
     private final ServiceDeskSystem serviceDeskSystem;
 
     // Sets up the AgentLoginHandler with agent verification, message updates, and system navigation.
-    public AgentLoginHandler(PersonService<SupportStaffMember> agentService, SetLastMessageCallback setLastMessageCallback, ServiceDeskSystem serviceDeskSystem) {
-        this.agentService = agentService;
+    public AgentLoginHandler(AsyncServiceFacade services, SetLastMessageCallback setLastMessageCallback, ServiceDeskSystem serviceDeskSystem) {
+        this.services = services;
         this.setLastMessageCallback = setLastMessageCallback;
         this.serviceDeskSystem = serviceDeskSystem;
     }
@@ -63,16 +62,18 @@ public class AgentLoginHandler {
             char[] passwordChars = passwordField.getPassword();
             String password = new String(passwordChars);
 
-            SupportStaffMember agent = agentService.findPersonByUsername(username);
-            if (agent != null && password.equals(agent.getPassword())) {
-                // Stores agent info in UserSession for later use
-                UserSession.getInstance().setUserInfo("Agent", agent.getEmail(), agent.getFirstName() + " " + agent.getLastName(), agent.getUsername(), agent.getId());
-                setLastMessageCallback.set("Login successful! Welcome, " + agent.getUsername());
-                // Switches to agent menu
-                serviceDeskSystem.showAgentMenu(agent);
-            } else {
-                JOptionPane.showMessageDialog(frame, "Invalid username or password. Please try again.", "Login Failed", JOptionPane.ERROR_MESSAGE);
-            }
+            // The lookup runs in the background; the result is handled back on the EDT
+            SwingAsync.deliver(services.findAgentByUsername(username), frame, "Login Failed", agent -> {
+                if (agent != null && password.equals(agent.getPassword())) {
+                    // Stores agent info in UserSession for later use
+                    UserSession.getInstance().setUserInfo("Agent", agent.getEmail(), agent.getFirstName() + " " + agent.getLastName(), agent.getUsername(), agent.getId());
+                    setLastMessageCallback.set("Login successful! Welcome, " + agent.getUsername());
+                    // Switches to agent menu
+                    serviceDeskSystem.showAgentMenu(agent);
+                } else {
+                    JOptionPane.showMessageDialog(frame, "Invalid username or password. Please try again.", "Login Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
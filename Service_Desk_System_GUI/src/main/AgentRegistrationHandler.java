@@ -5,9 +5,10 @@
 package main;
 
 import service.desk.system.SupportStaffMember;
-import services.PersonService;
+import services.AsyncServiceFacade;
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 import util.ValidationUtil;
 
 /**
@@ -23,12 +24,12 @@ import util.ValidationUtil;
  * Once all the details are verified, the agent is registered, and the information is saved.
  */
 public class AgentRegistrationHandler {
-    private final PersonService<SupportStaffMember> personService;
+    private final AsyncServiceFacade services;
     private final SetLastMessageCallback setLastMessageCallback;
 
     // Sets up the handler with the necessary service and callback for agent registration
-    public AgentRegistrationHandler(PersonService<SupportStaffMember> personService, SetLastMessageCallback setLastMessageCallback) {
-        this.personService = personService;
+    public AgentRegistrationHandler(AsyncServiceFacade services, SetLastMessageCallback setLastMessageCallback) {
+        this.services = services;
         this.setLastMessageCallback = setLastMessageCallback;
     }
 
@@ -86,22 +87,28 @@ public class AgentRegistrationHandler {
                 return;
             }
 
-            if (personService.findPersonByUsername(username) != null) {
-                JOptionPane.showMessageDialog(frame, "An account with this username already exists. Please use a different username.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
-            } else {
-                SupportStaffMember agent = new SupportStaffMember(0, firstName, lastName, username, email, password);
-                saveAgent(agent);
-            }
+            // The duplicate check and the insert run in the background; the outcome is shown on the EDT
+            SupportStaffMember agent = new SupportStaffMember(0, firstName, lastName, username, email, password);
+            CompletableFuture<Boolean> saved = services.findAgentByUsername(username)
+                    .thenCompose(existing -> existing != null
+                            ? CompletableFuture.completedFuture(false)
+                            : saveAgent(agent).thenApply(ignored -> true));
+            SwingAsync.deliver(saved, frame, "Registration Failed", registered -> {
+                if (registered) {
+                    setLastMessageCallback.set("Agent registered successfully.");
+                } else {
+                    JOptionPane.showMessageDialog(frame, "An account with this username already exists. Please use a different username.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
-    // Saves the agent to the system and sets a confirmation message
-    private void saveAgent(SupportStaffMember agent) {
+    // Saves the agent to the system with capitalized names
+    private CompletableFuture<Void> saveAgent(SupportStaffMember agent) {
         agent.setFirstName(capitalizeFirstLetter(agent.getFirstName()));
         agent.setLastName(capitalizeFirstLetter(agent.getLastName()));
 
-        personService.addPerson(agent);
-        setLastMessageCallback.set("Agent registered successfully.");
+        return services.addAgent(agent);
     }
 
     // Capitalizes the first letter of a given string, used for name formatting
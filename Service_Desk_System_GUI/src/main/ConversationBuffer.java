@@ -0,0 +1,60 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package main;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import service.desk.system.Message;
+import util.DatabaseUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Messages of one ticket that this client has already loaded. Each refresh only asks the
+ * database for messages with a higher ID than the last one seen, so reopening or refreshing
+ * a long conversation costs the number of new messages, not the length of the conversation.
+ *
+ * Refreshes run on background threads, so access is synchronized.
+ */
+public class ConversationBuffer {
+    private final int ticketId;
+    private final List<Message> messages = new ArrayList<>();
+    private int lastMessageId;
+
+    public ConversationBuffer(int ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    // Loads the messages added since the last refresh, appends them and returns only those
+    public synchronized List<Message> fetchNew() throws SQLException {
+        List<Message> added = DatabaseUtil.getMessagesSince(ticketId, lastMessageId);
+        if (!added.isEmpty()) {
+            messages.addAll(added);
+            lastMessageId = added.get(added.size() - 1).getId();
+        }
+        return added;
+    }
+
+    // Copy of all messages loaded so far, oldest first
+    public synchronized List<Message> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    // Copy of the messages loaded after the first index ones, oldest first
+    public synchronized List<Message> getMessagesFrom(int index) {
+        return new ArrayList<>(messages.subList(Math.min(index, messages.size()), messages.size()));
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public synchronized int getLastMessageId() {
+        return lastMessageId;
+    }
+}
@@ -5,8 +5,7 @@
 package main;
 
 
-import service.desk.system.Customer;
-import services.PersonService;
+import services.AsyncServiceFacade;
 import javax.swing.*;
 import java.awt.*;
 
@@ -23,13 +22,13 @@ import java.awt.*;
  * and returns the customer object upon successful login.
  */
 public class CustomerLoginHandler {
-    private final PersonService<Customer> customerService;
+    private final AsyncServiceFacade services;
     private final SetLastMessageCallback setLastMessageCallback;
     private final ServiceDeskSystem serviceDeskSystem;
 
     // Initializes the CustomerLoginHandler with customer services and callback for updating messages
-    public CustomerLoginHandler(PersonService<Customer> customerService, SetLastMessageCallback setLastMessageCallback, ServiceDeskSystem serviceDeskSystem) {
-        this.customerService = customerService;
+    public CustomerLoginHandler(AsyncServiceFacade services, SetLastMessageCallback setLastMessageCallback, ServiceDeskSystem serviceDeskSystem) {
+        this.services = services;
         this.setLastMessageCallback = setLastMessageCallback;
         this.serviceDeskSystem = serviceDeskSystem;
     }
@@ -64,16 +63,18 @@ public class CustomerLoginHandler {
             char[] passwordChars = passwordField.getPassword();
             String password = new String(passwordChars);
 
-            Customer customer = customerService.findPersonByEmail(email);
-            if (customer != null && password.equals(customer.getPassword())) {
-                // Stores customer info in UserSession
-                UserSession.getInstance().setUserInfo("Customer", customer.getEmail(), customer.getFirstName() + " " + customer.getLastName(), null, customer.getId());
-                setLastMessageCallback.set("Login successful! Welcome, " + customer.getFirstName() + " " + customer.getLastName());
-                // Navigates to customer menu
-                serviceDeskSystem.showCustomerMenu(customer);
-            } else {
-                JOptionPane.showMessageDialog(frame, "Invalid email or password. Please try again.", "Login Failed", JOptionPane.ERROR_MESSAGE);
-            }
+            // The lookup runs in the background; the result is handled back on the EDT
+            SwingAsync.deliver(services.findCustomerByEmail(email), frame, "Login Failed", customer -> {
+                if (customer != null && password.equals(customer.getPassword())) {
+                    // Stores customer info in UserSession
+                    UserSession.getInstance().setUserInfo("Customer", customer.getEmail(), customer.getFirstName() + " " + customer.getLastName(), null, customer.getId());
+                    setLastMessageCallback.set("Login successful! Welcome, " + customer.getFirstName() + " " + customer.getLastName());
+                    // Navigates to customer menu
+                    serviceDeskSystem.showCustomerMenu(customer);
+                } else {
+                    JOptionPane.showMessageDialog(frame, "Invalid email or password. Please try again.", "Login Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
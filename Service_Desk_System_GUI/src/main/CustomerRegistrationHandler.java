@@ -5,9 +5,10 @@
 package main;
 
 import service.desk.system.Customer;
-import services.PersonService;
+import services.AsyncServiceFacade;
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 import util.ValidationUtil;
 
 
@@ -25,12 +26,12 @@ import util.ValidationUtil;
  * with the new customer details.
  */
 public class CustomerRegistrationHandler {
-    private final PersonService<Customer> personService;
+    private final AsyncServiceFacade services;
     private final SetLastMessageCallback setLastMessageCallback;
 
     // Initializes the CustomerRegistrationHandler with services and a callback for setting messages
-    public CustomerRegistrationHandler(PersonService<Customer> personService, SetLastMessageCallback setLastMessageCallback) {
-        this.personService = personService;
+    public CustomerRegistrationHandler(AsyncServiceFacade services, SetLastMessageCallback setLastMessageCallback) {
+        this.services = services;
         this.setLastMessageCallback = setLastMessageCallback;
     }
 
@@ -82,22 +83,28 @@ public class CustomerRegistrationHandler {
                 return;
             }
 
-            if (personService.findPersonByEmail(email) != null) {
-                JOptionPane.showMessageDialog(frame, "An account with this email already exists. Please use a different email.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
-            } else {
-                Customer customer = new Customer(0, firstName, lastName, email, password);
-                saveCustomer(customer);
-            }
+            // The duplicate check and the insert run in the background; the outcome is shown on the EDT
+            Customer customer = new Customer(0, firstName, lastName, email, password);
+            CompletableFuture<Boolean> saved = services.findCustomerByEmail(email)
+                    .thenCompose(existing -> existing != null
+                            ? CompletableFuture.completedFuture(false)
+                            : saveCustomer(customer).thenApply(ignored -> true));
+            SwingAsync.deliver(saved, frame, "Registration Failed", registered -> {
+                if (registered) {
+                    setLastMessageCallback.set("Customer registered successfully.");
+                } else {
+                    JOptionPane.showMessageDialog(frame, "An account with this email already exists. Please use a different email.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
-    // Saves the customer with capitalized names and displays a confirmation message
-    private void saveCustomer(Customer customer) {
+    // Saves the customer with capitalized names
+    private CompletableFuture<Void> saveCustomer(Customer customer) {
         customer.setFirstName(capitalizeFirstLetter(customer.getFirstName()));
         customer.setLastName(capitalizeFirstLetter(customer.getLastName()));
 
-        personService.addPerson(customer);
-        setLastMessageCallback.set("Customer registered successfully.");
+        return services.addCustomer(customer);
     }
 
     // Capitalizes the first letter of a string, used to format names
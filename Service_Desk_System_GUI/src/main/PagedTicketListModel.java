@@ -0,0 +1,140 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.AbstractListModel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import service.desk.system.Ticket;
+import util.TicketPageKey;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * List model that loads tickets one page at a time. The first page is passed in by the caller and
+ * further pages are fetched in the background when the list is scrolled near the bottom,
+ * so long ticket queues do not have to be read into memory before the list is shown.
+ *
+ * All methods must be called on the event dispatch thread.
+ */
+public class PagedTicketListModel extends AbstractListModel<Ticket> {
+    private static final long serialVersionUID = 1L;
+    private final PageLoader loader;
+    private final int pageSize;
+    private final List<Ticket> tickets = new ArrayList<>();
+    private TicketPageKey lastKey;
+    private boolean exhausted;
+    private boolean loading;
+    private JScrollBar scrollBar;
+
+    public PagedTicketListModel(PageLoader loader, int pageSize) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+    }
+
+    // Adds the first page, loaded by the caller, so the caller can tell whether there are any tickets
+    public void addFirstPage(List<Ticket> page) {
+        appendPage(page);
+    }
+
+    // Starts loading the next page in the background unless a load is running or everything is loaded
+    public void loadNextPage() {
+        if (loading || exhausted) {
+            return;
+        }
+        loading = true;
+        TicketPageKey after = lastKey;
+        new SwingWorker<List<Ticket>, Void>() {
+            @Override
+            protected List<Ticket> doInBackground() {
+                return loader.load(after, pageSize);
+            }
+
+            @Override
+            protected void done() {
+                loading = false;
+                try {
+                    appendPage(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.out.println("Error loading tickets: " + e.getMessage());
+                    exhausted = true;
+                }
+            }
+        }.execute();
+    }
+
+    // Loads more tickets whenever the vertical scroll bar of the pane gets close to the bottom
+    public void attachTo(JScrollPane scrollPane) {
+        scrollBar = scrollPane.getVerticalScrollBar();
+        scrollBar.addAdjustmentListener(e -> loadMoreIfNearBottom());
+    }
+
+    private void loadMoreIfNearBottom() {
+        if (scrollBar == null) {
+            return;
+        }
+        // Within one screen of the end, or the list does not fill the view yet
+        int remaining = scrollBar.getMaximum() - (scrollBar.getValue() + scrollBar.getVisibleAmount());
+        if (remaining <= scrollBar.getVisibleAmount()) {
+            loadNextPage();
+        }
+    }
+
+    private void appendPage(List<Ticket> page) {
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (page.isEmpty()) {
+            return;
+        }
+        lastKey = TicketPageKey.after(page.get(page.size() - 1));
+        int first = tickets.size();
+        tickets.addAll(page);
+        fireIntervalAdded(this, first, tickets.size() - 1);
+        // The scroll bar does not move when a short page is added, so check again once laid out
+        SwingUtilities.invokeLater(this::loadMoreIfNearBottom);
+    }
+
+    // Removes a ticket from the list, e.g. after it has been resolved
+    public boolean removeElement(Ticket ticket) {
+        int index = tickets.indexOf(ticket);
+        if (index < 0) {
+            return false;
+        }
+        tickets.remove(index);
+        fireIntervalRemoved(this, index, index);
+        return true;
+    }
+
+    // True once the last page has been loaded
+    public boolean isFullyLoaded() {
+        return exhausted;
+    }
+
+    @Override
+    public int getSize() {
+        return tickets.size();
+    }
+
+    @Override
+    public Ticket getElementAt(int index) {
+        return tickets.get(index);
+    }
+
+    /*
+     * Fetches the page of tickets that follows afterKey, or the first page when afterKey is null.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+        List<Ticket> load(TicketPageKey afterKey, int limit);
+    }
+}
@@ -9,8 +9,10 @@ import service.desk.system.Customer;
 import service.desk.system.SupportStaffMember;
 import services.PersonService;
 import util.DatabaseUtil;
+import util.MetricsRegistry;
 import javax.swing.*;
 import java.awt.*;
+import services.AsyncServiceFacade;
 import services.TicketService;
 /**
  *
@@ -28,6 +30,7 @@ public class ServiceDeskSystem {
     private PersonService<Customer> customerService;
     private PersonService<SupportStaffMember> supportStaffService;
     private TicketService ticketService;
+    private AsyncServiceFacade services;
     private CustomerRegistrationHandler customerRegistrationHandler;
     private CustomerLoginHandler customerLoginHandler;
     private TicketManagementHandler ticketManagementHandler;
@@ -46,12 +49,15 @@ public class ServiceDeskSystem {
         supportStaffService = new PersonService<>(SupportStaffMember.class);
         ticketService = new TicketService();
 
+        // Database calls from the handlers run on the facade's worker threads, never on the EDT
+        services = new AsyncServiceFacade(ticketService, customerService, supportStaffService);
+
         // Initialize handlers
-        ticketManagementHandler = new TicketManagementHandler(ticketService, supportStaffService, customerService);
-        customerRegistrationHandler = new CustomerRegistrationHandler(customerService, this::setLastMessage);
-        customerLoginHandler = new CustomerLoginHandler(customerService, this::setLastMessage, this);
-        agentRegistrationHandler = new AgentRegistrationHandler(supportStaffService, this::setLastMessage);
-        agentLoginHandler = new AgentLoginHandler(supportStaffService, this::setLastMessage, this);
+        ticketManagementHandler = new TicketManagementHandler(services);
+        customerRegistrationHandler = new CustomerRegistrationHandler(services, this::setLastMessage);
+        customerLoginHandler = new CustomerLoginHandler(services, this::setLastMessage, this);
+        agentRegistrationHandler = new AgentRegistrationHandler(services, this::setLastMessage);
+        agentLoginHandler = new AgentLoginHandler(services, this::setLastMessage, this);
 
         // Set up main menu panel/gui
         JPanel panel = new JPanel(new GridBagLayout());
@@ -83,6 +89,7 @@ public class ServiceDeskSystem {
 
         JButton exitButton = createStyledButton("Exit");
         exitButton.addActionListener(e -> {
+            services.shutdown();
             DatabaseUtil.closeConnection();
             System.exit(0);
         });
@@ -182,12 +189,24 @@ public class ServiceDeskSystem {
         buttonPanel.add(viewTicketsButton);
         buttonPanel.add(logoutButton);
 
+        // Search box over the topic, content and messages of all tickets; Enter searches too
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.setBackground(new Color(54, 57, 63));
+        JTextField searchField = new JTextField(25);
+        searchField.setFont(new Font("Arial", Font.PLAIN, 16));
+        JButton searchButton = createStyledButton("Search");
+        searchButton.addActionListener(e -> ticketManagementHandler.handleSearchTickets(frame, searchField.getText()));
+        searchField.addActionListener(e -> ticketManagementHandler.handleSearchTickets(frame, searchField.getText()));
+        searchPanel.add(searchField);
+        searchPanel.add(searchButton);
+
         JPanel userInfoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         userInfoPanel.setBackground(new Color(54, 57, 63));
         displayUserInfo(userInfoPanel);
 
         panel.add(userInfoPanel, BorderLayout.NORTH);
         panel.add(buttonPanel, BorderLayout.CENTER);
+        panel.add(searchPanel, BorderLayout.SOUTH);
 
         frame.add(panel);
         frame.revalidate();
@@ -260,6 +279,7 @@ public class ServiceDeskSystem {
 
     // Main method to start the application
     public static void main(String[] args) {
+        MetricsRegistry.getDefault().registerMBean();
         SwingUtilities.invokeLater(ServiceDeskSystem::new);
     }
 }
\ No newline at end of file
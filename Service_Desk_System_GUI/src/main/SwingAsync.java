@@ -0,0 +1,62 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package main;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import util.OptimisticLockException;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Hands the result of a background service call back to the event dispatch thread.
+ * The parent shows a wait cursor until the call finishes, and failures are shown as an
+ * error dialog instead of reaching the success callback.
+ */
+final class SwingAsync {
+
+    private SwingAsync() {
+    }
+
+    // Runs onSuccess on the EDT with the result, or shows an error dialog titled errorTitle
+    static <T> void deliver(CompletableFuture<T> future, Component parent, String errorTitle, Consumer<T> onSuccess) {
+        parent.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        future.whenCompleteAsync((result, error) -> {
+            parent.setCursor(Cursor.getDefaultCursor());
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (!future.isCancelled()) {
+                JOptionPane.showMessageDialog(parent, describe(error), errorTitle, JOptionPane.ERROR_MESSAGE);
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    // Turns a failed call into a message for the user
+    static String describe(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof TimeoutException) {
+            return "The database did not respond in time. Please try again.";
+        }
+        if (error instanceof RejectedExecutionException) {
+            return "The system is busy. Please try again in a moment.";
+        }
+        if (error instanceof OptimisticLockException) {
+            return error.getMessage();
+        }
+        return "An error occurred: " + error.getMessage();
+    }
+}
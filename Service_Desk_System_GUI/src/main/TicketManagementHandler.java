@@ -5,18 +5,22 @@
 package main;
 
 import service.desk.system.Customer;
-import service.desk.system.SupportStaffMember;
 import service.desk.system.Ticket;
-import services.PersonService;
+import services.AsyncServiceFacade;
 import services.TicketService;
 import java.sql.SQLException;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import service.desk.system.Message;
 import util.DatabaseUtil;
+import util.TicketFilter;
 
 /**
  *
@@ -26,77 +30,124 @@ import util.DatabaseUtil;
  * Manages various ticket-related operations, including creation, resolution, and comment handling.
  */
 public class TicketManagementHandler {
-    private TicketService ticketService;
-    private PersonService<SupportStaffMember> agentService;
-    private PersonService<Customer> customerService;
+    // Number of tickets fetched per page in the ticket lists
+    private static final int TICKET_PAGE_SIZE = 50;
+    // Number of search results shown at once
+    private static final int SEARCH_RESULT_LIMIT = 50;
+    // How often an open conversation asks for new messages
+    private static final int MESSAGE_POLL_MILLIS = 5_000;
+    // Number of ticket conversations kept in memory between views
+    private static final int MAX_BUFFERED_CONVERSATIONS = 20;
+    // Shown when TicketService.resolveTicket returns false
+    private static final String RESOLVE_FAILED_MESSAGE =
+            "The ticket could not be resolved. It may have been archived or changed by someone else; please refresh and try again.";
+    // Shown when the desktop session has been idle for longer than the registry's timeout
+    private static final String SESSION_EXPIRED_MESSAGE = "Your session has expired. Please log out and log in again.";
+    // Shown when TicketService.setTicketPriority returns false
+    private static final String PRIORITY_FAILED_MESSAGE =
+            "The priority could not be changed. The ticket may have been archived or changed by someone else; please refresh and try again.";
+
+    // Runs every database call off the event dispatch thread
+    private final AsyncServiceFacade services;
+
+    // Conversations loaded so far, least recently viewed first
+    private final Map<Integer, ConversationBuffer> conversations =
+            new LinkedHashMap<Integer, ConversationBuffer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ConversationBuffer> eldest) {
+                    return size() > MAX_BUFFERED_CONVERSATIONS;
+                }
+            };
     
-    // Sets up the handler with necessary services for tickets and person data
-    public TicketManagementHandler(TicketService ticketService, PersonService<SupportStaffMember> agentService,
-                                   PersonService<Customer> customerService) {
-        this.ticketService = ticketService;
-        this.agentService = agentService;
-        this.customerService = customerService;
+    // Sets up the handler with the asynchronous facade over the ticket and person services
+    public TicketManagementHandler(AsyncServiceFacade services) {
+        this.services = services;
     }
     
     // Shows the tickets created by the current customer
     public void handleViewMyTickets(JFrame frame) {
         UserSession session = UserSession.getInstance();
 
-        if (!session.getRole().equals("Customer")) {
-            showErrorDialog(frame, "Only customers can view their tickets.", "Access Denied");
-            return;
-        }
-
-        Customer customer = customerService.findPersonByEmail(session.getEmail());
-        if (customer == null) {
-            showErrorDialog(frame, "Customer not found.", "Ticket Retrieval Failed");
-            return;
-        }
-
-        List<Ticket> tickets = ticketService.findTicketsByCustomer(customer);
-        if (tickets == null || tickets.isEmpty()) {
-            showInfoDialog(frame, "No tickets found.", "Ticket Retrieval");
+        if (!hasRole(frame, "Customer", "Only customers can view their tickets.")) {
             return;
         }
 
-        // Sort tickets by priority (highest to lowest)
-        tickets.sort(Comparator.comparingInt(Ticket::getPriority).reversed());
+        SwingAsync.deliver(services.findCustomerByEmail(session.getEmail()), frame, "Ticket Retrieval Failed", customer -> {
+            if (customer == null) {
+                showErrorDialog(frame, "Customer not found.", "Ticket Retrieval Failed");
+                return;
+            }
 
-        displayTickets(frame, tickets, "Your Tickets", true);
+            // Tickets come back sorted by priority (highest to lowest), one page at a time
+            TicketFilter filter = TicketFilter.openForCustomer(customer.getId());
+            SwingAsync.deliver(services.findTickets(filter, null, TICKET_PAGE_SIZE), frame, "Ticket Retrieval Failed", firstPage -> {
+                if (firstPage.isEmpty()) {
+                    showInfoDialog(frame, "No tickets found.", "Ticket Retrieval");
+                    return;
+                }
+                displayTickets(frame, createListModel(filter, firstPage), "Your Tickets", true);
+            });
+        });
     }
     
     // Shows the tickets assigned to the current agent
     public void handleViewAssignedTickets(JFrame frame) {
         UserSession session = UserSession.getInstance();
 
-        if (!session.getRole().equals("Agent")) {
-            showErrorDialog(frame, "Only agents can view assigned tickets.", "Access Denied");
+        if (!hasRole(frame, "Agent", "Only agents can view assigned tickets.")) {
             return;
         }
 
-        SupportStaffMember agent = agentService.findPersonByEmail(session.getEmail());
-        if (agent == null) {
-            showErrorDialog(frame, "Agent not found.", "Ticket Retrieval Failed");
+        SwingAsync.deliver(services.findAgentByEmail(session.getEmail()), frame, "Ticket Retrieval Failed", agent -> {
+            if (agent == null) {
+                showErrorDialog(frame, "Agent not found.", "Ticket Retrieval Failed");
+                return;
+            }
+
+            // Tickets come back sorted by priority (highest to lowest), one page at a time
+            TicketFilter filter = TicketFilter.openForAgent(agent.getId());
+            SwingAsync.deliver(services.findTickets(filter, null, TICKET_PAGE_SIZE), frame, "Ticket Retrieval Failed", firstPage -> {
+                if (firstPage.isEmpty()) {
+                    showInfoDialog(frame, "No assigned tickets found.", "Ticket Retrieval");
+                    return;
+                }
+                displayTickets(frame, createListModel(filter, firstPage), "Assigned Tickets", false);
+            });
+        });
+    }
+
+    // Shows the tickets whose topic, content or messages best match the query typed into the search box
+    public void handleSearchTickets(JFrame frame, String query) {
+        if (!hasRole(frame, "Agent", "Only agents can search tickets.")) {
             return;
         }
-
-        List<Ticket> tickets = ticketService.getTicketsAssignedToAgent(agent);
-        if (tickets == null || tickets.isEmpty()) {
-            showInfoDialog(frame, "No assigned tickets found.", "Ticket Retrieval");
+        if (query == null || query.trim().isEmpty()) {
+            showErrorDialog(frame, "Enter one or more words to search for.", "Ticket Search");
             return;
         }
 
-        // Sort tickets by priority (highest to lowest)
-        tickets.sort(Comparator.comparingInt(Ticket::getPriority).reversed());
+        SwingAsync.deliver(services.searchTickets(query, SEARCH_RESULT_LIMIT), frame, "Ticket Search Failed", results -> {
+            if (results.isEmpty()) {
+                showInfoDialog(frame, "No tickets match \"" + query.trim() + "\".", "Ticket Search");
+                return;
+            }
+            // Results are already ranked, so the list holds a single page that never loads more
+            PagedTicketListModel listModel = new PagedTicketListModel((afterKey, limit) -> List.of(), Integer.MAX_VALUE);
+            listModel.addFirstPage(results);
+            displayTickets(frame, listModel, "Search Results", false);
+        });
+    }
 
-        displayTickets(frame, tickets, "Assigned Tickets", false);
+    // Creates a list model for the filter starting with its first page; later pages load on a SwingWorker
+    private PagedTicketListModel createListModel(TicketFilter filter, List<Ticket> firstPage) {
+        PagedTicketListModel listModel = new PagedTicketListModel(
+                (afterKey, limit) -> services.getTicketService().findTickets(filter, afterKey, limit), TICKET_PAGE_SIZE);
+        listModel.addFirstPage(firstPage);
+        return listModel;
     }
     
-    // Displays a list of tickets and allows selection for detailed view
-    private void displayTickets(JFrame frame, List<Ticket> tickets, String title, boolean isCustomer) {
-        DefaultListModel<Ticket> listModel = new DefaultListModel<>();
-        tickets.forEach(listModel::addElement);
-
+    // Displays a list of tickets and allows selection for detailed view; more tickets load as the list is scrolled
+    private void displayTickets(JFrame frame, PagedTicketListModel listModel, String title, boolean isCustomer) {
         JList<Ticket> ticketList = new JList<>(listModel);
         ticketList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
@@ -117,11 +168,12 @@ public class TicketManagementHandler {
         });
 
         JScrollPane scrollPane = new JScrollPane(ticketList);
+        listModel.attachTo(scrollPane);
         JOptionPane.showMessageDialog(frame, scrollPane, title, JOptionPane.INFORMATION_MESSAGE);
     }
     
     // Shows ticket details for agents, allowing priority setting and resolution
-    private void showAgentTicketDetails(JFrame frame, Ticket ticket, DefaultListModel<Ticket> listModel) {
+    private void showAgentTicketDetails(JFrame frame, Ticket ticket, PagedTicketListModel listModel) {
         JPanel panel = createTicketDetailsPanel(ticket);
         JButton setPriorityButton = createPriorityButton(frame, ticket);
         JButton resolveButton = createResolveButton(frame, ticket, listModel);
@@ -135,7 +187,7 @@ public class TicketManagementHandler {
     }
     
     // Shows ticket details for customers, allowing message addition and closing
-    private void showTicketDetails(JFrame frame, Ticket ticket, DefaultListModel<Ticket> listModel) {
+    private void showTicketDetails(JFrame frame, Ticket ticket, PagedTicketListModel listModel) {
         JPanel panel = createTicketDetailsPanel(ticket);
         JButton closeButton = createCloseButton(frame, ticket, listModel);
         JButton messageButton = createMessageButton(frame, ticket);
@@ -181,8 +233,7 @@ public class TicketManagementHandler {
             String priorityStr = JOptionPane.showInputDialog(frame, "Enter priority (1-3):");
             if (priorityStr != null && priorityStr.matches("[1-3]")) {
                 int priority = Integer.parseInt(priorityStr);
-                ticket.setPriority(priority);
-                updateTicket(frame, ticket, "Priority set to " + priority);
+                updatePriority(frame, ticket, priority);
             } else {
                 showErrorDialog(frame, "Invalid priority. Please enter a number between 1 and 3.", "Error");
             }
@@ -191,28 +242,38 @@ public class TicketManagementHandler {
     }
 
     // Creates a button to resolve a ticket
-    private JButton createResolveButton(JFrame frame, Ticket ticket, DefaultListModel<Ticket> listModel) {
+    private JButton createResolveButton(JFrame frame, Ticket ticket, PagedTicketListModel listModel) {
         JButton button = new JButton("Resolve Ticket");
         button.addActionListener(e -> {
             int result = JOptionPane.showConfirmDialog(frame, "Are you sure you want to resolve this ticket?", "Resolve Ticket", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
-                ticketService.resolveTicket(ticket.getId());
-                JOptionPane.showMessageDialog(frame, "Ticket resolved successfully.");
-                listModel.removeElement(ticket);
+                SwingAsync.deliver(services.resolveTicket(ticket.getId()), frame, "Error", resolved -> {
+                    if (!resolved) {
+                        showErrorDialog(frame, RESOLVE_FAILED_MESSAGE, "Error");
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(frame, "Ticket resolved successfully.");
+                    listModel.removeElement(ticket);
+                });
             }
         });
         return button;
     }
     
     // Creates a button to close a ticket
-    private JButton createCloseButton(JFrame frame, Ticket ticket, DefaultListModel<Ticket> listModel) {
+    private JButton createCloseButton(JFrame frame, Ticket ticket, PagedTicketListModel listModel) {
         JButton button = new JButton("Close Ticket");
         button.addActionListener(e -> {
             int result = JOptionPane.showConfirmDialog(frame, "Are you sure you want to close this ticket?", "Close Ticket", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
-                ticketService.resolveTicket(ticket.getId());
-                listModel.removeElement(ticket);
-                JOptionPane.showMessageDialog(frame, "Ticket closed successfully.");
+                SwingAsync.deliver(services.resolveTicket(ticket.getId()), frame, "Error", resolved -> {
+                    if (!resolved) {
+                        showErrorDialog(frame, RESOLVE_FAILED_MESSAGE, "Error");
+                        return;
+                    }
+                    listModel.removeElement(ticket);
+                    JOptionPane.showMessageDialog(frame, "Ticket closed successfully.");
+                });
             }
         });
         return button;
@@ -222,137 +283,154 @@ public class TicketManagementHandler {
     private JButton createMessageButton(JFrame frame, Ticket ticket) {
         JButton button = new JButton("Leave/View Messages");
         button.addActionListener(e -> {
-            List<Message> messages = null;
-            try {
-                messages = DatabaseUtil.getMessagesForTicket(ticket.getId());
-            } catch (SQLException ex) {
-                showErrorDialog(frame, "Error retrieving messages: " + ex.getMessage(), "Error");
+            ConversationBuffer conversation = conversations.computeIfAbsent(ticket.getId(), ConversationBuffer::new);
+            // Load new messages in the background, then open the dialog on the EDT
+            Window owner = SwingUtilities.getWindowAncestor(button);
+            SwingAsync.deliver(services.supply(conversation::fetchNew), frame, "Error retrieving messages",
+                    ignored -> showMessageDialog(owner != null ? owner : frame, ticket, conversation));
+        });
+        return button;
+    }
+
+    // Shows the conversation of a ticket in a dialog that stays open, sending the messages typed
+    // into it and appending the ones that arrive while it is open
+    private void showMessageDialog(Window owner, Ticket ticket, ConversationBuffer conversation) {
+        // Create a modern styled panel for messages
+        JPanel messagePanel = new JPanel(new BorderLayout(10, 10)); // Add padding
+        messagePanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15)); // Add margin
+
+        // Text Area for displaying messages, in a more readable format
+        JTextArea messageArea = new JTextArea(12, 40);
+        messageArea.setEditable(false);
+        messageArea.setFont(new Font("Arial", Font.PLAIN, 14)); // Modern font
+        messageArea.setLineWrap(true);
+        messageArea.setWrapStyleWord(true);
+        messageArea.setBackground(new Color(240, 240, 240)); // Subtle background
+        messageArea.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
+
+        ConversationView view = new ConversationView(messageArea, conversation, "Messages for Ticket " + ticket.getId() + ":\n\n");
+        view.showNew();
+        JScrollPane scrollPane = new JScrollPane(messageArea);
+        scrollPane.setBorder(null); // No visible border for cleaner look
+        messagePanel.add(scrollPane, BorderLayout.CENTER);
+
+        // TextField for new message input with better layout
+        JTextField newMessageField = new JTextField();
+        newMessageField.setFont(new Font("Arial", Font.PLAIN, 14));
+        newMessageField.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(200, 200, 200)),
+            BorderFactory.createEmptyBorder(5, 5, 5, 5)
+        ));
+
+        // Panel for input label, field and buttons
+        JButton sendButton = new JButton("Send");
+        JButton closeButton = new JButton("Close");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.add(sendButton);
+        buttonPanel.add(closeButton);
+        JPanel inputPanel = new JPanel(new BorderLayout(5, 5));
+        inputPanel.add(new JLabel("Enter your message:"), BorderLayout.NORTH);
+        inputPanel.add(newMessageField, BorderLayout.CENTER);
+        inputPanel.add(buttonPanel, BorderLayout.SOUTH);
+        messagePanel.add(inputPanel, BorderLayout.SOUTH);
+
+        // Not modal, so messages from the other side show up while the user reads and types
+        JDialog dialog = new JDialog(owner, "Messages", Dialog.ModalityType.MODELESS);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(messagePanel);
+        dialog.getRootPane().setDefaultButton(sendButton);
+
+        Timer poller = new Timer(MESSAGE_POLL_MILLIS, e -> view.poll());
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                poller.stop();
+            }
+        });
+        closeButton.addActionListener(e -> dialog.dispose());
+        sendButton.addActionListener(e -> {
+            String newMessageContent = newMessageField.getText().trim();
+            if (newMessageContent.isEmpty()) {
                 return;
             }
+            UserSession session = UserSession.getInstance();
 
-            // Create a modern styled panel for messages
-            JPanel messagePanel = new JPanel(new BorderLayout(10, 10)); // Add padding
-            messagePanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15)); // Add margin
-
-            // Text Area for displaying messages, in a more readable format
-            JTextArea messageArea = new JTextArea(12, 40);
-            messageArea.setEditable(false);
-            messageArea.setFont(new Font("Arial", Font.PLAIN, 14)); // Modern font
-            messageArea.setLineWrap(true);
-            messageArea.setWrapStyleWord(true);
-            messageArea.setBackground(new Color(240, 240, 240)); // Subtle background
-            messageArea.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
-
-            StringBuilder messageDisplay = new StringBuilder("Messages for Ticket " + ticket.getId() + ":\n\n");
-            if (messages != null && !messages.isEmpty()) {
-                for (Message message : messages) {
-                    messageDisplay.append(message.getTimestamp())
-                        .append(" - [").append(message.getSenderType())
-                        .append("] ").append(message.getSenderName())
-                        .append(": ").append(message.getContent())
-                        .append("\n\n"); // Add spacing between messages
-                }
-            } else {
-                messageDisplay.append("No messages yet.\n");
+            if (ticket.getId() <= 0) {
+                JOptionPane.showMessageDialog(dialog, "Invalid ticket ID.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            messageArea.setText(messageDisplay.toString());
-            JScrollPane scrollPane = new JScrollPane(messageArea);
-            scrollPane.setBorder(null); // No visible border for cleaner look
-            messagePanel.add(scrollPane, BorderLayout.CENTER);
-
-            // TextField for new message input with better layout
-            JTextField newMessageField = new JTextField();
-            newMessageField.setFont(new Font("Arial", Font.PLAIN, 14));
-            newMessageField.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(new Color(200, 200, 200)),
-                BorderFactory.createEmptyBorder(5, 5, 5, 5)
-            ));
-
-            // Panel for input label and field
-            JPanel inputPanel = new JPanel(new BorderLayout(5, 5));
-            inputPanel.add(new JLabel("Enter your message:"), BorderLayout.NORTH);
-            inputPanel.add(newMessageField, BorderLayout.CENTER);
-            messagePanel.add(inputPanel, BorderLayout.SOUTH);
-
-            // Show the panel in a dialog with consistent padding and cleaner buttons
-            UIManager.put("OptionPane.buttonFont", new Font("Arial", Font.PLAIN, 13)); // Modernize buttons
-            int result = JOptionPane.showConfirmDialog(frame, messagePanel, "Messages", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-
-            if (result == JOptionPane.OK_OPTION) {
-                String newMessageContent = newMessageField.getText().trim();
-                if (!newMessageContent.isEmpty()) {
-                    UserSession session = UserSession.getInstance();
-
-                    if (ticket.getId() <= 0) {
-                        showErrorDialog(frame, "Invalid ticket ID.", "Error");
-                        return;
-                    }
-
-                    String senderType = session.getRole();
-                    String senderName = session.getName();
+            String senderType = session.getRole();
+            String senderName = session.getName();
 
-                    if (senderType == null || senderType.isEmpty()) {
-                        showErrorDialog(frame, "Sender type cannot be null or empty.", "Error");
-                        return;
-                    }
+            if (senderType == null || senderType.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, "Sender type cannot be null or empty.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-                    if (senderName == null || senderName.isEmpty()) {
-                        showErrorDialog(frame, "Sender name cannot be null or empty.", "Error");
-                        return;
-                    }
+            if (senderName == null || senderName.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, "Sender name cannot be null or empty.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-                    try {
-                        if (!DatabaseUtil.ticketExists(ticket.getId())) {
-                            showErrorDialog(frame, "Ticket does not exist.", "Error");
-                            return;
-                        }
-                    } catch (SQLException ex) {
-                        showErrorDialog(frame, "Error checking ticket existence: " + ex.getMessage(), "Error");
-                        return;
-                    }
+            Message newMessage = new Message(0, ticket.getId(), senderType, senderName, newMessageContent, LocalDateTime.now());
 
-                    Message newMessage = new Message(0, ticket.getId(), senderType, senderName, newMessageContent, LocalDateTime.now());
-
-                    try {
-                        DatabaseUtil.insertMessage(newMessage);
-                        messages = DatabaseUtil.getMessagesForTicket(ticket.getId());
-                        StringBuilder updatedDisplay = new StringBuilder("Messages for Ticket " + ticket.getId() + ":\n\n");
-
-                        for (Message message : messages) {
-                            updatedDisplay.append(message.getTimestamp())
-                                .append(" - [").append(message.getSenderType())
-                                .append("] ").append(message.getSenderName())
-                                .append(": ").append(message.getContent())
-                                .append("\n\n");
-                        }
-
-                        messageArea.setText(updatedDisplay.toString());
-                        JOptionPane.showMessageDialog(frame, "Message sent successfully.");
-                    } catch (SQLException ex) {
-                        showErrorDialog(frame, "Error sending message: " + ex.getMessage(), "Error");
-                    }
+            // Check, insert and fetch the new rows in the background; only the new rows are appended
+            SwingAsync.deliver(services.supply(() -> sendMessage(newMessage, conversation)), dialog, "Error sending message", added -> {
+                if (added == null) {
+                    JOptionPane.showMessageDialog(dialog, "Ticket does not exist.", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
+                newMessageField.setText("");
+                view.showNew();
+            });
         });
-        return button;
+
+        UIManager.put("OptionPane.buttonFont", new Font("Arial", Font.PLAIN, 13)); // Modernize buttons
+        dialog.pack();
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+        poller.start();
+    }
+
+    // Stores a message and returns the messages added to the conversation since it was last fetched,
+    // or null if the ticket no longer exists. Runs on a background thread.
+    private static List<Message> sendMessage(Message message, ConversationBuffer conversation) throws SQLException {
+        if (!DatabaseUtil.ticketExists(message.getTicketId())) {
+            return null;
+        }
+        DatabaseUtil.insertMessage(message);
+        return conversation.fetchNew();
+    }
+
+    // Formats one message of a conversation
+    private static void appendMessage(StringBuilder display, Message message) {
+        display.append(message.getTimestamp())
+            .append(" - [").append(message.getSenderType())
+            .append("] ").append(message.getSenderName())
+            .append(": ").append(message.getContent())
+            .append("\n\n"); // Add spacing between messages
     }
 
     // Handles ticket creation for customers
     public void handleTicketCreation(JFrame frame) {
         UserSession session = UserSession.getInstance();
 
-        if (!session.getRole().equals("Customer")) {
-            showErrorDialog(frame, "Only customers can create tickets.", "Access Denied");
+        if (!hasRole(frame, "Customer", "Only customers can create tickets.")) {
             return;
         }
 
-        Customer customer = customerService.findPersonByEmail(session.getEmail());
-        if (customer == null) {
-            showErrorDialog(frame, "Customer not found.", "Ticket Creation Failed");
-            return;
-        }
+        SwingAsync.deliver(services.findCustomerByEmail(session.getEmail()), frame, "Ticket Creation Failed", customer -> {
+            if (customer == null) {
+                showErrorDialog(frame, "Customer not found.", "Ticket Creation Failed");
+                return;
+            }
+            showTicketCreationDialog(frame, customer);
+        });
+    }
 
+    // Asks the customer for the topic and content of a new ticket
+    private void showTicketCreationDialog(JFrame frame, Customer customer) {
         JPanel panel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10); // Add padding around components
@@ -394,49 +472,31 @@ public class TicketManagementHandler {
     
     // Creates and assigns a new ticket to an available agent
     private void createTicket(JFrame frame, Customer customer, String topic, String content) {
-        SupportStaffMember agent = getAvailableAgent();
-        if (agent == null) {
-            showErrorDialog(frame, "No available agents. Please try again later.", "Ticket Creation Failed");
-            return;
-        }
-
-        int ticketId = fetchNextTicketId(frame);
-        if (ticketId == -1) return;
-
-        Ticket ticket = new Ticket(ticketId, customer, agent, topic, content, LocalDateTime.now(), 1);
-        ticketService.addTicket(ticket);
-        showInfoDialog(frame, "Ticket created successfully. Ticket ID: " + ticketId, "Success");
-    }
-
-    // Fetches the next available ticket ID from the database
-    private int fetchNextTicketId(JFrame frame) {
-        try {
-            return DatabaseUtil.getMaxTicketId() + 1;
-        } catch (SQLException e) {
-            showErrorDialog(frame, "Error retrieving the ticket ID: " + e.getMessage(), "Ticket Creation Failed");
-            return -1;
-        }
-    }
-    
-    // Selects an available agent with the fewest assigned tickets
-    private SupportStaffMember getAvailableAgent() {
-        List<SupportStaffMember> agents = agentService.getAllSupportStaff();
-        return agents.stream()
-                .reduce((a, b) -> {
-                    int countA = ticketService.getAssignedTicketCount(a);
-                    int countB = ticketService.getAssignedTicketCount(b);
-                    return (countA < countB) ? a : (countA == countB ? Math.random() < 0.5 ? a : b : b);
-                }).orElse(null);
+        // The assignment engine picks the agent and the database generates the ticket ID on insert
+        Ticket ticket = new Ticket(0, customer, null, topic, content, LocalDateTime.now(), 1);
+        CompletableFuture<Integer> created = services.addTicketToNextAgent(ticket);
+
+        SwingAsync.deliver(created, frame, "Ticket Creation Failed", ticketId -> {
+            if (ticketId == TicketService.NO_AGENT) {
+                showErrorDialog(frame, "No available agents. Please try again later.", "Ticket Creation Failed");
+            } else if (ticketId == -1) {
+                showErrorDialog(frame, "Error saving the ticket. Please try again.", "Ticket Creation Failed");
+            } else {
+                showInfoDialog(frame, "Ticket created successfully. Ticket ID: " + ticketId, "Success");
+            }
+        });
     }
     
-    // Updates ticket details in the database
-    private void updateTicket(JFrame frame, Ticket ticket, String successMessage) {
-        try {
-            DatabaseUtil.updateTicket(ticket);
-            showInfoDialog(frame, successMessage, "Success");
-        } catch (SQLException ex) {
-            showErrorDialog(frame, "Failed to update ticket: " + ex.getMessage(), "Error");
-        }
+    // Writes only the new priority in the background through the ticket service
+    private void updatePriority(JFrame frame, Ticket ticket, int priority) {
+        SwingAsync.deliver(services.setTicketPriority(ticket.getId(), priority), frame, "Failed to update ticket", updated -> {
+            if (!updated) {
+                showErrorDialog(frame, PRIORITY_FAILED_MESSAGE, "Failed to update ticket");
+                return;
+            }
+            ticket.setPriority(priority);
+            showInfoDialog(frame, "Priority set to " + priority, "Success");
+        });
     }
     
     // Got assistance from chatgpt for the below method
@@ -463,6 +523,21 @@ public class TicketManagementHandler {
         }
     }
     
+    // Shows an error and returns false unless the logged-in user has the given role; a session that
+    // expired while the user was idle counts as logged out
+    private boolean hasRole(JFrame frame, String role, String deniedMessage) {
+        String current = UserSession.getInstance().getRole();
+        if (current == null) {
+            showErrorDialog(frame, SESSION_EXPIRED_MESSAGE, "Session Expired");
+            return false;
+        }
+        if (!current.equals(role)) {
+            showErrorDialog(frame, deniedMessage, "Access Denied");
+            return false;
+        }
+        return true;
+    }
+
     // Shows an error dialog
     private void showErrorDialog(JFrame frame, String message, String title) {
         JOptionPane.showMessageDialog(frame, message, title, JOptionPane.ERROR_MESSAGE);
@@ -473,8 +548,57 @@ public class TicketManagementHandler {
         JOptionPane.showMessageDialog(frame, message, title, JOptionPane.INFORMATION_MESSAGE);
     }
 
-    @FunctionalInterface
-    public interface GenerateIdCallback {
-        int generateId();
+    /*
+     * The part of a conversation shown in an open message dialog. Only messages that are not
+     * shown yet are appended, in conversation order, however the fetches that loaded them finish.
+     * Used on the event dispatch thread only.
+     */
+    private final class ConversationView {
+        private final JTextArea messageArea;
+        private final ConversationBuffer conversation;
+        private final String header;
+        private int shown;
+        private boolean polling;
+
+        private ConversationView(JTextArea messageArea, ConversationBuffer conversation, String header) {
+            this.messageArea = messageArea;
+            this.conversation = conversation;
+            this.header = header;
+            messageArea.setText(header + "No messages yet.\n");
+        }
+
+        // Appends the messages the conversation has loaded since the last call
+        private void showNew() {
+            List<Message> added = conversation.getMessagesFrom(shown);
+            if (added.isEmpty()) {
+                return;
+            }
+            if (shown == 0) {
+                messageArea.setText(header);
+            }
+            StringBuilder newRows = new StringBuilder();
+            for (Message message : added) {
+                appendMessage(newRows, message);
+            }
+            messageArea.append(newRows.toString());
+            messageArea.setCaretPosition(messageArea.getDocument().getLength());
+            shown += added.size();
+        }
+
+        // Fetches new messages in the background unless a poll is still running; a failed poll is retried on the next tick
+        private void poll() {
+            if (polling) {
+                return;
+            }
+            polling = true;
+            services.supply(conversation::fetchNew).whenCompleteAsync((added, error) -> {
+                polling = false;
+                if (error != null) {
+                    System.out.println("Error polling messages: " + SwingAsync.describe(error));
+                } else {
+                    showNew();
+                }
+            }, SwingUtilities::invokeLater);
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,8 @@
  */
 package main;
 
+import services.SessionRegistry;
+
 /**
  *
  * @author rayyanabzal
@@ -13,44 +15,70 @@ package main;
  * Singleton class to manage the session information of the currently logged-in user.
  * Stores details: user's role, email, name, username, and user ID, and provides 
  * a single instance for session management across the application.
+ *
+ * The details live in a SessionRegistry session, the same store the HTTP server uses for its
+ * users; this class only remembers which session belongs to the desktop user. Every getter looks
+ * the session up in the registry, which keeps it alive while the user is active; once the user
+ * has been idle for the registry's timeout the session has expired and the getters report that
+ * nobody is logged in. It is safe to use from any thread, and clearing the session ends it in the
+ * registry.
  */
 public class UserSession {
-    private static UserSession instance;
-    private String role;
-    private String email;
-    private String name;
-    private String username;
-    private int id;
+    private static final UserSession INSTANCE = new UserSession(SessionRegistry.getDefault());
+    private final SessionRegistry registry;
+    private volatile SessionRegistry.Session current;
 
     // Private constructor to prevent instantiation
-    private UserSession() {}
+    private UserSession(SessionRegistry registry) {
+        this.registry = registry;
+    }
 
-    // Returns the single instance of UserSession, creating it if it doesn't exist
+    // Returns the single instance of UserSession
     public static UserSession getInstance() {
-        if (instance == null) {
-            instance = new UserSession();
-        }
-        return instance;
+        return INSTANCE;
     }
 
-    // Sets the user's information for the session
-    public void setUserInfo(String role, String email, String name, String username, int id) {
-        this.role = role;
-        this.email = email;
-        this.name = name;
-        this.username = username;
-        this.id = id;
+    // Sets the user's information for the session, replacing any previous login
+    public synchronized void setUserInfo(String role, String email, String name, String username, int id) {
+        SessionRegistry.Session previous = current;
+        current = registry.create(role, email, name, username, id);
+        if (previous != null) {
+            registry.invalidate(previous.getToken());
+        }
     }
 
-    // Getters for session details
-    public String getRole() { return role; }
-    public String getEmail() { return email; }
-    public String getName() { return name; }
-    public String getUsername() { return username; }
-    public int getId() { return id; }
+    // Getters for session details; null (or 0 for the ID) when nobody is logged in or the session expired
+    public String getRole() { SessionRegistry.Session s = live(); return s != null ? s.getRole() : null; }
+    public String getEmail() { SessionRegistry.Session s = live(); return s != null ? s.getEmail() : null; }
+    public String getName() { SessionRegistry.Session s = live(); return s != null ? s.getName() : null; }
+    public String getUsername() { SessionRegistry.Session s = live(); return s != null ? s.getUsername() : null; }
+    public int getId() { SessionRegistry.Session s = live(); return s != null ? s.getId() : 0; }
+
+    // Token of the current session in the registry, or null when nobody is logged in or the session expired
+    public String getToken() { SessionRegistry.Session s = live(); return s != null ? s.getToken() : null; }
 
-    // Clears the current session data by setting the instance to null
-    public void clearSession() {
-        instance = null;
+    // Resolves the current session through the registry, marking it as used, and forgets it once it has expired
+    private SessionRegistry.Session live() {
+        SessionRegistry.Session s = current;
+        if (s == null) {
+            return null;
+        }
+        SessionRegistry.Session resolved = registry.get(s.getToken());
+        if (resolved == null) {
+            synchronized (this) {
+                if (current == s) {
+                    current = null;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    // Clears the current session data and ends the session in the registry
+    public synchronized void clearSession() {
+        if (current != null) {
+            registry.invalidate(current.getToken());
+            current = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,570 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+import services.PersonService;
+import services.SessionRegistry;
+import services.SessionRegistry.Session;
+import services.TicketService;
+import util.DatabaseUtil;
+import util.MessageIngestionQueue;
+import util.MetricsRegistry;
+import util.TicketFilter;
+import util.TicketPageKey;
+import util.ValidationUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * JSON API over the ticket and person services, mounted under /api by ServiceDeskServer.
+ *
+ * Endpoints:
+ *   POST /api/customers                     register a customer {firstName, lastName, email, password}
+ *   POST /api/agents                        register an agent {firstName, lastName, username, email, password}
+ *   POST /api/login                         {role: customer|agent, email|username, password} returns a token
+ *   POST /api/logout                        end the caller's session
+ *   GET  /api/tickets?after=P:ID&limit=N    open tickets of the caller, one page at a time
+ *   POST /api/tickets                       create a ticket {topic, content} (customers)
+ *   GET  /api/tickets/{id}                  one ticket
+ *   POST /api/tickets/{id}/resolve          close a ticket
+ *   GET  /api/tickets/{id}/messages?after=M messages with an ID greater than M
+ *   POST /api/tickets/{id}/messages         add a message {content}
+ *   GET  /api/search?q=words&limit=N        tickets best matching the words, best first (agents)
+ *   GET  /api/metrics                       counters and latency timers of the MetricsRegistry (agents)
+ *
+ * Everything except registration and login needs an "Authorization: Bearer <token>" header.
+ * Tokens are sessions in a SessionRegistry and expire after a period without requests.
+ * Customers only see their own tickets and agents only the tickets assigned to them.
+ */
+public class ServiceDeskApi implements HttpHandler {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final long MESSAGE_COMMIT_TIMEOUT_MILLIS = 10_000;
+
+    private final TicketService ticketService;
+    private final PersonService<Customer> customerService;
+    private final PersonService<SupportStaffMember> agentService;
+    private final SessionRegistry sessions;
+    private final MessageIngestionQueue messageQueue;
+
+    // messageQueue may be null to insert every message directly
+    public ServiceDeskApi(TicketService ticketService, PersonService<Customer> customerService,
+                          PersonService<SupportStaffMember> agentService, SessionRegistry sessions,
+                          MessageIngestionQueue messageQueue) {
+        this.ticketService = ticketService;
+        this.customerService = customerService;
+        this.agentService = agentService;
+        this.sessions = sessions;
+        this.messageQueue = messageQueue;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            Object body = route(exchange);
+            int status = "POST".equals(exchange.getRequestMethod()) ? 201 : 200;
+            if (body instanceof Response) {
+                status = ((Response) body).status;
+                body = ((Response) body).body;
+            }
+            send(exchange, status, body);
+        } catch (ApiException e) {
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (SQLException e) {
+            System.out.println("Database error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            send(exchange, 500, error("Database error."));
+        } catch (RuntimeException e) {
+            System.out.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            send(exchange, 500, error("Internal server error."));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Picks the endpoint from the method and the path below /api
+    private Object route(HttpExchange exchange) throws IOException, ApiException, SQLException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.replaceAll("^/api/?|/$", "").split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        switch (parts[0]) {
+            case "customers":
+                requireMethod(method, "POST");
+                return registerCustomer(readBody(exchange));
+            case "agents":
+                requireMethod(method, "POST");
+                return registerAgent(readBody(exchange));
+            case "login":
+                requireMethod(method, "POST");
+                return login(readBody(exchange));
+            case "logout":
+                requireMethod(method, "POST");
+                sessions.invalidate(authenticate(exchange).getToken());
+                return new Response(200, new LinkedHashMap<>());
+            case "search":
+                requireMethod(method, "GET");
+                return searchTickets(authenticate(exchange), query);
+            case "metrics":
+                requireMethod(method, "GET");
+                return metrics(authenticate(exchange));
+            case "tickets":
+                break;
+            default:
+                throw new ApiException(404, "Unknown endpoint " + path);
+        }
+
+        Session session = authenticate(exchange);
+        if (parts.length == 1) {
+            if ("GET".equals(method)) {
+                return listTickets(session, query);
+            }
+            requireMethod(method, "POST");
+            return createTicket(session, readBody(exchange));
+        }
+
+        Ticket ticket = findAccessibleTicket(session, parts[1]);
+        if (parts.length == 2) {
+            requireMethod(method, "GET");
+            return ticketJson(ticket);
+        }
+        if (parts.length == 3 && parts[2].equals("resolve")) {
+            requireMethod(method, "POST");
+            boolean resolved = ticketService.resolveTicket(ticket.getId());
+            Ticket current = ticketService.getTicketById(ticket.getId());
+            if (current == null) {
+                throw new ApiException(404, "Ticket " + ticket.getId() + " no longer exists.");
+            }
+            if (!resolved) {
+                throw new ApiException(409, "Ticket " + ticket.getId() + " kept changing; please try again.");
+            }
+            return new Response(200, ticketJson(current));
+        }
+        if (parts.length == 3 && parts[2].equals("messages")) {
+            if ("GET".equals(method)) {
+                return listMessages(ticket, query);
+            }
+            requireMethod(method, "POST");
+            return addMessage(session, ticket, readBody(exchange));
+        }
+        throw new ApiException(404, "Unknown endpoint " + path);
+    }
+
+    private Object registerCustomer(Map<String, Object> body) throws ApiException {
+        String firstName = required(body, "firstName");
+        String lastName = required(body, "lastName");
+        String email = required(body, "email");
+        String password = required(body, "password");
+        validateCredentials(email, password);
+        if (customerService.findPersonByEmail(email) != null) {
+            throw new ApiException(409, "An account with this email already exists.");
+        }
+        customerService.addPerson(new Customer(0, firstName, lastName, email, password));
+        Customer saved = customerService.findPersonByEmail(email);
+        if (saved == null) {
+            throw new ApiException(500, "Customer could not be registered.");
+        }
+        return personJson(saved);
+    }
+
+    private Object registerAgent(Map<String, Object> body) throws ApiException {
+        String firstName = required(body, "firstName");
+        String lastName = required(body, "lastName");
+        String username = required(body, "username");
+        String email = required(body, "email");
+        String password = required(body, "password");
+        validateCredentials(email, password);
+        if (agentService.findPersonByUsername(username) != null) {
+            throw new ApiException(409, "An account with this username already exists.");
+        }
+        agentService.addPerson(new SupportStaffMember(0, firstName, lastName, username, email, password));
+        SupportStaffMember saved = agentService.findPersonByUsername(username);
+        if (saved == null) {
+            throw new ApiException(500, "Agent could not be registered.");
+        }
+        return personJson(saved);
+    }
+
+    private static void validateCredentials(String email, String password) throws ApiException {
+        if (!ValidationUtil.isValidEmail(email)) {
+            throw new ApiException(400, "Invalid email format.");
+        }
+        String passwordError = ValidationUtil.validatePassword(password);
+        if (passwordError != null) {
+            throw new ApiException(400, passwordError);
+        }
+    }
+
+    private Object login(Map<String, Object> body) throws ApiException {
+        String role = required(body, "role");
+        String password = required(body, "password");
+        Session session;
+        if (role.equalsIgnoreCase("customer")) {
+            Customer customer = customerService.findPersonByEmail(required(body, "email"));
+            if (customer == null || !password.equals(customer.getPassword())) {
+                throw new ApiException(401, "Invalid email or password.");
+            }
+            session = createSession("Customer", customer.getEmail(), customer.getFirstName() + " " + customer.getLastName(),
+                    null, customer.getId());
+        } else if (role.equalsIgnoreCase("agent")) {
+            SupportStaffMember agent = agentService.findPersonByUsername(required(body, "username"));
+            if (agent == null || !password.equals(agent.getPassword())) {
+                throw new ApiException(401, "Invalid username or password.");
+            }
+            session = createSession("Agent", agent.getEmail(), agent.getFirstName() + " " + agent.getLastName(),
+                    agent.getUsername(), agent.getId());
+        } else {
+            throw new ApiException(400, "Role must be customer or agent.");
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("token", session.getToken());
+        json.put("role", session.getRole());
+        json.put("id", session.getId());
+        json.put("name", session.getName());
+        return new Response(200, json);
+    }
+
+    private Session createSession(String role, String email, String name, String username, int id) throws ApiException {
+        try {
+            return sessions.create(role, email, name, username, id);
+        } catch (IllegalStateException e) {
+            throw new ApiException(503, "Too many users are logged in. Please try again later.");
+        }
+    }
+
+    private Object listTickets(Session session, Map<String, String> query) throws ApiException {
+        TicketFilter filter = isCustomer(session)
+                ? TicketFilter.openForCustomer(session.getId())
+                : TicketFilter.openForAgent(session.getId());
+        int limit = Math.min(MAX_PAGE_SIZE, intParam(query, "limit", DEFAULT_PAGE_SIZE));
+        if (limit < 1) {
+            throw new ApiException(400, "limit must be at least 1.");
+        }
+        TicketPageKey afterKey = null;
+        String after = query.get("after");
+        if (after != null) {
+            String[] key = after.split(":");
+            if (key.length != 2) {
+                throw new ApiException(400, "after must look like priority:id");
+            }
+            afterKey = new TicketPageKey(Integer.parseInt(key[0]), Integer.parseInt(key[1]));
+        }
+
+        List<Ticket> page = ticketService.findTickets(filter, afterKey, limit);
+        List<Object> tickets = new ArrayList<>();
+        for (Ticket ticket : page) {
+            tickets.add(ticketJson(ticket));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("tickets", tickets);
+        if (page.size() == limit) {
+            Ticket last = page.get(page.size() - 1);
+            json.put("next", last.getPriority() + ":" + last.getId());
+        } else {
+            json.put("next", null);
+        }
+        return json;
+    }
+
+    // Timers are reported in microseconds
+    private Object metrics(Session session) throws ApiException {
+        if (isCustomer(session)) {
+            throw new ApiException(403, "Only agents can read the metrics.");
+        }
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        Map<String, Object> timers = new LinkedHashMap<>();
+        registry.getTimers().forEach((name, timer) -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("count", timer.getCount());
+            json.put("mean", timer.getMeanMicros());
+            json.put("p50", timer.getPercentileMicros(50));
+            json.put("p99", timer.getPercentileMicros(99));
+            json.put("p999", timer.getPercentileMicros(99.9));
+            json.put("max", timer.getMaxMicros());
+            timers.put(name, json);
+        });
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("counters", new LinkedHashMap<String, Object>(registry.getCounters()));
+        json.put("timers", timers);
+        return json;
+    }
+
+    private Object searchTickets(Session session, Map<String, String> query) throws ApiException {
+        if (isCustomer(session)) {
+            throw new ApiException(403, "Only agents can search tickets.");
+        }
+        String words = query.get("q");
+        if (words == null || words.trim().isEmpty()) {
+            throw new ApiException(400, "Missing query parameter q.");
+        }
+        int limit = Math.min(MAX_PAGE_SIZE, intParam(query, "limit", DEFAULT_PAGE_SIZE));
+        if (limit < 1) {
+            throw new ApiException(400, "limit must be at least 1.");
+        }
+        List<Object> tickets = new ArrayList<>();
+        for (Ticket ticket : ticketService.searchTickets(words, limit)) {
+            tickets.add(ticketJson(ticket));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("tickets", tickets);
+        return json;
+    }
+
+    private Object createTicket(Session session, Map<String, Object> body) throws ApiException {
+        if (!isCustomer(session)) {
+            throw new ApiException(403, "Only customers can create tickets.");
+        }
+        String topic = required(body, "topic");
+        String content = required(body, "content");
+        Customer customer = customerService.getPersonById(session.getId());
+        if (customer == null) {
+            throw new ApiException(404, "Customer not found.");
+        }
+        Ticket ticket = new Ticket(0, customer, null, topic, content, LocalDateTime.now(), 1);
+        int ticketId = ticketService.addTicketToNextAgent(ticket);
+        if (ticketId == TicketService.NO_AGENT) {
+            throw new ApiException(503, "No available agents. Please try again later.");
+        }
+        if (ticketId == -1) {
+            throw new ApiException(500, "Error saving the ticket.");
+        }
+        return ticketJson(ticket);
+    }
+
+    private Object listMessages(Ticket ticket, Map<String, String> query) throws ApiException, SQLException {
+        List<Object> messages = new ArrayList<>();
+        for (Message message : DatabaseUtil.getMessagesSince(ticket.getId(), intParam(query, "after", 0))) {
+            messages.add(messageJson(message));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("messages", messages);
+        return json;
+    }
+
+    private Object addMessage(Session session, Ticket ticket, Map<String, Object> body) throws ApiException, SQLException {
+        String content = required(body, "content");
+        Message message = new Message(0, ticket.getId(), session.getRole(), session.getName(), content, LocalDateTime.now());
+        if (messageQueue == null) {
+            DatabaseUtil.insertMessage(message);
+            return messageJson(message);
+        }
+        // Reply only once the batch holding the message is committed
+        try {
+            return messageJson(messageQueue.submit(message).get(MESSAGE_COMMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(503, "Interrupted while storing the message.");
+        } catch (TimeoutException e) {
+            throw new ApiException(503, "The message could not be stored in time. Please try again.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new ApiException(503, "The server is busy. Please try again in a moment.");
+            }
+            throw new ApiException(500, "Error storing the message.");
+        }
+    }
+
+    // Loads a ticket and checks that the caller may see it
+    private Ticket findAccessibleTicket(Session session, String idText) throws ApiException {
+        int id;
+        try {
+            id = Integer.parseInt(idText);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Unknown ticket " + idText);
+        }
+        Ticket ticket = ticketService.getTicketById(id);
+        boolean allowed = ticket != null && (isCustomer(session)
+                ? ticket.getCustomer() != null && ticket.getCustomer().getId() == session.getId()
+                : ticket.getAssignedAgent() != null && ticket.getAssignedAgent().getId() == session.getId());
+        if (!allowed) {
+            // Tickets of other users are reported as missing rather than forbidden
+            throw new ApiException(404, "Ticket " + id + " not found.");
+        }
+        return ticket;
+    }
+
+    private Session authenticate(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            throw new ApiException(401, "Missing bearer token.");
+        }
+        Session session = sessions.get(header.substring("Bearer ".length()).trim());
+        if (session == null) {
+            throw new ApiException(401, "Invalid or expired token.");
+        }
+        return session;
+    }
+
+    private static boolean isCustomer(Session session) {
+        return session.getRole().equals("Customer");
+    }
+
+    private static Map<String, Object> ticketJson(Ticket ticket) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", ticket.getId());
+        json.put("topic", ticket.getTopic());
+        json.put("content", ticket.getContent());
+        json.put("status", ticket.getStatus().toString());
+        json.put("priority", ticket.getPriority());
+        json.put("createdAt", ticket.getCreatedAt().toString());
+        json.put("customerId", ticket.getCustomer() != null ? ticket.getCustomer().getId() : null);
+        json.put("agentId", ticket.getAssignedAgent() != null ? ticket.getAssignedAgent().getId() : null);
+        json.put("agentUsername", ticket.getAssignedAgent() != null ? ticket.getAssignedAgent().getUsername() : null);
+        return json;
+    }
+
+    private static Map<String, Object> messageJson(Message message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", message.getId());
+        json.put("ticketId", message.getTicketId());
+        json.put("senderType", message.getSenderType());
+        json.put("senderName", message.getSenderName());
+        json.put("content", message.getContent());
+        json.put("timestamp", message.getTimestamp().toString());
+        return json;
+    }
+
+    private static Map<String, Object> personJson(Object person) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        if (person instanceof Customer) {
+            Customer customer = (Customer) person;
+            json.put("id", customer.getId());
+            json.put("firstName", customer.getFirstName());
+            json.put("lastName", customer.getLastName());
+            json.put("email", customer.getEmail());
+        } else {
+            SupportStaffMember agent = (SupportStaffMember) person;
+            json.put("id", agent.getId());
+            json.put("firstName", agent.getFirstName());
+            json.put("lastName", agent.getLastName());
+            json.put("username", agent.getUsername());
+            json.put("email", agent.getEmail());
+        }
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static void requireMethod(String method, String expected) throws ApiException {
+        if (!expected.equals(method)) {
+            throw new ApiException(405, "Method " + method + " not allowed here.");
+        }
+    }
+
+    private static String required(Map<String, Object> body, String field) throws ApiException {
+        Object value = body.get(field);
+        if (value == null || value.toString().trim().isEmpty()) {
+            throw new ApiException(400, "Missing field " + field + ".");
+        }
+        return value.toString().trim();
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) throws ApiException {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a number.");
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is too large.");
+            }
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            return text.isBlank() ? new HashMap<>() : Json.parseObject(text);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /*
+     * A response body with an explicit status code.
+     */
+    private static final class Response {
+        private final int status;
+        private final Object body;
+
+        private Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /*
+     * Ends a request with the given HTTP status and error message.
+     */
+    private static final class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
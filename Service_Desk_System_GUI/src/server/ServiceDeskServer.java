@@ -0,0 +1,143 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package server;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import service.desk.system.Customer;
+import service.desk.system.SupportStaffMember;
+import services.PersonService;
+import services.SessionRegistry;
+import services.TicketService;
+import util.DatabaseUtil;
+import util.MessageIngestionQueue;
+import util.MetricsRegistry;
+import util.NetworkServerLauncher;
+import util.TicketArchiver;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Headless mode of the service desk: serves the JSON API of ServiceDeskApi over HTTP using the
+ * JDK's built-in server, so the desk can sit behind a web portal or be driven by load tests.
+ *
+ * Requests are handled on a fixed pool of worker threads with a bounded queue. When the queue is
+ * full the accepting thread runs the request itself, which stops it from accepting new connections
+ * until a worker frees up.
+ *
+ * Settings are read from system properties:
+ *   servicedesk.http.port     port to listen on (default 8080, 0 picks a free port)
+ *   servicedesk.http.threads  worker threads (default 16)
+ *   servicedesk.http.queue    requests waiting for a worker (default 256)
+ *   servicedesk.http.writeBehindMessages  store new messages through a MessageIngestionQueue, so
+ *                             concurrent posts share one commit per batch (default false)
+ *   servicedesk.archive.retentionDays  move tickets closed for longer than this many days to the
+ *                             history tables in the background (default unset, i.e. no archiving)
+ *   servicedesk.archive.intervalMinutes  time between archiver runs (default 60)
+ *   servicedesk.metrics.enabled  time statements and service calls in the MetricsRegistry (default
+ *                             true); the metrics are served at /api/metrics, over JMX and printed
+ *                             on shutdown
+ *   servicedesk.slowlog.*     log statements slower than a threshold, with their plans, to a
+ *                             rotating file (see SlowQueryLog)
+ */
+public class ServiceDeskServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_ARCHIVE_INTERVAL_MINUTES = 60;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final SessionRegistry sessions;
+    private final MessageIngestionQueue messageQueue;
+
+    public ServiceDeskServer(int port, int threads, int queueCapacity) throws IOException {
+        this(port, threads, queueCapacity, false);
+    }
+
+    public ServiceDeskServer(int port, int threads, int queueCapacity, boolean writeBehindMessages) throws IOException {
+        this(port, threads, queueCapacity, new TicketService(),
+                new PersonService<>(Customer.class), new PersonService<>(SupportStaffMember.class), new SessionRegistry(),
+                writeBehindMessages ? new MessageIngestionQueue() : null);
+    }
+
+    // messageQueue may be null to insert every message directly
+    public ServiceDeskServer(int port, int threads, int queueCapacity, TicketService ticketService,
+                             PersonService<Customer> customerService, PersonService<SupportStaffMember> agentService,
+                             SessionRegistry sessions, MessageIngestionQueue messageQueue) throws IOException {
+        this.sessions = sessions;
+        this.messageQueue = messageQueue;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "http-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/", new ServiceDeskApi(ticketService, customerService, agentService, sessions, messageQueue));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Service desk API listening on port " + getPort());
+    }
+
+    // Stops accepting requests, waits up to delaySeconds for running ones, then shuts the pool down
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        sessions.shutdown();
+        if (messageQueue != null) {
+            messageQueue.close();
+        }
+    }
+
+    // The port actually bound, useful when the server was created with port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        // Create the tables before the first request arrives
+        DatabaseUtil.initializeDatabase();
+        MetricsRegistry.getDefault().registerMBean();
+
+        ServiceDeskServer server = new ServiceDeskServer(
+                Integer.getInteger("servicedesk.http.port", DEFAULT_PORT),
+                Integer.getInteger("servicedesk.http.threads", DEFAULT_THREADS),
+                Integer.getInteger("servicedesk.http.queue", DEFAULT_QUEUE_CAPACITY),
+                Boolean.getBoolean("servicedesk.http.writeBehindMessages"));
+        server.start();
+
+        Integer retentionDays = Integer.getInteger("servicedesk.archive.retentionDays");
+        TicketArchiver archiver = null;
+        if (retentionDays != null) {
+            archiver = new TicketArchiver(TimeUnit.DAYS.toMillis(retentionDays));
+            archiver.start(TimeUnit.MINUTES.toMillis(
+                    Integer.getInteger("servicedesk.archive.intervalMinutes", DEFAULT_ARCHIVE_INTERVAL_MINUTES)));
+        }
+        TicketArchiver runningArchiver = archiver;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (runningArchiver != null) {
+                runningArchiver.stop();
+            }
+            server.stop(1);
+            System.out.print(MetricsRegistry.getDefault().snapshot());
+            DatabaseUtil.closeConnection();
+            NetworkServerLauncher.shutdown();
+        }));
+    }
+}
@@ -29,6 +29,8 @@ public class Ticket {
     private int priority; // Priority level: 1 (low), 2 (medium), 3 (high)
     private List<Message> messages = new ArrayList<>(); // List of messages associated with the ticket
     private Status status; // Status of the ticket (OPEN or CLOSED)
+    private int version; // Row version, incremented by every update of the ticket in the database
+    private LocalDateTime closedAt; // Time when the ticket was closed, or null while it is open
 
     // Constructor with all fields
     public Ticket(int id, Customer customer, SupportStaffMember assignedAgent, String topic, String content, LocalDateTime createdAt, int priority) {
@@ -125,6 +127,31 @@ public class Ticket {
         return status;
     }
 
+    /*
+     * Retrieves the row version this ticket was loaded with.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /*
+     * Sets the row version; called by the database layer after a load or a successful update.
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /*
+     * Retrieves the time the ticket was closed, or null if it is open.
+     */
+    public LocalDateTime getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(LocalDateTime closedAt) {
+        this.closedAt = closedAt;
+    }
+
     /*
      * Adds a message to the list of messages associated with the ticket.
      */
@@ -141,7 +168,6 @@ public class Ticket {
         throw new IllegalArgumentException("Priority must be between 1 and 3.");
     }
     this.priority = priority;
-    System.out.println("Priority set to: " + this.priority); // Debug line
 }
 
     /*
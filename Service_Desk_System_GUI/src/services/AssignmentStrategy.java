@@ -0,0 +1,26 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package services;
+
+import java.util.NavigableSet;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Decides which agent receives the next ticket.
+ * Implementations are called by TicketAssignmentEngine while it holds its lock,
+ * so they do not need to be thread-safe themselves.
+ */
+public interface AssignmentStrategy {
+
+    /*
+     * Picks an agent from the current loads, ordered by open ticket count and then agent ID.
+     * Returns null if there is no agent to pick.
+     */
+    TicketAssignmentEngine.AgentLoad select(NavigableSet<TicketAssignmentEngine.AgentLoad> loads);
+}
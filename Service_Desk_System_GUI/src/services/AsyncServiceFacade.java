@@ -0,0 +1,173 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import service.desk.system.Customer;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+import util.TicketFilter;
+import util.TicketPageKey;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Runs TicketService and PersonService calls on a small pool of background threads and returns
+ * CompletableFutures, so the Swing handlers never wait for the database on the event dispatch thread.
+ *
+ * The executor is bounded: once every worker is busy and the queue is full, new calls fail
+ * straight away with a RejectedExecutionException instead of piling up. Every future times out
+ * after the configured timeout. Cancelling a future (or a timeout) removes the call from the
+ * queue if it has not started yet; a call that is already running is left to finish, since
+ * interrupting a thread inside a JDBC call can leave the connection unusable.
+ *
+ * Callers that update Swing components should complete on the EDT, for example with
+ * future.whenCompleteAsync(callback, SwingUtilities::invokeLater).
+ */
+public class AsyncServiceFacade {
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private final TicketService ticketService;
+    private final PersonService<Customer> customerService;
+    private final PersonService<SupportStaffMember> agentService;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    public AsyncServiceFacade(TicketService ticketService, PersonService<Customer> customerService,
+                              PersonService<SupportStaffMember> agentService) {
+        this(ticketService, customerService, agentService, DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public AsyncServiceFacade(TicketService ticketService, PersonService<Customer> customerService,
+                              PersonService<SupportStaffMember> agentService,
+                              int threads, int queueCapacity, long timeoutMillis) {
+        this.ticketService = ticketService;
+        this.customerService = customerService;
+        this.agentService = agentService;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "service-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Runs any service call in the background; used for calls that have no wrapper below
+    public <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            if (!future.isDone()) {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return null;
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        // Dequeue the call if the caller gives up before it starts
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled() || error instanceof TimeoutException) {
+                task.cancel(false);
+                executor.remove(task);
+            }
+        });
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs a service call that has no result
+    public CompletableFuture<Void> run(Runnable call) {
+        return supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Customer> findCustomerByEmail(String email) {
+        return supply(() -> customerService.findPersonByEmail(email));
+    }
+
+    public CompletableFuture<SupportStaffMember> findAgentByEmail(String email) {
+        return supply(() -> agentService.findPersonByEmail(email));
+    }
+
+    public CompletableFuture<SupportStaffMember> findAgentByUsername(String username) {
+        return supply(() -> agentService.findPersonByUsername(username));
+    }
+
+    public CompletableFuture<Void> addCustomer(Customer customer) {
+        return run(() -> customerService.addPerson(customer));
+    }
+
+    public CompletableFuture<Void> addAgent(SupportStaffMember agent) {
+        return run(() -> agentService.addPerson(agent));
+    }
+
+    // Completes with the generated ticket ID, or -1 if the ticket could not be added
+    public CompletableFuture<Integer> addTicket(Ticket ticket) {
+        return supply(() -> ticketService.addTicket(ticket));
+    }
+
+    // Completes with the generated ticket ID, TicketService.NO_AGENT if no agent is available, or -1
+    public CompletableFuture<Integer> addTicketToNextAgent(Ticket ticket) {
+        return supply(() -> ticketService.addTicketToNextAgent(ticket));
+    }
+
+    // Completes with false if the ticket was not found or kept changing under the update
+    public CompletableFuture<Boolean> resolveTicket(int ticketId) {
+        return supply(() -> ticketService.resolveTicket(ticketId));
+    }
+
+    // Completes with false if the ticket was not found or kept changing under the update
+    public CompletableFuture<Boolean> setTicketPriority(int ticketId, int priority) {
+        return supply(() -> ticketService.setTicketPriority(ticketId, priority));
+    }
+
+    public CompletableFuture<List<Ticket>> findTickets(TicketFilter filter, TicketPageKey afterKey, int limit) {
+        return supply(() -> ticketService.findTickets(filter, afterKey, limit));
+    }
+
+    public CompletableFuture<List<Ticket>> searchTickets(String query, int limit) {
+        return supply(() -> ticketService.searchTickets(query, limit));
+    }
+
+    public TicketService getTicketService() {
+        return ticketService;
+    }
+
+    // Number of calls waiting for a worker thread
+    public int getQueuedCalls() {
+        return executor.getQueue().size();
+    }
+
+    // Stops accepting calls; calls already queued still run
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.util.NavigableSet;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Assigns tickets to the agent with the fewest open tickets.
+ * Ties go to the agent with the lowest ID, so the choice is deterministic.
+ */
+public class LeastLoadedStrategy implements AssignmentStrategy {
+
+    @Override
+    public TicketAssignmentEngine.AgentLoad select(NavigableSet<TicketAssignmentEngine.AgentLoad> loads) {
+        return loads.isEmpty() ? null : loads.first();
+    }
+}
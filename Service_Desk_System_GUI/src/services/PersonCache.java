@@ -0,0 +1,238 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import service.desk.system.Person;
+import service.desk.system.SupportStaffMember;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Bounded identity map of persons loaded by a PersonService, indexed by ID, email and username.
+ *
+ * Entries expire after a fixed time to live and the least recently used entry is evicted once
+ * the cache is full. Each person is stored once, so a lookup by email or username returns the
+ * same object as a lookup by ID. Misses are not cached, so newly registered persons are found
+ * straight away.
+ *
+ * Every invalidation bumps a version. A read-through load takes the version before it queries
+ * the database and caches its result with putIfUnchanged(), which drops the result if anything
+ * was invalidated meanwhile, so a load that raced with an update cannot cache the old row.
+ */
+public class PersonCache<T> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Stats stats = new Stats();
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Integer, Entry<T>> byId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry<T>> byEmail = new HashMap<>();
+    private final Map<String, Entry<T>> byUsername = new HashMap<>();
+    private long version;
+
+    public PersonCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    // Takes the clock as a parameter so expiry can be tested without sleeping
+    PersonCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public synchronized T getById(int id) {
+        return hitOrMiss(byId.get(id));
+    }
+
+    public synchronized T getByEmail(String email) {
+        return hitOrMiss(byEmail.get(email));
+    }
+
+    public synchronized T getByUsername(String username) {
+        return hitOrMiss(byUsername.get(username));
+    }
+
+    // Returns the cached person if the entry is still fresh, dropping it if it has expired
+    private T hitOrMiss(Entry<T> entry) {
+        if (entry != null && entry.expiresAt > clock.getAsLong()) {
+            byId.get(entry.id); // Marks the entry as recently used
+            stats.hits.increment();
+            return entry.person;
+        }
+        if (entry != null) {
+            remove(entry);
+            stats.expirations.increment();
+        }
+        stats.misses.increment();
+        return null;
+    }
+
+    // The current version; take it before loading a person to cache with putIfUnchanged()
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Caches a person loaded from the database unless the cache was invalidated since the given
+    // version was taken; returns false if the person was not cached
+    public synchronized boolean putIfUnchanged(T person, long loadedAtVersion) {
+        if (version != loadedAtVersion) {
+            return false;
+        }
+        put(person);
+        return true;
+    }
+
+    // Caches a person loaded from the database, replacing any older copy with the same ID
+    public synchronized void put(T person) {
+        if (maxSize <= 0 || person == null) {
+            return;
+        }
+        Entry<T> entry = new Entry<>(person, clock.getAsLong() + ttlMillis);
+        Entry<T> previous = byId.get(entry.id);
+        if (previous != null) {
+            remove(previous);
+        }
+        byId.put(entry.id, entry);
+        if (entry.email != null) {
+            byEmail.put(entry.email, entry);
+        }
+        if (entry.username != null) {
+            byUsername.put(entry.username, entry);
+        }
+
+        Iterator<Entry<T>> it = byId.values().iterator();
+        while (byId.size() > maxSize && it.hasNext()) {
+            Entry<T> eldest = it.next();
+            it.remove();
+            unindex(eldest);
+            stats.evictions.increment();
+        }
+    }
+
+    // Drops the person with the given ID, e.g. after it was updated in the database
+    public synchronized void invalidateId(int id) {
+        version++;
+        Entry<T> entry = byId.get(id);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    // Drops whichever person is cached under the given email
+    public synchronized void invalidateEmail(String email) {
+        version++;
+        Entry<T> entry = byEmail.get(email);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    // Drops whichever person is cached under the given username
+    public synchronized void invalidateUsername(String username) {
+        version++;
+        Entry<T> entry = byUsername.get(username);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public synchronized void clear() {
+        version++;
+        byId.clear();
+        byEmail.clear();
+        byUsername.clear();
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    private void remove(Entry<T> entry) {
+        byId.remove(entry.id, entry);
+        unindex(entry);
+    }
+
+    private void unindex(Entry<T> entry) {
+        if (entry.email != null) {
+            byEmail.remove(entry.email, entry);
+        }
+        if (entry.username != null) {
+            byUsername.remove(entry.username, entry);
+        }
+    }
+
+    /*
+     * Hit, miss, eviction and expiry counters of one cache.
+     */
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        public long getExpirations() {
+            return expirations.sum();
+        }
+
+        // Fraction of lookups answered from the cache
+        public double getHitRate() {
+            long total = getHits() + getMisses();
+            return total == 0 ? 0.0 : (double) getHits() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, expirations=%d, hitRate=%.1f%%",
+                    getHits(), getMisses(), getEvictions(), getExpirations(), getHitRate() * 100);
+        }
+    }
+
+    /*
+     * A cached person with the keys it was indexed under when it was cached.
+     */
+    private static final class Entry<T> {
+        private final T person;
+        private final int id;
+        private final String email;
+        private final String username;
+        private final long expiresAt;
+
+        private Entry(T person, long expiresAt) {
+            Person p = (Person) person;
+            this.person = person;
+            this.id = p.getId();
+            this.email = p.getEmail();
+            this.username = person instanceof SupportStaffMember ? ((SupportStaffMember) person).getUsername() : null;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
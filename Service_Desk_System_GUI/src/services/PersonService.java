@@ -6,11 +6,20 @@ package services;
 
 import service.desk.system.SupportStaffMember;
 import service.desk.system.Customer;
+import service.desk.system.Person;
 import util.DatabaseUtil;
+import util.MetricsRegistry;
+import util.TicketChangeListener;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  *
@@ -20,20 +29,83 @@ import java.util.List;
 /*
  * A service class for managing a list of persons of type T.
  * Handles adding persons, retrieving all persons, and finding a person by ID or email.
+ * Lookups by ID, email and username are answered from a bounded cache when possible.
+ *
+ * Every PersonService of the same type shares one cache, so the GUI, the HTTP API and the
+ * assignment engine see each other's updates. Entries are also dropped when DatabaseUtil reports
+ * a person change, which covers updates made without a PersonService. Lookups return copies, so
+ * changing a returned person does not change the cached one.
  */
 public class PersonService<T> {
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final long DEFAULT_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+
+    private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+    // The cache of each person type, shared by the PersonServices created with the default settings
+    private static final Map<Class<?>, PersonCache<?>> sharedCaches = new ConcurrentHashMap<>();
+    // Every cache, including those with their own settings, so all of them hear about changes
+    private static final Set<PersonCache<?>> allCaches = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        DatabaseUtil.addChangeListener(new TicketChangeListener() {
+            @Override
+            public void personChanged(Person person) {
+                forEachCache(cache -> {
+                    cache.invalidateId(person.getId());
+                    cache.invalidateEmail(person.getEmail());
+                    if (person instanceof SupportStaffMember) {
+                        cache.invalidateUsername(((SupportStaffMember) person).getUsername());
+                    }
+                });
+            }
+
+            @Override
+            public void tableCleared(String tableName) {
+                if (tableName.equalsIgnoreCase("Customers") || tableName.equalsIgnoreCase("SupportStaff")) {
+                    forEachCache(PersonCache::clear);
+                }
+            }
+        });
+    }
+
     private final Class<T> type;
-    private Connection connection;
+    private final PersonCache<T> cache;
+    // Timer names are this plus the method, e.g. "service.PersonService.Customer.findPersonByEmail"
+    private final String metricPrefix;
 
-    // Initializes PersonService with the specified type and establishes a database connection
+    // Initializes PersonService with the specified type and the cache shared by that type;
+    // connections are borrowed from the pool per call
+    @SuppressWarnings("unchecked")
     public PersonService(Class<T> type) {
+        this(type, (PersonCache<T>) sharedCaches.computeIfAbsent(type,
+                key -> register(new PersonCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL_MILLIS))));
+    }
+
+    // Initializes PersonService with a cache of its own, of the given size and time to live, e.g. to
+    // compare cache sizes in a benchmark; a size of 0 disables caching
+    public PersonService(Class<T> type, int cacheSize, long cacheTtlMillis) {
+        this(type, register(new PersonCache<T>(cacheSize, cacheTtlMillis)));
+    }
+
+    private PersonService(Class<T> type, PersonCache<T> cache) {
         this.type = type;
-        try {
-            this.connection = DatabaseUtil.getConnection(); // Initialize database connection
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to establish database connection", e);
+        this.cache = cache;
+        this.metricPrefix = "service.PersonService." + type.getSimpleName() + ".";
+    }
+
+    private static <C extends PersonCache<?>> C register(C cache) {
+        allCaches.add(cache);
+        return cache;
+    }
+
+    private static void forEachCache(Consumer<PersonCache<?>> action) {
+        List<PersonCache<?>> caches;
+        synchronized (allCaches) {
+            caches = new ArrayList<>(allCaches);
         }
+        caches.forEach(action);
     }
 
     // Adds a person to the database by checking their type and using the appropriate insert method
@@ -43,6 +115,7 @@ public class PersonService<T> {
             return; // Invalid type, nothing to insert
         }
 
+        long start = System.nanoTime();
         try {
             if (person instanceof Customer) {
                 DatabaseUtil.insertCustomer((Customer) person); // Insert customer
@@ -51,9 +124,48 @@ public class PersonService<T> {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            invalidate(person);
+            metrics.recordSince(metricPrefix + "addPerson", start);
+        }
+    }
+
+    // Saves changes to an existing person and drops the cached copy
+    public void updatePerson(T person) {
+        long start = System.nanoTime();
+        try {
+            if (person instanceof Customer) {
+                DatabaseUtil.updateCustomer((Customer) person);
+            } else if (person instanceof SupportStaffMember) {
+                DatabaseUtil.updateSupportStaff((SupportStaffMember) person);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            cache.invalidateId(((Person) person).getId());
+            invalidate(person);
+            metrics.recordSince(metricPrefix + "updatePerson", start);
+        }
+    }
+
+    // Drops any cached person that shares an email or username with the given person
+    private void invalidate(T person) {
+        cache.invalidateEmail(((Person) person).getEmail());
+        if (person instanceof SupportStaffMember) {
+            cache.invalidateUsername(((SupportStaffMember) person).getUsername());
         }
     }
 
+    // Empties the cache, e.g. after rows were changed outside this JVM
+    public void clearCache() {
+        cache.clear();
+    }
+
+    // Hit rate and eviction counts of the lookup cache
+    public PersonCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
     // Retrieves all persons of type T from the database
     public List<T> getAllPersons() {
         List<T> persons = new ArrayList<>();
@@ -62,12 +174,17 @@ public class PersonService<T> {
             return persons; // Invalid type, no data to retrieve
         }
 
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(querySQL)) {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(querySQL)) {
             while (rs.next()) {
                 persons.add(createPersonFromResultSet(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "getAllPersons", start);
         }
         return persons;
     }
@@ -77,6 +194,7 @@ public class PersonService<T> {
         List<SupportStaffMember> staffList = new ArrayList<>();
         String querySQL = "SELECT * FROM SupportStaff";
 
+        long start = System.nanoTime();
         try (Connection conn = DatabaseUtil.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(querySQL)) {
@@ -93,6 +211,8 @@ public class PersonService<T> {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "getAllSupportStaff", start);
         }
 
         return staffList;
@@ -100,33 +220,50 @@ public class PersonService<T> {
 
     // Retrieves a person by their unique ID
     public T getPersonById(int id) {
+        T cached = cache.getById(id);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         String querySQL = getSelectSQL() + " WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(querySQL)) {
+        long version = cache.getVersion();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(querySQL)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return createPersonFromResultSet(rs);
+                    return cachePerson(createPersonFromResultSet(rs), version);
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "getPersonById", start);
         }
         return null;
     }
 
     // Finds a person by their email address
     public T findPersonByEmail(String email) {
+        T cached = cache.getByEmail(email);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         String querySQL = getSelectSQL() + " WHERE email = ?";
+        long version = cache.getVersion();
+        long start = System.nanoTime();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(querySQL)) {
             stmt.setString(1, email);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return createPersonFromResultSet(rs);
+                    return cachePerson(createPersonFromResultSet(rs), version);
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "findPersonByEmail", start);
         }
         return null;
     }
@@ -136,18 +273,26 @@ public class PersonService<T> {
         if (!type.equals(SupportStaffMember.class)) {
             return null; // Only valid for SupportStaffMember
         }
+        T cached = cache.getByUsername(username);
+        if (cached != null) {
+            return copyOf(cached);
+        }
 
         String querySQL = "SELECT id, firstName, lastName, username, email, password FROM supportstaff WHERE username = ?";
+        long version = cache.getVersion();
+        long start = System.nanoTime();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(querySQL)) {
             stmt.setString(1, username);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return createPersonFromResultSet(rs);
+                    return cachePerson(createPersonFromResultSet(rs), version);
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "findPersonByUsername", start);
         }
         return null;
     }
@@ -165,17 +310,39 @@ public class PersonService<T> {
     // Helper method to check if a specific column value exists in the table
     private boolean exists(String columnName, String value) {
         String querySQL = String.format("SELECT 1 FROM %s WHERE %s = ?", getTableName(), columnName);
-        try (PreparedStatement stmt = connection.prepareStatement(querySQL)) {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(querySQL)) {
             stmt.setString(1, value);
             try (ResultSet rs = stmt.executeQuery()) {
                 return rs.next();
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            metrics.recordSince(metricPrefix + "exists", start);
         }
         return false;
     }
 
+    // Adds a freshly loaded person to the cache, unless it was invalidated since the load started
+    private T cachePerson(T person, long version) {
+        cache.putIfUnchanged(copyOf(person), version);
+        return person;
+    }
+
+    // A copy of a person, so callers never share an object with the cache
+    private T copyOf(T person) {
+        if (person instanceof Customer) {
+            Customer customer = (Customer) person;
+            return type.cast(new Customer(customer.getId(), customer.getFirstName(), customer.getLastName(),
+                    customer.getEmail(), customer.getPassword()));
+        }
+        SupportStaffMember staff = (SupportStaffMember) person;
+        return type.cast(new SupportStaffMember(staff.getId(), staff.getFirstName(), staff.getLastName(),
+                staff.getUsername(), staff.getEmail(), staff.getPassword()));
+    }
+
     // Returns the SQL statement for inserting data based on the type
     private String getInsertSQL() {
         if (type.equals(Customer.class)) {
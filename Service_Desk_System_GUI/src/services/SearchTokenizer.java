@@ -0,0 +1,62 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Splits ticket text into the terms of the search index: runs of letters and digits, lower-cased,
+ * without common English words. Tickets and queries go through the same tokenizer, so a query term
+ * matches whatever the indexed text contained.
+ */
+public final class SearchTokenizer {
+    // Longer runs (e.g. pasted hashes or base64) are cut so they cannot bloat the dictionary
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have", "i",
+            "if", "in", "is", "it", "its", "me", "my", "no", "not", "of", "on", "or", "our", "so",
+            "that", "the", "this", "to", "was", "we", "were", "will", "with", "you", "your"));
+
+    private SearchTokenizer() {
+    }
+
+    // Returns the terms of text in the order they appear, repeats included
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean inWord = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                addTerm(terms, text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String word) {
+        String term = word.toLowerCase(Locale.ROOT);
+        if (!STOP_WORDS.contains(term)) {
+            terms.add(term);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Logged-in users of every client, keyed by an opaque random token.
+ *
+ * Lookups are a single ConcurrentHashMap read plus a volatile write of the last access time, so
+ * they never lock. Sessions that have not been used for the idle timeout are expired by a hashed
+ * timer wheel: each session sits in the slot of the tick at which it would expire. When the wheel
+ * reaches a slot, sessions that were used in the meantime are moved to the slot of their new
+ * deadline and the others are removed, so the expiry work is proportional to the sessions that
+ * are due rather than to all sessions. Sessions that are invalidated, or found expired on lookup,
+ * are taken out of their slot straight away, so the wheel never holds more than the active sessions.
+ *
+ * The number of sessions is bounded; when the registry is full, idle sessions are expired first
+ * and create() fails with an IllegalStateException if there is still no room.
+ */
+public class SessionRegistry {
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+    private static final int DEFAULT_MAX_SESSIONS = 100_000;
+    private static final int WHEEL_SLOTS = 64;
+    private static final int TOKEN_BYTES = 24;
+
+    private static final SessionRegistry DEFAULT = new SessionRegistry();
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final Queue<Session>[] wheel;
+    private final long tickMillis;
+    private final long idleTimeoutMillis;
+    private final int maxSessions;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService ticker;
+    private final SecureRandom random = new SecureRandom();
+    private long lastTick;
+
+    public SessionRegistry() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAX_SESSIONS);
+    }
+
+    public SessionRegistry(long idleTimeoutMillis, int maxSessions) {
+        this(idleTimeoutMillis, maxSessions, System::currentTimeMillis, true);
+    }
+
+    // Used by tests to control the clock and advance the wheel by hand with expireIdle()
+    @SuppressWarnings("unchecked")
+    SessionRegistry(long idleTimeoutMillis, int maxSessions, LongSupplier clock, boolean startTicker) {
+        if (idleTimeoutMillis < 1 || maxSessions < 1) {
+            throw new IllegalArgumentException("Idle timeout and maximum sessions must be positive.");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        // One revolution covers the idle timeout, so every deadline falls within the next turn
+        this.tickMillis = Math.max(1, (idleTimeoutMillis + WHEEL_SLOTS - 2) / (WHEEL_SLOTS - 1));
+        this.wheel = (Queue<Session>[]) new Queue<?>[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = clock.getAsLong() / tickMillis;
+
+        if (startTicker) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(this::expireIdle, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    // The registry shared by the desktop client
+    public static SessionRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    // Starts a session for a user who has just logged in
+    public Session create(String role, String email, String name, String username, int id) {
+        if (!reserveSlot()) {
+            expireIdle();
+            if (!reserveSlot()) {
+                throw new IllegalStateException("Too many active sessions (limit " + maxSessions + ").");
+            }
+        }
+        Session session = new Session(newToken(), role, email, name, username, id, clock.getAsLong());
+        sessions.put(session.token, session);
+        schedule(session);
+        return session;
+    }
+
+    // Returns the session for a token and marks it as used, or null if it is unknown or has expired
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - session.lastAccess >= idleTimeoutMillis) {
+            if (remove(session)) {
+                unschedule(session);
+            }
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    // Ends a session; returns false if the token was not active
+    public boolean invalidate(String token) {
+        Session session = token != null ? sessions.get(token) : null;
+        if (session == null || !remove(session)) {
+            return false;
+        }
+        unschedule(session);
+        return true;
+    }
+
+    // Number of active sessions, including idle ones the wheel has not reached yet
+    public int size() {
+        return sessionCount.get();
+    }
+
+    // Sessions held in the wheel, including removed ones it has not dropped yet; used by tests
+    int scheduledCount() {
+        int count = 0;
+        for (Queue<Session> slot : wheel) {
+            count += slot.size();
+        }
+        return count;
+    }
+
+    // Advances the wheel to the current time, expiring idle sessions in the slots it passes
+    public void expireIdle() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        synchronized (wheel) {
+            // After a long pause one full turn visits every slot
+            long from = Math.max(lastTick + 1, currentTick - WHEEL_SLOTS + 1);
+            for (long tick = from; tick <= currentTick; tick++) {
+                Queue<Session> slot = wheel[(int) (tick % WHEEL_SLOTS)];
+                int due = slot.size();
+                for (int i = 0; i < due; i++) {
+                    Session session = slot.poll();
+                    if (session == null) {
+                        break;
+                    }
+                    if (session.removed) {
+                        continue;
+                    }
+                    if (now - session.lastAccess >= idleTimeoutMillis) {
+                        remove(session);
+                    } else {
+                        schedule(session);
+                    }
+                }
+            }
+            lastTick = currentTick;
+        }
+    }
+
+    // Stops the expiry thread
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    // Puts a session in the slot of the tick after its current deadline
+    private void schedule(Session session) {
+        long deadlineTick = (session.lastAccess + idleTimeoutMillis) / tickMillis + 1;
+        int slot = (int) (deadlineTick % WHEEL_SLOTS);
+        session.slot = slot;
+        wheel[slot].add(session);
+    }
+
+    // Takes a removed session out of its slot. If the wheel is moving it to another slot at the
+    // same moment it may be missed here, but the wheel drops removed sessions when it reaches them.
+    private void unschedule(Session session) {
+        wheel[session.slot].remove(session);
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.token, session)) {
+            return false;
+        }
+        session.removed = true;
+        sessionCount.decrementAndGet();
+        return true;
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int count = sessionCount.get();
+            if (count >= maxSessions) {
+                return false;
+            }
+            if (sessionCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /*
+     * One logged-in user. The user details never change; a new login creates a new session.
+     */
+    public static final class Session {
+        private final String token;
+        private final String role;
+        private final String email;
+        private final String name;
+        private final String username;
+        private final int id;
+        private volatile long lastAccess;
+        private volatile boolean removed;
+        // The wheel slot the session was last scheduled in
+        private volatile int slot;
+
+        private Session(String token, String role, String email, String name, String username, int id, long now) {
+            this.token = token;
+            this.role = role;
+            this.email = email;
+            this.name = name;
+            this.username = username;
+            this.id = id;
+            this.lastAccess = now;
+        }
+
+        public String getToken() { return token; }
+        public String getRole() { return role; }
+        public String getEmail() { return email; }
+        public String getName() { return name; }
+        public String getUsername() { return username; }
+        public int getId() { return id; }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import service.desk.system.Person;
+import service.desk.system.SupportStaffMember;
+import util.DatabaseUtil;
+import util.TicketChangeListener;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Chooses the agent for new tickets from live per-agent open ticket counts.
+ *
+ * The counts are seeded from one GROUP BY query and then kept up to date as tickets are
+ * created, resolved and reassigned, so picking an agent does not touch the database.
+ * Loads are kept in a set ordered by open ticket count and then agent ID, which gives the
+ * least-loaded agent in O(log agents) and deterministic tie-breaking. The counts are re-seeded
+ * periodically to pick up agents registered, or tickets changed, outside this engine.
+ *
+ * A refresh queries the database without holding the engine's lock and then swaps the new loads
+ * in, so ticket creation never waits for a reload; only the very first seeding is waited for.
+ * Every change counted after a reload has started is also recorded as a pending delta, and the
+ * deltas are applied to the loaded counts when they are swapped in. Each reload has a generation,
+ * so a reload overtaken by seed() or by a cleared table is dropped instead of swapped in.
+ *
+ * As a TicketChangeListener, the shared engine from getDefault() adds newly registered agents
+ * straight away and reloads after the SupportStaff or Tickets table has been cleared.
+ */
+public class TicketAssignmentEngine implements TicketChangeListener {
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 60_000;
+
+    private static TicketAssignmentEngine defaultEngine;
+
+    private final AssignmentStrategy strategy;
+    private final long refreshIntervalMillis;
+    private final Map<Integer, AgentLoad> loadsById = new HashMap<>();
+    private final NavigableSet<AgentLoad> loadsByCount = new TreeSet<>(
+            Comparator.comparingInt(AgentLoad::getOpenTickets).thenComparingInt(AgentLoad::getAgentId));
+    // Held while loading from the database, so only one thread reloads at a time
+    private final Object refreshLock = new Object();
+    private volatile long seededAt;
+    private volatile boolean seeded;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // Bumped by every reload and every seed(); a reload only swaps its loads in if it is still current
+    private long generation;
+    // Count changes made since the current reload started, by agent ID; null when no reload runs
+    private Map<Integer, Integer> pendingDeltas;
+    // Agents registered since the current reload started, which its query may have missed
+    private List<SupportStaffMember> pendingAgents;
+
+    // Creates an engine that assigns tickets to the least-loaded agent
+    public TicketAssignmentEngine() {
+        this(new LeastLoadedStrategy());
+    }
+
+    public TicketAssignmentEngine(AssignmentStrategy strategy) {
+        this(strategy, DEFAULT_REFRESH_INTERVAL_MILLIS);
+    }
+
+    public TicketAssignmentEngine(AssignmentStrategy strategy, long refreshIntervalMillis) {
+        this.strategy = strategy;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /*
+     * The least-loaded engine shared by every TicketService created with the default settings, so
+     * the desktop client, the API server and the simulator in one process agree on the counts.
+     */
+    public static synchronized TicketAssignmentEngine getDefault() {
+        if (defaultEngine == null) {
+            defaultEngine = new TicketAssignmentEngine();
+            DatabaseUtil.addChangeListener(defaultEngine);
+        }
+        return defaultEngine;
+    }
+
+    // Picks the agent for a new ticket, or null if no agents are registered. The pick is not
+    // counted; use assignAgent() when the ticket is about to be created.
+    public SupportStaffMember selectAgent() {
+        ensureSeeded();
+        synchronized (this) {
+            AgentLoad load = strategy.select(loadsByCount);
+            return load != null ? load.agent : null;
+        }
+    }
+
+    // Picks the agent for a new ticket and counts the ticket against them in one step, so
+    // concurrent callers do not all pick the same agent; returns null if no agents are registered.
+    // Call ticketClosed() for the agent if the ticket is not created after all.
+    public SupportStaffMember assignAgent() {
+        ensureSeeded();
+        synchronized (this) {
+            AgentLoad load = strategy.select(loadsByCount);
+            if (load == null) {
+                return null;
+            }
+            adjust(load.getAgentId(), 1);
+            return load.agent;
+        }
+    }
+
+    // Records a new open ticket for an agent
+    public synchronized void ticketOpened(int agentId) {
+        adjust(agentId, 1);
+    }
+
+    // Records that one of an agent's open tickets was resolved
+    public synchronized void ticketClosed(int agentId) {
+        adjust(agentId, -1);
+    }
+
+    // Moves an open ticket from one agent to another
+    public synchronized void ticketReassigned(int fromAgentId, int toAgentId) {
+        adjust(fromAgentId, -1);
+        adjust(toAgentId, 1);
+    }
+
+    // Adds a newly registered agent with no open tickets
+    public synchronized void registerAgent(SupportStaffMember agent) {
+        if (pendingAgents != null) {
+            pendingAgents.add(agent);
+        }
+        if (!loadsById.containsKey(agent.getId())) {
+            AgentLoad load = new AgentLoad(agent, 0);
+            loadsById.put(agent.getId(), load);
+            loadsByCount.add(load);
+        }
+    }
+
+    // A new agent can take tickets at once; an existing one is only renamed on the next refresh
+    @Override
+    public void personChanged(Person person) {
+        if (person instanceof SupportStaffMember && person.getId() > 0) {
+            registerAgent((SupportStaffMember) person);
+        }
+    }
+
+    // Tracked loads of agents or tickets that are gone are dropped and read again on next use
+    @Override
+    public void tableCleared(String tableName) {
+        if (tableName.equalsIgnoreCase("SupportStaff") || tableName.equalsIgnoreCase("Tickets")) {
+            synchronized (this) {
+                generation++;
+                pendingDeltas = null;
+                pendingAgents = null;
+                seeded = false;
+            }
+        }
+    }
+
+    // Returns the tracked number of open tickets of an agent
+    public int getOpenTicketCount(int agentId) {
+        ensureSeeded();
+        synchronized (this) {
+            AgentLoad load = loadsById.get(agentId);
+            return load != null ? load.openTickets : 0;
+        }
+    }
+
+    // Reloads agents and their open ticket counts from the database, then swaps them in together
+    // with the changes counted while the reload ran
+    public void refresh() {
+        synchronized (refreshLock) {
+            long reload;
+            synchronized (this) {
+                reload = ++generation;
+                pendingDeltas = new HashMap<>();
+                pendingAgents = new ArrayList<>();
+            }
+            try {
+                List<SupportStaffMember> agents = DatabaseUtil.getAllSupportStaff();
+                Map<Integer, Integer> counts = DatabaseUtil.getOpenTicketCountsByAgent();
+                synchronized (this) {
+                    if (generation == reload) {
+                        Map<Integer, Integer> deltas = pendingDeltas;
+                        List<SupportStaffMember> registered = pendingAgents;
+                        replaceLoads(agents, counts);
+                        registered.forEach(this::registerAgent);
+                        deltas.forEach(this::adjust);
+                    }
+                }
+            } catch (SQLException e) {
+                System.out.println("Error loading agent ticket counts: " + e.getMessage());
+                synchronized (this) {
+                    if (generation == reload) {
+                        pendingDeltas = null;
+                        pendingAgents = null;
+                    }
+                }
+            }
+        }
+    }
+
+    // Replaces the tracked loads with the given agents and open ticket counts
+    public synchronized void seed(List<SupportStaffMember> agents, Map<Integer, Integer> openTicketCounts) {
+        generation++;
+        replaceLoads(agents, openTicketCounts);
+    }
+
+    // Called with the engine's lock held; ends any reload in progress
+    private void replaceLoads(List<SupportStaffMember> agents, Map<Integer, Integer> openTicketCounts) {
+        pendingDeltas = null;
+        pendingAgents = null;
+        loadsById.clear();
+        loadsByCount.clear();
+        for (SupportStaffMember agent : agents) {
+            AgentLoad load = new AgentLoad(agent, openTicketCounts.getOrDefault(agent.getId(), 0));
+            loadsById.put(agent.getId(), load);
+            loadsByCount.add(load);
+        }
+        seeded = true;
+        seededAt = System.currentTimeMillis();
+    }
+
+    // Seeds on first use and whenever the refresh interval has passed. Once seeded, callers that
+    // find another thread reloading carry on with the current loads instead of waiting.
+    private void ensureSeeded() {
+        if (!seeded) {
+            synchronized (refreshLock) {
+                if (!seeded) {
+                    refresh();
+                }
+            }
+        } else if (System.currentTimeMillis() - seededAt >= refreshIntervalMillis) {
+            reloadUnlessRunning();
+        }
+    }
+
+    private void reloadUnlessRunning() {
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                if (System.currentTimeMillis() - seededAt >= refreshIntervalMillis) {
+                    refresh();
+                }
+            } finally {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    // Changes an agent's count, re-inserting it so the ordered set stays sorted, and records the
+    // change for a reload in progress
+    private void adjust(int agentId, int delta) {
+        if (pendingDeltas != null) {
+            pendingDeltas.merge(agentId, delta, Integer::sum);
+        }
+        AgentLoad load = loadsById.get(agentId);
+        if (load == null) {
+            return; // Unknown agent, picked up by the next refresh
+        }
+        loadsByCount.remove(load);
+        load.openTickets = Math.max(0, load.openTickets + delta);
+        loadsByCount.add(load);
+    }
+
+    /*
+     * An agent together with the number of open tickets assigned to them.
+     */
+    public static final class AgentLoad {
+        private final SupportStaffMember agent;
+        private int openTickets;
+
+        private AgentLoad(SupportStaffMember agent, int openTickets) {
+            this.agent = agent;
+            this.openTickets = openTickets;
+        }
+
+        public SupportStaffMember getAgent() {
+            return agent;
+        }
+
+        public int getAgentId() {
+            return agent.getId();
+        }
+
+        public int getOpenTickets() {
+            return openTickets;
+        }
+    }
+}
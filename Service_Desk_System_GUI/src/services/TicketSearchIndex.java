@@ -0,0 +1,657 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import service.desk.system.Message;
+import service.desk.system.Ticket;
+import util.DatabaseUtil;
+import util.TicketChangeListener;
+import util.UncheckedSQLException;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * In-memory full-text index over the topic, content and messages of every ticket, ranked with BM25.
+ *
+ * Each term maps to a postings list of ticket IDs in ascending order with the number of times the
+ * term occurs in that ticket, both kept in primitive int arrays. A search walks the postings lists
+ * of the query terms side by side (document at a time) and keeps the best hits in a bounded heap,
+ * so it never materialises a score per ticket.
+ *
+ * The index follows new tickets and messages as a TicketChangeListener and drops archived tickets.
+ * Removed tickets are only marked deleted; their postings are dropped when the index is saved.
+ * The saved segment is a compact file of delta- and varint-encoded postings. On open, the segment
+ * is loaded and only the tickets and messages added since are read from the database, so a restart
+ * does not rescan the tables. refresh() reads the rows above a watermark, less a window of IDs
+ * below it that catches rows committed late or by another process, and the rows that were indexed
+ * are tracked by ID, so a row is never counted twice even if it is both read by refresh() and
+ * reported by the listener. Clearing the Tickets or Messages table empties the index, since the
+ * IDs start again at 1.
+ *
+ * The default index is refreshed and, if anything changed, saved every SYNC_INTERVAL_SECONDS, so
+ * rows written by other processes become searchable and a crash loses at most one interval.
+ */
+public class TicketSearchIndex implements TicketChangeListener, Closeable {
+    private static final String DEFAULT_SEGMENT = "servicedesk-search.idx";
+    private static final int SEGMENT_MAGIC = 0x53445358; // "SDSX"
+    private static final int SEGMENT_VERSION = 2;
+    private static final int REFRESH_FETCH_SIZE = 500;
+    // IDs below the watermark that refresh() reads again; rows committed out of ID order are
+    // assumed to be at most this far behind
+    private static final int RESCAN_WINDOW = 1_000;
+    private static final long SYNC_INTERVAL_SECONDS = 30;
+
+    // Standard BM25 parameters: term frequency saturation and document length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static TicketSearchIndex defaultIndex;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> dictionary = new HashMap<>();
+    private int[] docLengths = new int[1024];
+    private final BitSet liveDocs = new BitSet();
+    private final BitSet deletedDocs = new BitSet();
+    private final BitSet indexedTickets = new BitSet();
+    private final BitSet indexedMessages = new BitSet();
+    private int ticketWatermark;
+    private int messageWatermark;
+    private int docCount;
+    private long totalLength;
+    // Bumped by every change, so sync() only saves an index that changed since the last save
+    private volatile long changes;
+    private volatile long savedChanges;
+    private Path segmentPath;
+    private ScheduledExecutorService syncer;
+
+    // Creates an empty index that is not connected to the database
+    public TicketSearchIndex() {
+    }
+
+    /*
+     * Loads the segment at path (if there is one), listens for new tickets and messages and reads
+     * whatever was added to the database since the segment was saved. close() saves it again.
+     * A segment that cannot be read is ignored and the index is rebuilt from the database.
+     */
+    public static TicketSearchIndex open(Path path) throws SQLException {
+        TicketSearchIndex index = null;
+        if (Files.exists(path)) {
+            try {
+                index = load(path);
+            } catch (IOException e) {
+                System.out.println("Search index " + path + " could not be read, rebuilding it: " + e.getMessage());
+            }
+        }
+        if (index == null) {
+            index = new TicketSearchIndex();
+        }
+        index.segmentPath = path;
+        // Listen first: a row committed during the refresh is then seen by at least one of the two
+        DatabaseUtil.addChangeListener(index);
+        index.refresh();
+        return index;
+    }
+
+    /*
+     * The index used by TicketService, opened on first use from the segment named by the
+     * servicedesk.search.index system property (default servicedesk-search.idx), synced in the
+     * background and saved on exit.
+     */
+    public static synchronized TicketSearchIndex getDefault() throws SQLException {
+        if (defaultIndex == null) {
+            TicketSearchIndex index = open(Paths.get(System.getProperty("servicedesk.search.index", DEFAULT_SEGMENT)));
+            index.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "search-index-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            index.syncer.scheduleWithFixedDelay(index::sync, SYNC_INTERVAL_SECONDS, SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.out.println("Error saving search index: " + e.getMessage());
+                }
+            }));
+            defaultIndex = index;
+        }
+        return defaultIndex;
+    }
+
+    // Indexes the tickets and messages in the database that this index has not seen yet
+    public void refresh() throws SQLException {
+        int lastTicket;
+        int lastMessage;
+        lock.readLock().lock();
+        try {
+            lastTicket = ticketWatermark;
+            lastMessage = messageWatermark;
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Rows read here that the listener already reported, or that an earlier refresh read, are
+        // skipped by indexTicket and indexMessage
+        int[] seen = {lastTicket, lastMessage};
+        try (Stream<Ticket> tickets = DatabaseUtil.streamTickets(null, rescanFrom(lastTicket), REFRESH_FETCH_SIZE)) {
+            tickets.forEach(ticket -> {
+                indexTicket(ticket);
+                seen[0] = ticket.getId();
+            });
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        try (Stream<Message> messages = DatabaseUtil.streamMessages(rescanFrom(lastMessage), REFRESH_FETCH_SIZE)) {
+            messages.forEach(message -> {
+                indexMessage(message);
+                seen[1] = message.getId();
+            });
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+
+        lock.writeLock().lock();
+        try {
+            // IDs below the last row read are indexed or were never committed (or have been archived);
+            // a row still in flight below it is reported by the listener once it commits, or read
+            // by a later refresh if another process wrote it
+            ticketWatermark = Math.max(ticketWatermark, seen[0]);
+            messageWatermark = Math.max(messageWatermark, seen[1]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Refreshes the index and saves it if it changed; errors are reported and retried next time
+    public void sync() {
+        try {
+            refresh();
+            if (segmentPath != null && changes != savedChanges) {
+                save(segmentPath);
+            }
+        } catch (SQLException | IOException e) {
+            System.out.println("Error syncing search index: " + e.getMessage());
+        }
+    }
+
+    // Adds the topic and content of a ticket, unless it has been indexed before
+    public void indexTicket(Ticket ticket) {
+        lock.writeLock().lock();
+        try {
+            int id = ticket.getId();
+            if (indexedTickets.get(id) || deletedDocs.get(id)) {
+                return;
+            }
+            indexedTickets.set(id);
+            addText(id, ticket.getTopic() + " " + ticket.getContent());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds a message to the text of its ticket, unless it has been indexed before
+    public void indexMessage(Message message) {
+        lock.writeLock().lock();
+        try {
+            if (indexedMessages.get(message.getId()) || deletedDocs.get(message.getTicketId())) {
+                return;
+            }
+            indexedMessages.set(message.getId());
+            addText(message.getTicketId(), message.getContent());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Stops returning the given tickets; their postings are dropped on the next save
+    public void removeTickets(Collection<Integer> ticketIds) {
+        lock.writeLock().lock();
+        try {
+            for (int id : ticketIds) {
+                deletedDocs.set(id);
+                if (liveDocs.get(id)) {
+                    liveDocs.clear(id);
+                    docCount--;
+                    totalLength -= docLengths[id];
+                    docLengths[id] = 0;
+                }
+            }
+            changes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void ticketInserted(Ticket ticket) {
+        indexTicket(ticket);
+    }
+
+    @Override
+    public void messageInserted(Message message) {
+        indexMessage(message);
+    }
+
+    @Override
+    public void ticketsArchived(List<Integer> ticketIds) {
+        removeTickets(ticketIds);
+    }
+
+    // Both tables restart their IDs at 1, so nothing indexed under the old IDs can be kept. The text
+    // of a ticket includes its messages, so after the messages are cleared the tickets are read again.
+    @Override
+    public void tableCleared(String tableName) {
+        boolean tickets = tableName.equalsIgnoreCase("Tickets");
+        if (!tickets && !tableName.equalsIgnoreCase("Messages")) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            dictionary.clear();
+            docLengths = new int[1024];
+            liveDocs.clear();
+            deletedDocs.clear();
+            indexedTickets.clear();
+            indexedMessages.clear();
+            ticketWatermark = 0;
+            messageWatermark = 0;
+            docCount = 0;
+            totalLength = 0;
+            changes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!tickets) {
+            try {
+                refresh();
+            } catch (SQLException e) {
+                System.out.println("Error re-reading tickets for the search index: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Returns the tickets matching any word of the query, best match first, at most limit of them.
+     */
+    public List<Hit> search(String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1.");
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(SearchTokenizer.tokenize(query))) {
+                Postings postings = dictionary.get(term);
+                if (postings != null) {
+                    lists.add(postings);
+                }
+            }
+            if (lists.isEmpty() || docCount == 0) {
+                return new ArrayList<>();
+            }
+
+            int terms = lists.size();
+            double averageLength = (double) totalLength / docCount;
+            double[] idf = new double[terms];
+            for (int i = 0; i < terms; i++) {
+                int df = lists.get(i).size;
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+
+            // Lowest score (then highest ID) on top, so it is the one replaced by a better hit
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1,
+                    Comparator.comparingDouble(Hit::getScore).thenComparing(Hit::getTicketId, Comparator.reverseOrder()));
+            int[] cursors = new int[terms];
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (int i = 0; i < terms; i++) {
+                    Postings postings = lists.get(i);
+                    if (cursors[i] < postings.size) {
+                        doc = Math.min(doc, postings.docs[cursors[i]]);
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                double score = 0;
+                double lengthNorm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                for (int i = 0; i < terms; i++) {
+                    Postings postings = lists.get(i);
+                    if (cursors[i] < postings.size && postings.docs[cursors[i]] == doc) {
+                        int tf = postings.freqs[cursors[i]++];
+                        score += idf[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                    }
+                }
+                if (deletedDocs.get(doc)) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(new Hit(doc, score));
+                } else if (score > best.peek().getScore()) {
+                    best.poll();
+                    best.add(new Hit(doc, score));
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(best.comparator().reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tickets that have searchable text
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Distinct terms in the dictionary, including those only used by removed tickets
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Stops following the database and saves the segment if the index was opened from one
+    @Override
+    public void close() throws IOException {
+        DatabaseUtil.removeChangeListener(this);
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        if (segmentPath != null) {
+            save(segmentPath);
+        }
+    }
+
+    /*
+     * Writes the index to path, replacing the file in one step so a crash never leaves half a segment.
+     * Layout: magic, version, the ticket and message watermarks with the IDs indexed above the
+     * rescan window below them,
+     * the live tickets with their lengths, then per term its UTF-8 bytes and its postings (ID gaps
+     * and frequencies), all as varints.
+     */
+    public void save(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            savedChanges = changes;
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeByte(SEGMENT_VERSION);
+            writeWatermark(out, ticketWatermark, indexedTickets);
+            writeWatermark(out, messageWatermark, indexedMessages);
+
+            writeVarInt(out, docCount);
+            int previous = 0;
+            for (int doc = liveDocs.nextSetBit(0); doc >= 0; doc = liveDocs.nextSetBit(doc + 1)) {
+                writeVarInt(out, doc - previous);
+                writeVarInt(out, docLengths[doc]);
+                previous = doc;
+            }
+
+            // Terms only used by removed tickets are left out
+            List<Map.Entry<String, Postings>> terms = new ArrayList<>();
+            List<Integer> liveCounts = new ArrayList<>();
+            for (Map.Entry<String, Postings> entry : dictionary.entrySet()) {
+                int live = entry.getValue().countLive(deletedDocs);
+                if (live > 0) {
+                    terms.add(entry);
+                    liveCounts.add(live);
+                }
+            }
+            writeVarInt(out, terms.size());
+            for (int t = 0; t < terms.size(); t++) {
+                byte[] term = terms.get(t).getKey().getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, term.length);
+                out.write(term);
+                Postings postings = terms.get(t).getValue();
+                writeVarInt(out, liveCounts.get(t));
+                previous = 0;
+                for (int i = 0; i < postings.size; i++) {
+                    if (!deletedDocs.get(postings.docs[i])) {
+                        writeVarInt(out, postings.docs[i] - previous);
+                        writeVarInt(out, postings.freqs[i]);
+                        previous = postings.docs[i];
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Reads a segment written by save(); the index is not connected to the database
+    public static TicketSearchIndex load(Path path) throws IOException {
+        TicketSearchIndex index = new TicketSearchIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readByte() != SEGMENT_VERSION) {
+                throw new IOException("Not a search index segment of version " + SEGMENT_VERSION + ".");
+            }
+            index.ticketWatermark = readWatermark(in, index.indexedTickets);
+            index.messageWatermark = readWatermark(in, index.indexedMessages);
+
+            int docs = readVarInt(in);
+            int doc = 0;
+            for (int i = 0; i < docs; i++) {
+                doc += readVarInt(in);
+                index.ensureDocCapacity(doc);
+                index.docLengths[doc] = readVarInt(in);
+                index.liveDocs.set(doc);
+                index.totalLength += index.docLengths[doc];
+            }
+            index.docCount = docs;
+
+            int terms = readVarInt(in);
+            for (int t = 0; t < terms; t++) {
+                byte[] term = new byte[readVarInt(in)];
+                in.readFully(term);
+                int size = readVarInt(in);
+                Postings postings = new Postings(size);
+                doc = 0;
+                for (int i = 0; i < size; i++) {
+                    doc += readVarInt(in);
+                    postings.docs[i] = doc;
+                    postings.freqs[i] = readVarInt(in);
+                }
+                postings.size = size;
+                index.dictionary.put(new String(term, StandardCharsets.UTF_8), postings);
+            }
+        }
+        return index;
+    }
+
+    // Adds the terms of text to the postings of a ticket; called with the write lock held
+    private void addText(int doc, String text) {
+        List<String> terms = SearchTokenizer.tokenize(text);
+        if (terms.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            dictionary.computeIfAbsent(entry.getKey(), term -> new Postings(4)).add(doc, entry.getValue());
+        }
+        ensureDocCapacity(doc);
+        if (!liveDocs.get(doc)) {
+            liveDocs.set(doc);
+            docCount++;
+        }
+        docLengths[doc] += terms.size();
+        totalLength += terms.size();
+        changes++;
+    }
+
+    // The ID after which refresh() reads, given a watermark
+    private static int rescanFrom(int watermark) {
+        return Math.max(0, watermark - RESCAN_WINDOW);
+    }
+
+    private void ensureDocCapacity(int doc) {
+        if (doc >= docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, Math.max(docLengths.length * 2, doc + 1));
+        }
+    }
+
+    // Only the IDs that refresh() reads again are needed to skip rows already indexed
+    private static void writeWatermark(DataOutputStream out, int watermark, BitSet indexed) throws IOException {
+        writeVarInt(out, watermark);
+        int from = rescanFrom(watermark) + 1;
+        long[] words = indexed.get(from, Math.max(from, indexed.length())).toLongArray();
+        writeVarInt(out, words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private static int readWatermark(DataInputStream in, BitSet indexed) throws IOException {
+        int watermark = readVarInt(in);
+        long[] words = new long[readVarInt(in)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        BitSet rescanned = BitSet.valueOf(words);
+        int from = rescanFrom(watermark) + 1;
+        for (int id = rescanned.nextSetBit(0); id >= 0; id = rescanned.nextSetBit(id + 1)) {
+            indexed.set(from + id);
+        }
+        return watermark;
+    }
+
+    // Seven bits per byte, high bit set on all but the last byte; small numbers take one byte
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in search index segment.");
+    }
+
+    /*
+     * A ticket that matched a search and its BM25 score.
+     */
+    public static final class Hit {
+        private final int ticketId;
+        private final double score;
+
+        Hit(int ticketId, double score) {
+            this.ticketId = ticketId;
+            this.score = score;
+        }
+
+        public int getTicketId() {
+            return ticketId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "Hit[ticketId=" + ticketId + ", score=" + score + "]";
+        }
+    }
+
+    /*
+     * The tickets containing one term, in ascending ID order, with the term's frequency in each.
+     * New tickets have the highest IDs, so adding is almost always an append.
+     */
+    private static final class Postings {
+        private int[] docs;
+        private int[] freqs;
+        private int size;
+
+        private Postings(int capacity) {
+            docs = new int[Math.max(capacity, 1)];
+            freqs = new int[docs.length];
+        }
+
+        private void add(int doc, int freq) {
+            int index = size > 0 && docs[size - 1] < doc ? -(size + 1) : Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) {
+                freqs[index] += freq;
+                return;
+            }
+            index = -(index + 1);
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            System.arraycopy(freqs, index, freqs, index + 1, size - index);
+            docs[index] = doc;
+            freqs[index] = freq;
+            size++;
+        }
+
+        private int countLive(BitSet deleted) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(docs[i])) {
+                    live++;
+                }
+            }
+            return live;
+        }
+    }
+}
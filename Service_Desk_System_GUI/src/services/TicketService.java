@@ -6,9 +6,16 @@ package services;
 
 import service.desk.system.Ticket;
 import util.DatabaseUtil;
+import util.MetricsRegistry;
+import util.OptimisticLockException;
+import util.TicketFilter;
+import util.TicketPageKey;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import service.desk.system.Customer;
 import service.desk.system.Message;
@@ -24,45 +31,177 @@ import service.desk.system.SupportStaffMember;
  * as well as managing ticket messages.
  */
 public class TicketService {
+    // Attempts of a status or agent change when other users keep updating the same ticket
+    private static final int UPDATE_CONFLICT_RETRIES = 3;
+    // Returned by addTicketToNextAgent when there is no agent to assign the ticket to
+    public static final int NO_AGENT = -2;
+    // Times every public method as "service.TicketService.<method>" and counts completed changes
+    private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+    private final TicketAssignmentEngine assignmentEngine;
+    // Null until the first search when the default index is used
+    private TicketSearchIndex searchIndex;
+
+    // Uses the assignment engine shared by the whole process
+    public TicketService() {
+        this(TicketAssignmentEngine.getDefault());
+    }
+
+    // Creates the service with a specific assignment engine, e.g. one using weighted round-robin
+    public TicketService(TicketAssignmentEngine assignmentEngine) {
+        this(assignmentEngine, null);
+    }
+
+    // Creates the service with a specific search index; null opens TicketSearchIndex.getDefault() on the first search
+    public TicketService(TicketAssignmentEngine assignmentEngine, TicketSearchIndex searchIndex) {
+        this.assignmentEngine = assignmentEngine;
+        this.searchIndex = searchIndex;
+    }
 
     /*
-     * Adds a new ticket to the database.
+     * Returns the engine that picks agents for new tickets and tracks their open ticket counts.
      */
-    public void addTicket(Ticket ticket) {
+    public TicketAssignmentEngine getAssignmentEngine() {
+        return assignmentEngine;
+    }
+
+    /*
+     * Adds a new ticket to the database and returns the ID the database generated for it,
+     * or -1 if the ticket could not be added.
+     */
+    public int addTicket(Ticket ticket) {
+        long start = System.nanoTime();
         try {
-            DatabaseUtil.insertTicket(ticket);
-            System.out.println("Ticket added successfully.");
+            int ticketId = DatabaseUtil.insertTicket(ticket);
+            if (ticket.getAssignedAgent() != null && ticket.getStatus() == Ticket.Status.OPEN) {
+                assignmentEngine.ticketOpened(ticket.getAssignedAgent().getId());
+            }
+            metrics.increment("service.tickets.added");
+            return ticketId;
         } catch (SQLException e) {
             System.out.println("Error adding ticket: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.addTicket", start);
         }
+        return -1;
+    }
+
+    /*
+     * Assigns a new ticket to the agent picked by the assignment engine and adds it to the database.
+     * The agent's open ticket count goes up when the agent is picked, so tickets created at the same
+     * time are spread over the agents. Returns the generated ID, NO_AGENT if no agent is registered,
+     * or -1 if the ticket could not be added.
+     */
+    public int addTicketToNextAgent(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            SupportStaffMember agent = assignmentEngine.assignAgent();
+            if (agent == null) {
+                return NO_AGENT;
+            }
+            ticket.setAssignedAgent(agent);
+            try {
+                int ticketId = DatabaseUtil.insertTicket(ticket);
+                metrics.increment("service.tickets.added");
+                return ticketId;
+            } catch (SQLException e) {
+                assignmentEngine.ticketClosed(agent.getId());
+                System.out.println("Error adding ticket: " + e.getMessage());
+            }
+        } finally {
+            metrics.recordSince("service.TicketService.addTicketToNextAgent", start);
+        }
+        return -1;
     }
 
     /*
      * Retrieves a ticket by its ID from the database.
      */
     public Ticket getTicketById(int id) {
-        return getAllTickets().stream()
-                .filter(ticket -> ticket.getId() == id)
-                .findFirst()
-                .orElse(null);
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getTicketById(id);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving ticket: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getTicketById", start);
+        }
+        return null;
     }
 
     /*
      * Retrieves all tickets from the database.
      */
     public List<Ticket> getAllTickets() {
+        long start = System.nanoTime();
         try {
-            List<Ticket> tickets = DatabaseUtil.getAllTickets();
-            if (tickets.isEmpty()) {
-                System.out.println("No tickets found.");
-            }
-            return tickets;
+            return DatabaseUtil.getAllTickets();
         } catch (SQLException e) {
             System.out.println("Error retrieving tickets: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getAllTickets", start);
         }
         return List.of(); // Return an empty list instead of null
     }
 
+    /*
+     * Retrieves one page of tickets matching the filter, ordered by priority (highest first) and ID.
+     * Pass null as afterKey for the first page, then TicketPageKey.after(last ticket) for the next.
+     */
+    public List<Ticket> findTickets(TicketFilter filter, TicketPageKey afterKey, int limit) {
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.findTickets(filter, afterKey, limit);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving tickets for " + filter + ": " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.findTickets", start);
+        }
+        return new ArrayList<>();
+    }
+
+    /*
+     * Searches the topic, content and messages of all tickets and returns at most limit of them,
+     * best match first. Tickets that are no longer in the Tickets table are dropped from the index.
+     */
+    public List<Ticket> searchTickets(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            TicketSearchIndex index = getSearchIndex();
+            List<Integer> ids = new ArrayList<>();
+            for (TicketSearchIndex.Hit hit : index.search(query, limit)) {
+                ids.add(hit.getTicketId());
+            }
+            Map<Integer, Ticket> found = DatabaseUtil.getTicketsByIds(ids);
+            List<Ticket> tickets = new ArrayList<>();
+            List<Integer> missing = new ArrayList<>();
+            for (int id : ids) {
+                Ticket ticket = found.get(id);
+                if (ticket != null) {
+                    tickets.add(ticket);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                index.removeTickets(missing);
+            }
+            return tickets;
+        } catch (SQLException e) {
+            System.out.println("Error searching tickets: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.searchTickets", start);
+        }
+        return new ArrayList<>();
+    }
+
+    private synchronized TicketSearchIndex getSearchIndex() throws SQLException {
+        if (searchIndex == null) {
+            searchIndex = TicketSearchIndex.getDefault();
+        }
+        return searchIndex;
+    }
+
     /*
      * Retrieves all open tickets from the database.
      */
@@ -74,74 +213,199 @@ public class TicketService {
 
     /*
      * Resolves a ticket by setting its status to CLOSED in the database.
+     * Only the status column is written. Returns false if the ticket was not found or could not be updated.
      */
-    public void resolveTicket(int id) {
-        Ticket ticket = getTicketById(id);
-        if (ticket != null) {
-            ticket.setStatus(Ticket.Status.CLOSED);
+    public boolean resolveTicket(int id) {
+        long start = System.nanoTime();
+        try {
+            return updateTicket(id, ticket -> {
+                boolean wasOpen = ticket.getStatus() == Ticket.Status.OPEN;
+                DatabaseUtil.updateTicketStatus(ticket, Ticket.Status.CLOSED);
+                if (wasOpen && ticket.getAssignedAgent() != null) {
+                    assignmentEngine.ticketClosed(ticket.getAssignedAgent().getId());
+                }
+                metrics.increment("service.tickets.resolved");
+            });
+        } finally {
+            metrics.recordSince("service.TicketService.resolveTicket", start);
+        }
+    }
+
+    /*
+     * Assigns a ticket to a different agent.
+     * Only the agent column is written. Returns false if the ticket was not found or could not be updated.
+     */
+    public boolean reassignTicket(int id, SupportStaffMember newAgent) {
+        long start = System.nanoTime();
+        try {
+            return updateTicket(id, ticket -> reassign(ticket, newAgent));
+        } finally {
+            metrics.recordSince("service.TicketService.reassignTicket", start);
+        }
+    }
+
+    /*
+     * Sets the priority (1 to 3) of a ticket.
+     * Only the priority column is written. Returns false if the ticket was not found or could not be updated.
+     */
+    public boolean setTicketPriority(int id, int priority) {
+        long start = System.nanoTime();
+        try {
+            return updateTicket(id, ticket -> {
+                DatabaseUtil.updateTicketPriority(ticket, priority);
+                metrics.increment("service.tickets.prioritised");
+            });
+        } finally {
+            metrics.recordSince("service.TicketService.setTicketPriority", start);
+        }
+    }
+
+    /*
+     * Reads the ticket and applies the update to it. If another user changes the ticket in between,
+     * the ticket is read again and the update retried, up to UPDATE_CONFLICT_RETRIES times.
+     */
+    private boolean updateTicket(int id, TicketUpdate update) {
+        for (int attempt = 1; ; attempt++) {
+            Ticket ticket = getTicketById(id);
+            if (ticket == null) {
+                System.out.println("Ticket ID " + id + " not found.");
+                return false;
+            }
             try {
-                DatabaseUtil.updateTicket(ticket);
-                System.out.println("Ticket ID " + id + " resolved.");
+                update.apply(ticket);
+                return true;
+            } catch (OptimisticLockException e) {
+                if (attempt >= UPDATE_CONFLICT_RETRIES) {
+                    System.out.println("Error updating ticket: " + e.getMessage());
+                    return false;
+                }
             } catch (SQLException e) {
                 System.out.println("Error updating ticket: " + e.getMessage());
+                return false;
             }
-        } else {
-            System.out.println("Ticket ID " + id + " not found.");
         }
     }
 
+    // A change to a ticket that was just read, which may fail on a conflicting update
+    private interface TicketUpdate {
+        void apply(Ticket ticket) throws SQLException;
+    }
+
+    // Writes the new agent and keeps the assignment engine's open ticket counts in step
+    private void reassign(Ticket ticket, SupportStaffMember newAgent) throws SQLException {
+        SupportStaffMember previousAgent = ticket.getAssignedAgent();
+        DatabaseUtil.updateTicketAgent(ticket, newAgent);
+        if (ticket.getStatus() == Ticket.Status.OPEN) {
+            if (previousAgent != null && newAgent != null) {
+                assignmentEngine.ticketReassigned(previousAgent.getId(), newAgent.getId());
+            } else if (previousAgent != null) {
+                assignmentEngine.ticketClosed(previousAgent.getId());
+            } else if (newAgent != null) {
+                assignmentEngine.ticketOpened(newAgent.getId());
+            }
+        }
+        metrics.increment("service.tickets.reassigned");
+    }
+
     /*
-     * Adds a message to a ticket.
+     * Adds a message to a ticket and stores it. Returns false if the ticket was not found or the
+     * message could not be stored.
      */
-    public void addMessageToTicket(int ticketId, Message message) {
+    public boolean addMessageToTicket(int ticketId, Message message) {
         Ticket ticket = getTicketById(ticketId);
-        if (ticket != null) {
-            ticket.addMessage(message);
-            try {
-                DatabaseUtil.updateTicket(ticket);
-                System.out.println("Message added to ticket ID " + ticketId);
-            } catch (SQLException e) {
-                System.out.println("Error updating ticket: " + e.getMessage());
-            }
-        } else {
+        if (ticket == null) {
             System.out.println("Ticket ID " + ticketId + " not found.");
+            return false;
         }
+        message.setTicketId(ticketId);
+        long start = System.nanoTime();
+        try {
+            DatabaseUtil.insertMessage(message);
+            ticket.addMessage(message);
+            metrics.increment("service.messages.added");
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error adding message: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.addMessageToTicket", start);
+        }
+        return false;
     }
 
     /*
-     * Retrieves all messages associated with a specific ticket.
+     * Retrieves all messages associated with a specific ticket, oldest first,
+     * or null if they could not be read.
      */
     public List<Message> getMessagesForTicket(int ticketId) {
-        Ticket ticket = getTicketById(ticketId);
-        return ticket != null ? ticket.getMessages() : null;
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getMessagesForTicket(ticketId);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving messages for ticket ID " + ticketId + ": " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getMessagesForTicket", start);
+        }
+        return null;
     }
 
     /*
-     * Finds all tickets associated with a specific customer.
+     * Finds all open tickets associated with a specific customer.
      */
     public List<Ticket> findTicketsByCustomer(Customer customer) {
-        return getAllTickets().stream()
-                .filter(ticket -> ticket.getCustomer() != null && ticket.getCustomer().getId() == customer.getId())
-                .peek(ticket -> System.out.println("Searching for tickets for customer ID: " + customer.getId()))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getOpenTicketsByCustomer(customer.getId());
+        } catch (SQLException e) {
+            System.out.println("Error retrieving tickets for customer ID " + customer.getId() + ": " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.findTicketsByCustomer", start);
+        }
+        return new ArrayList<>();
     }
 
     /*
-     * Retrieves tickets assigned to a specific agent.
+     * Retrieves open tickets assigned to a specific agent.
      */
     public List<Ticket> getTicketsAssignedToAgent(SupportStaffMember agent) {
-        return getAllTickets().stream()
-                .filter(ticket -> ticket.getAssignedAgent() != null && ticket.getAssignedAgent().getId() == agent.getId())
-                .peek(ticket -> System.out.println("Searching for tickets for agent: " + agent.getUsername()))
-                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getOpenTicketsByAgent(agent.getId());
+        } catch (SQLException e) {
+            System.out.println("Error retrieving tickets for agent " + agent.getUsername() + ": " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getTicketsAssignedToAgent", start);
+        }
+        return new ArrayList<>();
     }
 
     /*
-     * Counts the number of tickets assigned to a specific agent.
+     * Counts the number of open tickets assigned to a specific agent.
      */
     public int getAssignedTicketCount(SupportStaffMember agent) {
-        return (int) getAllTickets().stream()
-                .filter(ticket -> ticket.getAssignedAgent() != null && ticket.getAssignedAgent().getId() == agent.getId())
-                .count();
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getOpenTicketCount(agent.getId());
+        } catch (SQLException e) {
+            System.out.println("Error counting tickets for agent " + agent.getUsername() + ": " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getAssignedTicketCount", start);
+        }
+        return 0;
+    }
+
+    /*
+     * Counts the open tickets of every agent in one query, keyed by agent ID.
+     * Agents without open tickets are not included.
+     */
+    public Map<Integer, Integer> getAssignedTicketCounts() {
+        long start = System.nanoTime();
+        try {
+            return DatabaseUtil.getOpenTicketCountsByAgent();
+        } catch (SQLException e) {
+            System.out.println("Error counting tickets per agent: " + e.getMessage());
+        } finally {
+            metrics.recordSince("service.TicketService.getAssignedTicketCounts", start);
+        }
+        return new HashMap<>();
     }
-}
\ No newline at end of file
+}
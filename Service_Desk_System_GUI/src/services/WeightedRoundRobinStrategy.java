@@ -0,0 +1,62 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Hands out tickets in turn, giving each agent a share proportional to its weight.
+ * Uses smooth weighted round-robin, so an agent with weight 3 next to one with weight 1
+ * gets A, A, B, A rather than A, A, A, B. Agents without a configured weight count as 1.
+ * Ties go to the agent with the lowest ID.
+ */
+public class WeightedRoundRobinStrategy implements AssignmentStrategy {
+    private final Map<Integer, Integer> weights = new HashMap<>();
+    private final Map<Integer, Integer> currentWeights = new HashMap<>();
+
+    // Sets the relative share of tickets an agent should receive; zero stops assignments to them
+    public synchronized void setWeight(int agentId, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative.");
+        }
+        weights.put(agentId, weight);
+    }
+
+    @Override
+    public synchronized TicketAssignmentEngine.AgentLoad select(NavigableSet<TicketAssignmentEngine.AgentLoad> loads) {
+        TicketAssignmentEngine.AgentLoad selected = null;
+        int selectedWeight = 0;
+        int totalWeight = 0;
+
+        for (TicketAssignmentEngine.AgentLoad load : loads) {
+            int agentId = load.getAgentId();
+            int weight = weights.getOrDefault(agentId, 1);
+            if (weight == 0) {
+                continue;
+            }
+            int current = currentWeights.getOrDefault(agentId, 0) + weight;
+            currentWeights.put(agentId, current);
+            totalWeight += weight;
+
+            if (selected == null || current > selectedWeight
+                    || (current == selectedWeight && agentId < selected.getAgentId())) {
+                selected = load;
+                selectedWeight = current;
+            }
+        }
+
+        if (selected != null) {
+            currentWeights.put(selected.getAgentId(), selectedWeight - totalWeight);
+        }
+        return selected;
+    }
+}
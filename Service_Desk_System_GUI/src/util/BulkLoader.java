@@ -0,0 +1,421 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Command-line tool that loads the text files of the legacy service desk into the database
+ * using the batch insert methods of DatabaseUtil.
+ *
+ * Usage:
+ *   java util.BulkLoader [--batch-size N] [--customers FILE] [--agents FILE] [--tickets FILE]...
+ *
+ * File formats (as written by the legacy desk, see the resources folder):
+ *   customers: id,name,email,password        one customer per line
+ *   agents:    id,username,email,password    one agent per line
+ *   tickets:   "Key: value" blocks ending with EndTicket, with optional Message: sub-blocks.
+ *              The legacy desk appended a new block whenever a ticket changed, so only the
+ *              last block of each TicketID is loaded.
+ *
+ * Files are read as streams, so tickets and messages are held one batch at a time. Memory still
+ * grows with the input: the loader keeps every customer by email and every agent by username so
+ * tickets can refer to them, and loadTickets keeps one map entry per distinct legacy TicketID to
+ * find the last block of each. That is tens of bytes per customer, agent and ticket; size the
+ * heap for that before loading millions of rows.
+ *
+ * Rows that cannot be loaded (malformed lines, unknown customers, missing or too long fields) are
+ * skipped and reported, the first MAX_REPORTED_SKIPS of them one per line, and the load goes on.
+ * Each batch is committed on its own, so if the database itself rejects a batch the load stops
+ * with the earlier batches kept. Loading the same customers and agents again skips them by email
+ * and username, but tickets are not matched up, so clear the Tickets table before loading a
+ * tickets file again.
+ */
+public class BulkLoader {
+    private static final int MAX_REPORTED_SKIPS = 100;
+    // Column sizes of the schema, see SchemaMigrator
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_USERNAME_LENGTH = 50;
+    private static final int MAX_TOPIC_LENGTH = 100;
+    private static final int MAX_CONTENT_LENGTH = 255;
+    private static final int MAX_SENDER_TYPE_LENGTH = 50;
+
+    private final int batchSize;
+    private int skippedRows;
+    private final Map<String, Customer> customersByEmail = new HashMap<>();
+    private final Map<String, SupportStaffMember> agentsByUsername = new HashMap<>();
+
+    public BulkLoader(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) {
+        int batchSize = DatabaseUtil.DEFAULT_BATCH_SIZE;
+        List<Path> customerFiles = new ArrayList<>();
+        List<Path> agentFiles = new ArrayList<>();
+        List<Path> ticketFiles = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                printUsage("Missing value for " + option);
+                return;
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--batch-size":
+                    batchSize = Integer.parseInt(value);
+                    break;
+                case "--customers":
+                    customerFiles.add(Paths.get(value));
+                    break;
+                case "--agents":
+                    agentFiles.add(Paths.get(value));
+                    break;
+                case "--tickets":
+                    ticketFiles.add(Paths.get(value));
+                    break;
+                default:
+                    printUsage("Unknown option " + option);
+                    return;
+            }
+        }
+        if (customerFiles.isEmpty() && agentFiles.isEmpty() && ticketFiles.isEmpty()) {
+            printUsage("Nothing to load.");
+            return;
+        }
+
+        BulkLoader loader = new BulkLoader(batchSize);
+        long start = System.currentTimeMillis();
+        try {
+            loader.loadExistingPeople();
+            for (Path file : customerFiles) {
+                System.out.println("Loaded " + loader.loadCustomers(file) + " customers from " + file);
+            }
+            for (Path file : agentFiles) {
+                System.out.println("Loaded " + loader.loadAgents(file) + " agents from " + file);
+            }
+            for (Path file : ticketFiles) {
+                System.out.println("Loaded " + loader.loadTickets(file) + " tickets from " + file);
+            }
+            if (loader.getSkippedRows() > 0) {
+                System.out.println("Skipped " + loader.getSkippedRows() + " rows that could not be loaded.");
+            }
+            System.out.println("Bulk load finished in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (SQLException | IOException | UncheckedIOException e) {
+            System.err.println("Bulk load failed: " + e.getMessage());
+        } finally {
+            DatabaseUtil.closeConnection();
+        }
+    }
+
+    private static void printUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java util.BulkLoader [--batch-size N] [--customers FILE] [--agents FILE] [--tickets FILE]...");
+    }
+
+    // Reads the people already in the database so tickets can refer to them and duplicates are skipped
+    public void loadExistingPeople() throws SQLException {
+        for (Customer customer : DatabaseUtil.getAllCustomers()) {
+            customersByEmail.put(customer.getEmail(), customer);
+        }
+        for (SupportStaffMember agent : DatabaseUtil.getAllSupportStaff()) {
+            agentsByUsername.put(agent.getUsername(), agent);
+        }
+    }
+
+    // Loads a legacy customers file, skipping emails that are already registered
+    public int loadCustomers(Path file) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Iterator<Customer> customers = new ParsingIterator<Customer>(reader) {
+                @Override
+                protected Customer parse(String line) {
+                    String[] parts = line.split(",", -1);
+                    if (parts.length < 4 || !fits(parts[1], MAX_NAME_LENGTH) || !fits(parts[2], MAX_NAME_LENGTH)
+                            || !fits(parts[3], MAX_NAME_LENGTH)) {
+                        skip("customer " + (parts.length > 2 ? parts[2] : "line") + " in " + file);
+                        return null;
+                    }
+                    if (customersByEmail.containsKey(parts[2])) {
+                        return null;
+                    }
+                    Customer customer = new Customer(0, parts[1], "", parts[2], parts[3]);
+                    customersByEmail.put(customer.getEmail(), customer);
+                    return customer;
+                }
+            };
+            return DatabaseUtil.insertCustomers(customers, batchSize).length;
+        }
+    }
+
+    // Loads a legacy agents file, skipping usernames that are already registered
+    public int loadAgents(Path file) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Iterator<SupportStaffMember> agents = new ParsingIterator<SupportStaffMember>(reader) {
+                @Override
+                protected SupportStaffMember parse(String line) {
+                    String[] parts = line.split(",", -1);
+                    if (parts.length < 4 || !fits(parts[1], MAX_USERNAME_LENGTH) || !fits(parts[2], MAX_NAME_LENGTH)
+                            || !fits(parts[3], MAX_NAME_LENGTH)) {
+                        skip("agent " + (parts.length > 1 ? parts[1] : "line") + " in " + file);
+                        return null;
+                    }
+                    if (agentsByUsername.containsKey(parts[1])) {
+                        return null;
+                    }
+                    SupportStaffMember agent = new SupportStaffMember(0, parts[1], "", parts[1], parts[2], parts[3]);
+                    agentsByUsername.put(agent.getUsername(), agent);
+                    return agent;
+                }
+            };
+            return DatabaseUtil.insertSupportStaff(agents, batchSize).length;
+        }
+    }
+
+    // Loads a legacy tickets file together with the messages of each ticket
+    public int loadTickets(Path file) throws IOException, SQLException {
+        // First pass: find the last block of every legacy ticket ID
+        Map<String, Integer> lastBlockOfTicket = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int blockIndex = 0;
+            for (TicketBlock block = readBlock(reader); block != null; block = readBlock(reader)) {
+                lastBlockOfTicket.put(block.fields.get("TicketID"), blockIndex++);
+            }
+        }
+
+        // Second pass: insert those blocks in batches, then the messages of each batch
+        int loaded = 0;
+        List<Ticket> tickets = new ArrayList<>(batchSize);
+        List<List<Message>> messages = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int blockIndex = 0;
+            for (TicketBlock block = readBlock(reader); block != null; block = readBlock(reader)) {
+                if (lastBlockOfTicket.get(block.fields.get("TicketID")) != blockIndex++) {
+                    continue;
+                }
+                Ticket ticket = toTicket(block);
+                if (ticket == null) {
+                    skip("ticket " + block.fields.get("TicketID") + " with an unknown customer or invalid fields");
+                    continue;
+                }
+                tickets.add(ticket);
+                messages.add(validMessages(block));
+                if (tickets.size() >= batchSize) {
+                    loaded += flushTickets(tickets, messages);
+                    System.out.println("  " + loaded + " tickets loaded...");
+                }
+            }
+        }
+        loaded += flushTickets(tickets, messages);
+        return loaded;
+    }
+
+    // Rows skipped so far because they could not be loaded
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    // The messages of a block that can be inserted; the others are skipped
+    private List<Message> validMessages(TicketBlock block) {
+        List<Message> valid = new ArrayList<>(block.messages.size());
+        for (Message message : block.messages) {
+            try {
+                DatabaseUtil.validateMessage(message);
+                if (!fits(message.getSenderType(), MAX_SENDER_TYPE_LENGTH) || !fits(message.getSenderName(), MAX_NAME_LENGTH)
+                        || !fits(message.getContent(), MAX_CONTENT_LENGTH)) {
+                    throw new SQLException("A field is too long.");
+                }
+                valid.add(message);
+            } catch (SQLException e) {
+                skip("message of ticket " + block.fields.get("TicketID") + ": " + e.getMessage());
+            }
+        }
+        return valid;
+    }
+
+    private void skip(String row) {
+        skippedRows++;
+        if (skippedRows <= MAX_REPORTED_SKIPS) {
+            System.out.println("Skipped " + row);
+        } else if (skippedRows == MAX_REPORTED_SKIPS + 1) {
+            System.out.println("Skipping more rows; only the total is reported from here on.");
+        }
+    }
+
+    // Null fits; required fields are checked separately
+    private static boolean fits(String value, int maxLength) {
+        return value == null || value.length() <= maxLength;
+    }
+
+    // Inserts the collected tickets, then their messages using the generated ticket IDs
+    private int flushTickets(List<Ticket> tickets, List<List<Message>> messages) throws SQLException {
+        if (tickets.isEmpty()) {
+            return 0;
+        }
+        DatabaseUtil.insertTickets(tickets.iterator(), batchSize);
+
+        List<Message> ticketMessages = new ArrayList<>();
+        for (int i = 0; i < tickets.size(); i++) {
+            for (Message message : messages.get(i)) {
+                message.setTicketId(tickets.get(i).getId());
+                ticketMessages.add(message);
+            }
+        }
+        if (!ticketMessages.isEmpty()) {
+            DatabaseUtil.insertMessages(ticketMessages.iterator(), batchSize);
+        }
+
+        int count = tickets.size();
+        tickets.clear();
+        messages.clear();
+        return count;
+    }
+
+    // Builds a ticket from a legacy block, or returns null if the customer is unknown or a field is invalid
+    private Ticket toTicket(TicketBlock block) {
+        Customer customer = customersByEmail.get(block.fields.get("CustomerEmail"));
+        if (customer == null) {
+            return null;
+        }
+        SupportStaffMember agent = agentsByUsername.get(block.fields.get("AgentUsername"));
+        if (!fits(block.fields.get("Topic"), MAX_TOPIC_LENGTH) || !fits(block.fields.get("Issue"), MAX_CONTENT_LENGTH)) {
+            return null;
+        }
+        try {
+            int priority = Integer.parseInt(block.fields.getOrDefault("Priority", "1"));
+            LocalDateTime createdAt = block.fields.containsKey("CreatedAt")
+                    ? LocalDateTime.parse(block.fields.get("CreatedAt"))
+                    : LocalDateTime.now();
+            Ticket ticket = new Ticket(0, customer, agent, block.fields.get("Topic"), block.fields.get("Issue"), createdAt, priority);
+            ticket.setStatus(Ticket.Status.valueOf(block.fields.getOrDefault("Status", "OPEN")));
+            return ticket;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Reads the next "Key: value" block up to EndTicket, or returns null at end of file
+    private static TicketBlock readBlock(BufferedReader reader) throws IOException {
+        TicketBlock block = null;
+        Map<String, String> messageFields = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (block == null) {
+                block = new TicketBlock();
+            }
+            if (line.equals("EndTicket")) {
+                block.addMessage(messageFields);
+                return block;
+            }
+            if (line.equals("Message:")) {
+                block.addMessage(messageFields);
+                messageFields = new HashMap<>();
+                continue;
+            }
+            int separator = line.indexOf(": ");
+            if (separator < 0) {
+                continue;
+            }
+            String key = line.substring(0, separator);
+            String value = line.substring(separator + 2);
+            if (messageFields != null) {
+                messageFields.put(key, value);
+            } else {
+                block.fields.put(key, value);
+            }
+        }
+        if (block != null) {
+            block.addMessage(messageFields);
+        }
+        return block;
+    }
+
+    /*
+     * The fields and messages of one legacy ticket block.
+     */
+    private static final class TicketBlock {
+        private final Map<String, String> fields = new HashMap<>();
+        private final List<Message> messages = new ArrayList<>();
+
+        private void addMessage(Map<String, String> messageFields) {
+            if (messageFields == null || !messageFields.containsKey("Content")) {
+                return;
+            }
+            LocalDateTime timestamp;
+            try {
+                timestamp = LocalDateTime.parse(messageFields.getOrDefault("Timestamp", ""));
+            } catch (DateTimeParseException e) {
+                timestamp = LocalDateTime.now();
+            }
+            messages.add(new Message(0, 0, messageFields.get("SenderType"), messageFields.get("SenderName"),
+                    messageFields.get("Content"), timestamp));
+        }
+    }
+
+    /*
+     * Lazily turns the lines of a reader into objects; parse() returns null to skip a line.
+     */
+    private abstract static class ParsingIterator<T> implements Iterator<T> {
+        private final BufferedReader reader;
+        private T next;
+
+        private ParsingIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        protected abstract T parse(String line);
+
+        @Override
+        public boolean hasNext() {
+            try {
+                String line;
+                while (next == null && (line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        next = parse(line.trim());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * A bounded pool of JDBC connections shared by DatabaseUtil and the service classes.
+ *
+ * Connections are borrowed with borrow() and handed back by calling close() on the returned
+ * connection, so existing try-with-resources blocks return connections instead of closing them.
+ * Idle connections are validated on checkout and evicted in the background once they have been
+ * idle for too long. A thread that already holds a connection gets the same physical connection
+ * back for nested calls, and a thread prefers the connection it used last when taking one from
+ * the idle list. Leases may be closed on another thread than the one that borrowed them; the
+ * connection is then no longer shared with the borrowing thread's later calls.
+ *
+ * Each physical connection keeps an LRU cache of prepared statements keyed by SQL text, so
+ * repeated prepareStatement calls with the same SQL reuse the compiled statement.
+ *
+ * Work that depends on the outcome of an open transaction can be registered with
+ * afterTransaction(); it runs when the transaction is committed or rolled back through any lease
+ * of the connection, including a rollback to a savepoint taken before it was registered.
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+
+    private final String url;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    // The connection each thread holds, cleared by whichever thread closes its last lease
+    private final Map<Thread, PooledConnection> activeConnections = new ConcurrentHashMap<>();
+    private final ThreadLocal<PooledConnection> lastUsedConnection = new ThreadLocal<>();
+    private final ScheduledExecutorService evictor;
+    private int totalConnections;
+    private boolean shutdown;
+
+    // Creates a pool for the given JDBC URL; connections are opened lazily on first borrow
+    public ConnectionPool(String url, int maxSize, int minIdle, long idleTimeoutMillis, long borrowTimeoutMillis) {
+        this(url, maxSize, minIdle, idleTimeoutMillis, borrowTimeoutMillis, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    // statementCacheSize is the number of prepared statements kept per connection; 0 disables caching
+    public ConnectionPool(String url, int maxSize, int minIdle, long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1.");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrows a connection from the pool; close() on the returned connection gives it back
+    public Connection borrow() throws SQLException {
+        Thread thread = Thread.currentThread();
+        PooledConnection active = activeConnections.get(thread);
+        if (active != null) {
+            synchronized (active) {
+                // Nested call on the same thread shares the connection it already holds, unless
+                // its last lease has just been closed on another thread
+                if (active.owner == thread) {
+                    active.holdCount++;
+                    return active.newLease();
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        PooledConnection pooled = checkout();
+        metrics.recordSince("pool.borrow", start);
+        synchronized (pooled) {
+            pooled.holdCount = 1;
+            pooled.owner = thread;
+        }
+        activeConnections.put(thread, pooled);
+        lastUsedConnection.set(pooled);
+        return pooled.newLease();
+    }
+
+    // Takes a validated idle connection, opens a new one, or waits for one to be returned
+    private PooledConnection checkout() throws SQLException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+        while (true) {
+            PooledConnection candidate = null;
+            boolean mayOpen = false;
+
+            synchronized (this) {
+                while (true) {
+                    if (shutdown) {
+                        throw new SQLException("Connection pool has been shut down.");
+                    }
+                    if (!idleConnections.isEmpty()) {
+                        candidate = takeIdle();
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        mayOpen = true;
+                        break;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a database connection (pool size " + maxSize + ").");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    }
+                }
+            }
+
+            if (mayOpen) {
+                try {
+                    return new PooledConnection(DriverManager.getConnection(url));
+                } catch (SQLException e) {
+                    discarded();
+                    throw e;
+                }
+            }
+
+            if (isUsable(candidate)) {
+                return candidate;
+            }
+            candidate.close();
+            discarded();
+        }
+    }
+
+    // Removes the calling thread's previous connection from the idle list if present, otherwise the most recent one
+    private PooledConnection takeIdle() {
+        PooledConnection preferred = lastUsedConnection.get();
+        if (preferred != null && idleConnections.remove(preferred)) {
+            return preferred;
+        }
+        return idleConnections.pollFirst();
+    }
+
+    // Validates a connection before handing it out
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return !pooled.physical.isClosed() && pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Runs onCommit once the transaction open on the leased connection is committed, or onRollback
+    // (which may be null) if it is rolled back instead, including when the connection is returned
+    // with the transaction still open
+    public static void afterTransaction(Connection lease, Runnable onCommit, Runnable onRollback) throws SQLException {
+        if (!Proxy.isProxyClass(lease.getClass()) || !(Proxy.getInvocationHandler(lease) instanceof LeaseHandler)) {
+            throw new SQLException("Connection was not borrowed from a connection pool.");
+        }
+        LeaseHandler handler = (LeaseHandler) Proxy.getInvocationHandler(lease);
+        if (handler.closed) {
+            throw new SQLException("Connection has already been returned to the pool.");
+        }
+        handler.pooled.addCallback(new TransactionCallback(onCommit, onRollback));
+    }
+
+    // Called when a lease is closed, possibly on another thread than the borrower's; the
+    // connection goes back when the last lease of the borrowing thread is closed
+    private void release(PooledConnection pooled) {
+        synchronized (pooled) {
+            if (--pooled.holdCount > 0) {
+                return;
+            }
+            activeConnections.remove(pooled.owner, pooled);
+            pooled.owner = null;
+        }
+        StatementMetrics.connectionReleased(pooled.physical);
+
+        boolean reusable = resetState(pooled);
+        pooled.transactionEnded(false);
+        synchronized (this) {
+            if (reusable && !shutdown) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idleConnections.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        pooled.close();
+        discarded();
+    }
+
+    // Rolls back any unfinished transaction so the next borrower starts clean
+    private boolean resetState(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Discarding pooled connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Frees a slot after a connection has been closed or failed to open
+    private synchronized void discarded() {
+        totalConnections--;
+        notifyAll();
+    }
+
+    // Closes connections that have been idle longer than the idle timeout, keeping minIdle open
+    private void evictIdleConnections() {
+        Deque<PooledConnection> expired = new ArrayDeque<>();
+        synchronized (this) {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            Iterator<PooledConnection> it = idleConnections.descendingIterator();
+            while (it.hasNext() && idleConnections.size() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastReturnedAt < cutoff) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+            totalConnections -= expired.size();
+            if (!expired.isEmpty()) {
+                notifyAll();
+            }
+        }
+        expired.forEach(PooledConnection::close);
+    }
+
+    // Closes all idle connections; connections still in use are closed when they are returned
+    public void shutdown() {
+        Deque<PooledConnection> toClose;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            toClose = new ArrayDeque<>(idleConnections);
+            totalConnections -= idleConnections.size();
+            idleConnections.clear();
+            notifyAll();
+        }
+        evictor.shutdownNow();
+        toClose.forEach(PooledConnection::close);
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    // Number of open physical connections, idle or in use
+    public synchronized int getTotalConnections() {
+        return totalConnections;
+    }
+
+    // Number of open connections currently waiting in the pool
+    public synchronized int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Hit, miss and eviction counts of the statement caches of all connections in this pool
+    public StatementCache.Stats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    /*
+     * A physical connection owned by the pool. holdCount is only touched by the thread
+     * that currently has the connection checked out.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        // Guarded by this PooledConnection: the leases still open and the thread they were borrowed on
+        private int holdCount;
+        private Thread owner;
+        private long lastReturnedAt;
+        // Guarded by this PooledConnection: callbacks waiting for the open transaction to end, and
+        // how many of them had been added when each savepoint was set
+        private final List<TransactionCallback> pendingCallbacks = new ArrayList<>();
+        private final Map<Savepoint, Integer> savepointMarks = new IdentityHashMap<>();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, statementCacheSize, statementCacheStats);
+        }
+
+        // Closes the cached statements and the physical connection
+        private void close() {
+            statementCache.close();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.out.println("Failed to close pooled connection: " + e.getMessage());
+            }
+        }
+
+        private synchronized void addCallback(TransactionCallback callback) {
+            pendingCallbacks.add(callback);
+        }
+
+        private synchronized void markSavepoint(Savepoint savepoint) {
+            savepointMarks.put(savepoint, pendingCallbacks.size());
+        }
+
+        private synchronized void releaseSavepoint(Savepoint savepoint) {
+            savepointMarks.remove(savepoint);
+        }
+
+        // Rolls back the callbacks added after the savepoint; the earlier ones keep waiting
+        private void rolledBackTo(Savepoint savepoint) {
+            List<TransactionCallback> undone;
+            synchronized (this) {
+                Integer mark = savepointMarks.get(savepoint);
+                if (mark == null || mark >= pendingCallbacks.size()) {
+                    return;
+                }
+                List<TransactionCallback> added = pendingCallbacks.subList(mark, pendingCallbacks.size());
+                undone = new ArrayList<>(added);
+                added.clear();
+            }
+            undone.forEach(callback -> callback.run(false));
+        }
+
+        // Runs all waiting callbacks once the transaction has been committed or rolled back
+        private void transactionEnded(boolean committed) {
+            List<TransactionCallback> ended;
+            synchronized (this) {
+                savepointMarks.clear();
+                if (pendingCallbacks.isEmpty()) {
+                    return;
+                }
+                ended = new ArrayList<>(pendingCallbacks);
+                pendingCallbacks.clear();
+            }
+            ended.forEach(callback -> callback.run(committed));
+        }
+
+        // Wraps the physical connection so that close() returns it to the pool exactly once
+        private Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /*
+     * Handles calls made on a borrowed connection.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean closed;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            if (method.getName().equals("prepareStatement") && isCacheable(method)) {
+                int autoGeneratedKeys = args.length > 1 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return timed(method, pooled.statementCache.prepare((String) args[0], autoGeneratedKeys), (String) args[0]);
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            trackTransaction(method, args, result);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return timed(method, (Statement) result, sql);
+            }
+            return result;
+        }
+
+        // Follows the transaction boundaries set through this lease for the waiting callbacks
+        private void trackTransaction(Method method, Object[] args, Object result) {
+            switch (method.getName()) {
+                case "setSavepoint":
+                    pooled.markSavepoint((Savepoint) result);
+                    break;
+                case "releaseSavepoint":
+                    pooled.releaseSavepoint((Savepoint) args[0]);
+                    break;
+                case "commit":
+                    pooled.transactionEnded(true);
+                    break;
+                case "rollback":
+                    if (args == null) {
+                        pooled.transactionEnded(false);
+                    } else {
+                        pooled.rolledBackTo((Savepoint) args[0]);
+                    }
+                    break;
+                case "setAutoCommit":
+                    // Switching auto-commit back on commits the open transaction
+                    if ((Boolean) args[0]) {
+                        pooled.transactionEnded(true);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Wraps a new statement so its executions are timed in the metrics registry and slow ones logged
+        private Object timed(Method method, Statement statement, String sql) {
+            SlowQueryLog slowLog = SlowQueryLog.getDefault();
+            if (!metrics.isEnabled() && !slowLog.isEnabled()) {
+                return statement;
+            }
+            return StatementMetrics.wrap(method.getReturnType(), statement, sql, metrics, slowLog.isEnabled() ? slowLog : null);
+        }
+
+        // Only prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the cache
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+
+    /*
+     * Work registered with afterTransaction(), run once the transaction it belongs to has ended.
+     */
+    private static final class TransactionCallback {
+        private final Runnable onCommit;
+        private final Runnable onRollback;
+
+        private TransactionCallback(Runnable onCommit, Runnable onRollback) {
+            this.onCommit = onCommit;
+            this.onRollback = onRollback;
+        }
+
+        // A failing callback does not affect the transaction or the other callbacks
+        private void run(boolean committed) {
+            Runnable action = committed ? onCommit : onRollback;
+            if (action == null) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.out.println("Error running transaction callback: " + e.getMessage());
+            }
+        }
+    }
+}
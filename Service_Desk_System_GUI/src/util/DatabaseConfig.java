@@ -0,0 +1,161 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Where and how DatabaseUtil connects to Derby.
+ *
+ * In embedded mode the database is opened inside this JVM, so only one process can use it at a time.
+ * In network mode connections go through the Derby client driver (lib/derbyclient.jar) to a
+ * Derby Network Server, so several desktop clients and the HTTP server can share one database.
+ * If no server is listening on a local host and port, one is started inside this JVM when
+ * derbynet.jar is on the classpath.
+ *
+ * Settings come from servicedesk.properties in the working directory (or the file named by
+ * -Dservicedesk.config); system properties with the same keys take precedence:
+ *   servicedesk.db.mode         embedded (default) or network
+ *   servicedesk.db.name         database name (default servicedesksystem_ebd)
+ *   servicedesk.db.host         network server host (default localhost)
+ *   servicedesk.db.port         network server port (default 1527)
+ *   servicedesk.db.startServer  start a local network server if none is running (default true)
+ *   servicedesk.db.poolSize     maximum pooled connections (default 10)
+ *   servicedesk.db.url          a complete JDBC URL; overrides mode, name, host and port
+ */
+public final class DatabaseConfig {
+    public static final String DEFAULT_DATABASE_NAME = "servicedesksystem_ebd";
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 1527;
+    public static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final String CONFIG_FILE_PROPERTY = "servicedesk.config";
+    private static final String DEFAULT_CONFIG_FILE = "servicedesk.properties";
+    private static final String CLIENT_URL_PREFIX = "jdbc:derby://";
+
+    public enum Mode {
+        EMBEDDED, NETWORK
+    }
+
+    private final Mode mode;
+    private final String url;
+    private final String host;
+    private final int port;
+    private final boolean startServer;
+    private final int poolSize;
+
+    private DatabaseConfig(Mode mode, String url, String host, int port, boolean startServer, int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1.");
+        }
+        this.mode = mode;
+        this.url = url;
+        this.host = host;
+        this.port = port;
+        this.startServer = startServer;
+        this.poolSize = poolSize;
+    }
+
+    // An embedded database opened inside this JVM
+    public static DatabaseConfig embedded(String databaseName) {
+        return new DatabaseConfig(Mode.EMBEDDED, "jdbc:derby:" + databaseName + ";create=true",
+                null, 0, false, DEFAULT_POOL_SIZE);
+    }
+
+    // A database served by the Derby Network Server at host:port
+    public static DatabaseConfig network(String host, int port, String databaseName, boolean startServer) {
+        return new DatabaseConfig(Mode.NETWORK, CLIENT_URL_PREFIX + host + ":" + port + "/" + databaseName + ";create=true",
+                host, port, startServer, DEFAULT_POOL_SIZE);
+    }
+
+    // An explicit JDBC URL; client URLs (jdbc:derby://host:port/...) select network mode
+    public static DatabaseConfig fromUrl(String url, boolean startServer) {
+        if (!url.startsWith(CLIENT_URL_PREFIX)) {
+            return new DatabaseConfig(Mode.EMBEDDED, url, null, 0, false, DEFAULT_POOL_SIZE);
+        }
+        String hostAndPort = url.substring(CLIENT_URL_PREFIX.length(), url.indexOf('/', CLIENT_URL_PREFIX.length()));
+        int colon = hostAndPort.lastIndexOf(':');
+        String host = colon < 0 ? hostAndPort : hostAndPort.substring(0, colon);
+        int port = colon < 0 ? DEFAULT_PORT : Integer.parseInt(hostAndPort.substring(colon + 1));
+        return new DatabaseConfig(Mode.NETWORK, url, host, port, startServer, DEFAULT_POOL_SIZE);
+    }
+
+    // Same settings with a different connection pool size
+    public DatabaseConfig withPoolSize(int poolSize) {
+        return new DatabaseConfig(mode, url, host, port, startServer, poolSize);
+    }
+
+    // Reads the configuration file, if any, and the system properties
+    public static DatabaseConfig load() {
+        Properties properties = new Properties();
+        Path file = Paths.get(System.getProperty(CONFIG_FILE_PROPERTY, DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+        properties.putAll(System.getProperties());
+
+        boolean startServer = Boolean.parseBoolean(properties.getProperty("servicedesk.db.startServer", "true"));
+        int poolSize = Integer.parseInt(properties.getProperty("servicedesk.db.poolSize", String.valueOf(DEFAULT_POOL_SIZE)));
+
+        DatabaseConfig config;
+        String url = properties.getProperty("servicedesk.db.url");
+        String name = properties.getProperty("servicedesk.db.name", DEFAULT_DATABASE_NAME);
+        if (url != null) {
+            config = fromUrl(url, startServer);
+        } else if (properties.getProperty("servicedesk.db.mode", "embedded").equalsIgnoreCase("network")) {
+            config = network(properties.getProperty("servicedesk.db.host", DEFAULT_HOST),
+                    Integer.parseInt(properties.getProperty("servicedesk.db.port", String.valueOf(DEFAULT_PORT))),
+                    name, startServer);
+        } else {
+            config = embedded(name);
+        }
+        return config.withPoolSize(poolSize);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // Network server host, or null in embedded mode
+    public String getHost() {
+        return host;
+    }
+
+    // Network server port, or 0 in embedded mode
+    public int getPort() {
+        return port;
+    }
+
+    // Whether a local network server may be started when none is running
+    public boolean isStartServer() {
+        return startServer;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public String toString() {
+        return mode + " " + url;
+    }
+}
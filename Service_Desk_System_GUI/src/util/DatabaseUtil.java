@@ -7,12 +7,19 @@ package util;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import service.desk.system.Customer;
 import service.desk.system.Message;
 import service.desk.system.SupportStaffMember;
 import service.desk.system.Ticket;
-import services.PersonService;
 
 /**
  *
@@ -24,135 +31,189 @@ import services.PersonService;
 public class DatabaseUtil {
     // Embedded database URL for Apache Derby
     //private static final String DB_URL = "jdbc:derby:servicedesksystem_ebd;create=true";
-    private static final String DB_URL = "jdbc:derby:servicedesksystem_ebd;create=true";
-    
+    // The URL now comes from DatabaseConfig: embedded by default, or a Derby Network Server.
+    // -Dservicedesk.db.url still overrides it, e.g. to point benchmarks at a throwaway database.
+
+    // Loads tickets together with their customer and agent in a single query
+    private static final String TICKET_COLUMNS_SQL = "SELECT t.id, t.topic, t.content, t.createdAt, t.priority, t.status, t.version, t.closedAt, " +
+            "c.id AS c_id, c.firstName AS c_firstName, c.lastName AS c_lastName, c.email AS c_email, c.password AS c_password, " +
+            "s.id AS s_id, s.firstName AS s_firstName, s.lastName AS s_lastName, s.username AS s_username, s.email AS s_email, s.password AS s_password ";
+    private static final String TICKET_JOINS_SQL = " t " +
+            "LEFT JOIN Customers c ON c.id = t.customerId " +
+            "LEFT JOIN SupportStaff s ON s.id = t.agentId";
+    private static final String TICKET_SELECT_SQL = TICKET_COLUMNS_SQL + "FROM Tickets" + TICKET_JOINS_SQL;
+    // The same for tickets moved to the history table by TicketArchiver
+    private static final String ARCHIVED_TICKET_SELECT_SQL = TICKET_COLUMNS_SQL + "FROM TicketsHistory" + TICKET_JOINS_SQL;
+
+    // Connection pool settings; the maximum size comes from DatabaseConfig
+    private static final int POOL_MIN_IDLE = 1;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 30 * 1000;
+    private static final int POOL_STATEMENT_CACHE_SIZE = 50;
+
+    // Retries for inserts that lose the race for an identity value under concurrent inserts
+    private static final int IDENTITY_CONTENTION_RETRIES = 5;
+    private static final String LOCK_TIMEOUT_STATE = "40XL1";
+
+    // Insert statements shared by the single-row and batch insert methods
+    private static final String INSERT_CUSTOMER_SQL = "INSERT INTO Customers (firstName, lastName, email, password) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_SUPPORT_STAFF_SQL = "INSERT INTO SupportStaff (firstName, lastName, username, email, password) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_TICKET_SQL = "INSERT INTO Tickets (customerId, agentId, topic, content, createdAt, priority, status, closedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MESSAGE_SQL = "INSERT INTO Messages (ticket_id, sender_type, sender_name, content, timestamp) VALUES (?, ?, ?, ?, ?)";
 
-    private static Connection connection;
+    // Number of rows sent per executeBatch and committed per transaction by the batch inserts
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Rows fetched per round trip by the streaming queries when the caller has no better value
+    public static final int DEFAULT_FETCH_SIZE = 200;
+
+    private static DatabaseConfig config;
+    private static ConnectionPool pool;
+    private static volatile boolean schemaChecked;
+    private static final List<TicketChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Counts inserted rows per table, e.g. "db.Tickets.inserted"; statements are timed by the pool
+    private static final MetricsRegistry metrics = MetricsRegistry.getDefault();
 
     public static void main(String[] args) {
         try {
             initializeDatabase();
             System.out.println("Database initialized successfully.");
         } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
+            System.out.println("Error initializing database: " + e.getMessage());
         } finally {
             closeConnection(); // Ensure the connection is closed afterwards
         }
     }
 
-    // Establish a connection to the embedded database
-    private static void establishConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
+    // Returns the database settings, reading them on first use
+    public static synchronized DatabaseConfig getConfig() {
+        if (config == null) {
+            config = DatabaseConfig.load();
         }
+        return config;
     }
 
-    public static Connection getConnection() throws SQLException {
-        establishConnection(); // Ensure the connection is re-established if closed
-        return connection;
+    // Switches to another database; the current pool is shut down and the next call reconnects
+    public static void configure(DatabaseConfig newConfig) {
+        closeConnection();
+        synchronized (DatabaseUtil.class) {
+            config = newConfig;
+            schemaChecked = false;
+        }
     }
 
-    // Close the database connection
-    public static void closeConnection() {
-        if (connection != null) {
+    // Returns the shared connection pool, creating it on first use or after a shutdown
+    private static synchronized ConnectionPool getPool() {
+        if (pool == null || pool.isShutdown()) {
+            DatabaseConfig current = getConfig();
+            pool = new ConnectionPool(current.getUrl(), current.getPoolSize(), POOL_MIN_IDLE, POOL_IDLE_TIMEOUT_MILLIS,
+                    POOL_BORROW_TIMEOUT_MILLIS, POOL_STATEMENT_CACHE_SIZE);
+        }
+        return pool;
+    }
+
+    // Prepared statement cache counters of the current pool
+    public static StatementCache.Stats getStatementCacheStats() {
+        return getPool().getStatementCacheStats();
+    }
+
+    // Registers a listener for tickets, messages and persons committed through this class
+    public static void addChangeListener(TicketChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public static void removeChangeListener(TicketChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Tells every listener about a committed change; a failing listener does not fail the change
+    static void fireChange(Consumer<TicketChangeListener> event) {
+        for (TicketChangeListener listener : changeListeners) {
             try {
-                connection.close();
-                connection = null; // Reset connection to null after closing
-                System.out.println("Connection closed.");
-            } catch (SQLException ex) {
-                System.out.println("Failed to close connection: " + ex.getMessage());
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                System.out.println("Error notifying change listener: " + e.getMessage());
             }
         }
     }
 
+    // Tells the listeners about a change made on conn once it is committed, right away when conn
+    // is not in a transaction; a rolled back change is never reported
+    private static void fireAfterCommit(Connection conn, Consumer<TicketChangeListener> event) throws SQLException {
+        if (conn.getAutoCommit()) {
+            fireChange(event);
+        } else {
+            ConnectionPool.afterTransaction(conn, () -> fireChange(event), null);
+        }
+    }
 
-    // Create the tables for customers, agents, and tickets if they do not exist
-    public static void initializeDatabase() throws SQLException {
-        Statement stmt = null;
-        try {
-            stmt = getConnection().createStatement();
-
-            // Check and create Customers table if it doesn't exist
-            if (!tableExists("Customers")) {
-                String createCustomersTable = "CREATE TABLE Customers (" +
-                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                        "firstName VARCHAR(100)," + // Changed from name to firstName
-                        "lastName VARCHAR(100)," +  // Added lastName
-                        "email VARCHAR(100) UNIQUE," +
-                        "password VARCHAR(100))";
-                stmt.executeUpdate(createCustomersTable);
-                System.out.println("Customers table created successfully.");
-            }
-
-            // Check and create SupportStaff table if it doesn't exist
-            if (!tableExists("SupportStaff")) {
-                String createSupportStaffTable = "CREATE TABLE SupportStaff (" +
-                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                        "firstName VARCHAR(100)," + // Added firstName
-                        "lastName VARCHAR(100)," +  // Added lastName
-                        "username VARCHAR(50)," +
-                        "email VARCHAR(100) UNIQUE," +
-                        "password VARCHAR(100))";
-                stmt.executeUpdate(createSupportStaffTable);
-                System.out.println("SupportStaff table created successfully.");
-            }
-
-            // Check and create Tickets table if it doesn't exist
-            if (!tableExists("Tickets")) {
-                String createTicketsTable = "CREATE TABLE Tickets (" +
-                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +                        
-                        "customerId INT," +
-                        "agentId INT," +
-                        "topic VARCHAR(100)," +
-                        "content VARCHAR(255)," +
-                        "createdAt TIMESTAMP," +
-                        "priority INT," +
-                        "status VARCHAR(10)," +
-                        "FOREIGN KEY (customerId) REFERENCES Customers(id)," +
-                        "FOREIGN KEY (agentId) REFERENCES SupportStaff(id))";
-                stmt.executeUpdate(createTicketsTable);
-                System.out.println("Tickets table created successfully.");
-            }
-            
-            if (!tableExists("Messages")) {
-            String createMessagesTable = "CREATE TABLE Messages (" +
-                    "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
-                    "ticket_id INT," +
-                    "sender_type VARCHAR(50)," +
-                    "sender_name VARCHAR(100)," +
-                    "content VARCHAR(255)," +
-                    "timestamp TIMESTAMP," +
-                    "FOREIGN KEY (ticket_id) REFERENCES Tickets(id))";
-            stmt.executeUpdate(createMessagesTable);
-            System.out.println("Messages table created successfully.");
+    // Borrows a pooled connection; callers must close it to return it to the pool.
+    // The first call checks the schema version and applies pending migrations.
+    public static Connection getConnection() throws SQLException {
+        if (!schemaChecked) {
+            synchronized (DatabaseUtil.class) {
+                if (!schemaChecked) {
+                    initializeDatabase();
+                }
+            }
+        }
+        return getPool().borrow();
+    }
+
+    // Shuts down the connection pool and closes all idle connections
+    public static void closeConnection() {
+        ConnectionPool current;
+        synchronized (DatabaseUtil.class) {
+            current = pool;
+            pool = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            System.out.println("Connection closed.");
         }
+    }
 
+    // Brings the schema up to date: creates the tables on a fresh database and applies any pending migrations
+    public static void initializeDatabase() throws SQLException {
+        DatabaseConfig current = getConfig();
+        if (current.getMode() == DatabaseConfig.Mode.NETWORK && current.isStartServer()) {
+            NetworkServerLauncher.ensureRunning(current.getHost(), current.getPort());
+        }
+        try (Connection conn = getPool().borrow()) {
+            SchemaMigrator.migrate(conn);
+            schemaChecked = true;
         } catch (SQLException e) {
             throw new SQLException("Error initializing the database: " + e.getMessage(), e);
-        } finally {
-            // Ensure that the statement is closed
-            if (stmt != null) {
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    System.out.println("Failed to close statement: " + e.getMessage());
-                }
-            }
         }
     }
 
-    // Utility method to check if a table exists in the database
-    private static boolean tableExists(String tableName) throws SQLException {
-        DatabaseMetaData metaData = getConnection().getMetaData();
-        try (ResultSet rs = metaData.getTables(null, null, tableName.toUpperCase(), null)) {
-            return rs.next();
+    // Executes a single-row insert into a table with an identity column.
+    // Derby reports contention on the identity generator as a lock timeout; in autocommit mode the
+    // failed insert has already been rolled back, so it is retried after a short pause.
+    private static int executeIdentityInsert(PreparedStatement pstmt) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return pstmt.executeUpdate();
+            } catch (SQLException e) {
+                if (attempt >= IDENTITY_CONTENTION_RETRIES || !LOCK_TIMEOUT_STATE.equals(e.getSQLState())
+                        || !pstmt.getConnection().getAutoCommit()) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(attempt * 5L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
         }
     }
 
     // Method to check if email already exists
     public static boolean emailExists(String email) throws SQLException {
         String query = "SELECT COUNT(*) FROM Customers WHERE email = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, email);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -164,17 +225,17 @@ public class DatabaseUtil {
 
     // Insert a new customer into the database
     public static int insertCustomer(Customer customer) throws SQLException {
-        String insertCustomerSQL = "INSERT INTO Customers (firstName, lastName, email, password) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(insertCustomerSQL, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, customer.getFirstName()); // Get first name from Customer
-            pstmt.setString(2, customer.getLastName()); // Get last name from Customer
-            pstmt.setString(3, customer.getEmail());
-            pstmt.setString(4, customer.getPassword());  // No hashing, plain password saved
-            pstmt.executeUpdate();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_CUSTOMER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindCustomer(pstmt, customer);
+            executeIdentityInsert(pstmt);
 
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
+                    metrics.increment("db.Customers.inserted");
+                    int id = generatedKeys.getInt(1);
+                    fireChange(listener -> listener.personChanged(customer));
+                    return id;
                 } else {
                     throw new SQLException("Creating customer failed, no ID obtained.");
                 }
@@ -184,19 +245,16 @@ public class DatabaseUtil {
 
     // Insert a new support staff member into the database
     public static void insertSupportStaff(SupportStaffMember staff) throws SQLException {
-        String insertSupportStaffSQL = "INSERT INTO SupportStaff (firstName, lastName, username, email, password) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(insertSupportStaffSQL, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, staff.getFirstName()); // Get first name from SupportStaffMember
-            pstmt.setString(2, staff.getLastName()); // Get last name from SupportStaffMember
-            pstmt.setString(3, staff.getUsername());
-            pstmt.setString(4, staff.getEmail());
-            pstmt.setString(5, staff.getPassword());  // Save plain password directly
-            pstmt.executeUpdate();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SUPPORT_STAFF_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindSupportStaff(pstmt, staff);
+            executeIdentityInsert(pstmt);
 
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    int newId = generatedKeys.getInt(1);  // Get the generated ID if needed
-                    System.out.println("New Support Staff Member ID: " + newId);
+                    metrics.increment("db.SupportStaff.inserted");
+                    staff.setId(generatedKeys.getInt(1));
+                    fireChange(listener -> listener.personChanged(staff));
                 } else {
                     throw new SQLException("Creating support staff member failed, no ID obtained.");
                 }
@@ -204,46 +262,148 @@ public class DatabaseUtil {
         }
     }
 
-    // Insert a new ticket into the database
-    public static void insertTicket(Ticket ticket) throws SQLException {
-        String query = "INSERT INTO Tickets (customerId, agentId, topic, content, createdAt, priority, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, ticket.getCustomer().getId());
-            pstmt.setObject(2, ticket.getAssignedAgent() != null ? ticket.getAssignedAgent().getId() : null, Types.INTEGER);
-            pstmt.setString(3, ticket.getTopic());
-            pstmt.setString(4, ticket.getContent());
-            pstmt.setTimestamp(5, Timestamp.valueOf(ticket.getCreatedAt()));
-            pstmt.setInt(6, ticket.getPriority());
-            pstmt.setString(7, ticket.getStatus().toString());
+    // Update the name, email and password of an existing customer
+    public static void updateCustomer(Customer customer) throws SQLException {
+        String query = "UPDATE Customers SET firstName = ?, lastName = ?, email = ?, password = ? WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            bindCustomer(pstmt, customer);
+            pstmt.setInt(5, customer.getId());
             pstmt.executeUpdate();
+        }
+        fireChange(listener -> listener.personChanged(customer));
+    }
+
+    // Update the name, username, email and password of an existing support staff member
+    public static void updateSupportStaff(SupportStaffMember staff) throws SQLException {
+        String query = "UPDATE SupportStaff SET firstName = ?, lastName = ?, username = ?, email = ?, password = ? WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            bindSupportStaff(pstmt, staff);
+            pstmt.setInt(6, staff.getId());
+            pstmt.executeUpdate();
+        }
+        fireChange(listener -> listener.personChanged(staff));
+    }
+
+    // Insert a new ticket into the database and return the ID generated for it.
+    // The ticket's ID is updated to the generated value.
+    public static int insertTicket(Ticket ticket) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_TICKET_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindNewTicket(pstmt, ticket);
+            executeIdentityInsert(pstmt);
+
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    int ticketId = generatedKeys.getInt(1);
+                    ticket.setId(ticketId);
+                    metrics.increment("db.Tickets.inserted");
+                    fireAfterCommit(conn, listener -> listener.ticketInserted(ticket));
+                    return ticketId;
+                } else {
+                    throw new SQLException("Creating ticket failed, no ID obtained.");
+                }
+            }
         } catch (SQLException e) {
             throw new SQLException("Failed to insert ticket into the database.", e);
         }
     }
 
-    // Update an existing ticket in the database
+    // Update all columns of an existing ticket in the database.
+    // The update only succeeds if the row still has the version the ticket was loaded with;
+    // otherwise an OptimisticLockException is thrown and nothing is written.
     public static void updateTicket(Ticket ticket) throws SQLException {
-        String query = "UPDATE Tickets SET customerId = ?, agentId = ?, topic = ?, content = ?, createdAt = ?, priority = ?, status = ? WHERE id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, ticket.getCustomer().getId());
-            pstmt.setObject(2, ticket.getAssignedAgent() != null ? ticket.getAssignedAgent().getId() : null, Types.INTEGER);
-            pstmt.setString(3, ticket.getTopic());
-            pstmt.setString(4, ticket.getContent());
-            pstmt.setTimestamp(5, Timestamp.valueOf(ticket.getCreatedAt()));
-            pstmt.setInt(6, ticket.getPriority());
-            pstmt.setString(7, ticket.getStatus().toString());
-            pstmt.setInt(8, ticket.getId());
-            pstmt.executeUpdate();
+        String query = "UPDATE Tickets SET customerId = ?, agentId = ?, topic = ?, content = ?, createdAt = ?, priority = ?, status = ?, " +
+                "closedAt = ?, version = version + 1 WHERE id = ? AND version = ?";
+        LocalDateTime closedAt = closedAtFor(ticket.getStatus(), ticket.getClosedAt());
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            bindTicket(pstmt, ticket);
+            pstmt.setTimestamp(8, closedAt != null ? Timestamp.valueOf(closedAt) : null);
+            pstmt.setInt(9, ticket.getId());
+            pstmt.setInt(10, ticket.getVersion());
+            checkTicketUpdated(conn, pstmt.executeUpdate(), ticket);
+            ticket.setVersion(ticket.getVersion() + 1);
+            ticket.setClosedAt(closedAt);
+        } catch (OptimisticLockException e) {
+            throw e;
         } catch (SQLException e) {
             throw new SQLException("Failed to update ticket in the database.", e);
         }
     }
 
+    // Changes only the priority of a ticket, if it has not been updated since it was loaded
+    public static void updateTicketPriority(Ticket ticket, int priority) throws SQLException {
+        if (priority < 1 || priority > 3) {
+            throw new IllegalArgumentException("Priority must be between 1 and 3.");
+        }
+        updateTicketColumns(ticket, "priority = ?", 1, pstmt -> pstmt.setInt(1, priority));
+        ticket.setPriority(priority);
+    }
+
+    // Changes only the status (and with it the closing time) of a ticket, if it has not been updated since it was loaded
+    public static void updateTicketStatus(Ticket ticket, Ticket.Status status) throws SQLException {
+        LocalDateTime closedAt = closedAtFor(status, ticket.getStatus() == status ? ticket.getClosedAt() : null);
+        updateTicketColumns(ticket, "status = ?, closedAt = ?", 2, pstmt -> {
+            pstmt.setString(1, status.toString());
+            pstmt.setTimestamp(2, closedAt != null ? Timestamp.valueOf(closedAt) : null);
+        });
+        ticket.setStatus(status);
+        ticket.setClosedAt(closedAt);
+    }
+
+    // A closed ticket keeps the time it was first closed; an open ticket has none
+    private static LocalDateTime closedAtFor(Ticket.Status status, LocalDateTime current) {
+        if (status != Ticket.Status.CLOSED) {
+            return null;
+        }
+        return current != null ? current : LocalDateTime.now();
+    }
+
+    // Changes only the assigned agent of a ticket (null to unassign), if it has not been updated since it was loaded
+    public static void updateTicketAgent(Ticket ticket, SupportStaffMember agent) throws SQLException {
+        updateTicketColumns(ticket, "agentId = ?", 1,
+                pstmt -> pstmt.setObject(1, agent != null ? agent.getId() : null, Types.INTEGER));
+        ticket.setAssignedAgent(agent);
+    }
+
+    // Writes the given assignments and bumps the version with a compare-and-set on the version the ticket was loaded with.
+    // values binds the valueCount parameters of the assignments.
+    private static void updateTicketColumns(Ticket ticket, String assignments, int valueCount, ParameterBinder values) throws SQLException {
+        String query = "UPDATE Tickets SET " + assignments + ", version = version + 1 WHERE id = ? AND version = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            values.bind(pstmt);
+            pstmt.setInt(valueCount + 1, ticket.getId());
+            pstmt.setInt(valueCount + 2, ticket.getVersion());
+            checkTicketUpdated(conn, pstmt.executeUpdate(), ticket);
+        }
+        ticket.setVersion(ticket.getVersion() + 1);
+    }
+
+    // Tells a stale version apart from a ticket that does not exist when an update matched no row
+    private static void checkTicketUpdated(Connection conn, int updatedRows, Ticket ticket) throws SQLException {
+        if (updatedRows > 0) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM Tickets WHERE id = ?")) {
+            pstmt.setInt(1, ticket.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    throw new OptimisticLockException(ticket.getId(), ticket.getVersion());
+                }
+            }
+        }
+        throw new SQLException("Ticket " + ticket.getId() + " not found.");
+    }
+
     // Retrieve all customers from the database
     public static List<Customer> getAllCustomers() throws SQLException {
         List<Customer> customers = new ArrayList<>();
         String query = "SELECT * FROM Customers";
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 int id = rs.getInt("id");
@@ -261,7 +421,8 @@ public class DatabaseUtil {
     public static List<SupportStaffMember> getAllSupportStaff() throws SQLException {
         List<SupportStaffMember> staffMembers = new ArrayList<>();
         String query = "SELECT * FROM SupportStaff";
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 int id = rs.getInt("id");
@@ -276,73 +437,342 @@ public class DatabaseUtil {
         return staffMembers;
     }
 
-    // Retrieve all tickets from the database
+    // Retrieve all open tickets, with their customer and agent, from the database
     public static List<Ticket> getAllTickets() throws SQLException {
-        List<Ticket> tickets = new ArrayList<>();
-        String query = "SELECT * FROM Tickets WHERE status = 'OPEN'"; // Only fetch OPEN tickets
+        String query = TICKET_SELECT_SQL + " WHERE t.status = 'OPEN'"; // Only fetch OPEN tickets
 
-        try (Statement stmt = DatabaseUtil.getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                int customerId = rs.getInt("customerId");
-                int agentId = rs.getInt("agentId");
-                String topic = rs.getString("topic");
-                String content = rs.getString("content");
-                LocalDateTime createdAt = rs.getTimestamp("createdAt").toLocalDateTime();
-                int priority = rs.getInt("priority");
-
-                // Use PersonService to find Customer and SupportStaffMember
-                PersonService<Customer> customerService = new PersonService<>(Customer.class);
-                PersonService<SupportStaffMember> agentService = new PersonService<>(SupportStaffMember.class);
+            return readTickets(rs);
+        }
+    }
 
-                Customer customer = customerService.getPersonById(customerId); // Get Customer by ID
-                SupportStaffMember assignedAgent = agentService.getPersonById(agentId); // Get Agent by ID
+    // Retrieve a single ticket by its ID, or null if it does not exist
+    public static Ticket getTicketById(int ticketId) throws SQLException {
+        String query = TICKET_SELECT_SQL + " WHERE t.id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, ticketId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Ticket> tickets = readTickets(rs);
+                return tickets.isEmpty() ? null : tickets.get(0);
+            }
+        }
+    }
 
-                // Create and add the Ticket object to the list
-                Ticket ticket = new Ticket(id, customer, assignedAgent, topic, content, createdAt, priority);
-                tickets.add(ticket);
+    // Retrieve the tickets with the given IDs in one query, keyed by ID; IDs that do not exist are left out
+    public static Map<Integer, Ticket> getTicketsByIds(Collection<Integer> ticketIds) throws SQLException {
+        Map<Integer, Ticket> tickets = new HashMap<>();
+        if (ticketIds.isEmpty()) {
+            return tickets;
+        }
+        StringBuilder query = new StringBuilder(TICKET_SELECT_SQL).append(" WHERE t.id IN (");
+        for (int i = 0; i < ticketIds.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            int index = 1;
+            for (int id : ticketIds) {
+                pstmt.setInt(index++, id);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                for (Ticket ticket : readTickets(rs)) {
+                    tickets.put(ticket.getId(), ticket);
+                }
             }
         }
         return tickets;
     }
-    
-    public static int getMaxTicketId() throws SQLException {
-        String query = "SELECT MAX(id) FROM Tickets";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt(1); // Returns the maximum ID, or null if no tickets exist
+
+    // Retrieve the open tickets created by a customer
+    public static List<Ticket> getOpenTicketsByCustomer(int customerId) throws SQLException {
+        String query = TICKET_SELECT_SQL + " WHERE t.customerId = ? AND t.status = 'OPEN'";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readTickets(rs);
             }
         }
-        return 0; // Return 0 if no tickets exist
     }
-    
-    public static void insertMessage(Message message) throws SQLException {
-        // Validate input
-        if (message.getSenderType() == null || message.getSenderType().isEmpty()) {
-            throw new SQLException("Sender type cannot be null or empty.");
+
+    // Retrieve the open tickets assigned to an agent
+    public static List<Ticket> getOpenTicketsByAgent(int agentId) throws SQLException {
+        String query = TICKET_SELECT_SQL + " WHERE t.agentId = ? AND t.status = 'OPEN'";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, agentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readTickets(rs);
+            }
         }
-        if (message.getSenderName() == null || message.getSenderName().isEmpty()) {
-            throw new SQLException("Sender name cannot be null or empty.");
+    }
+
+    // Retrieve one page of tickets matching the filter, ordered by priority (highest first) and then ID.
+    // Pass null as afterKey for the first page and the key of the last ticket of a page for the next one.
+    public static List<Ticket> findTickets(TicketFilter filter, TicketPageKey afterKey, int limit) throws SQLException {
+        StringBuilder query = new StringBuilder(TICKET_SELECT_SQL);
+        List<Object> params = new ArrayList<>();
+        appendFilter(query, params, filter);
+        if (afterKey != null) {
+            // Seek past the last row of the previous page instead of skipping rows with OFFSET
+            query.append(" AND (t.priority < ? OR (t.priority = ? AND t.id > ?))");
+            params.add(afterKey.getPriority());
+            params.add(afterKey.getPriority());
+            params.add(afterKey.getId());
         }
-        if (message.getContent() == null || message.getContent().isEmpty()) {
-            throw new SQLException("Message content cannot be null or empty.");
+        query.append(" ORDER BY t.priority DESC, t.id FETCH FIRST ? ROWS ONLY");
+        params.add(limit);
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readTickets(rs);
+            }
+        }
+    }
+
+    // Retrieve an archived ticket by its ID, or null if it has not been archived
+    public static Ticket getArchivedTicketById(int ticketId) throws SQLException {
+        String query = ARCHIVED_TICKET_SELECT_SQL + " WHERE t.id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, ticketId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Ticket> tickets = readTickets(rs);
+                return tickets.isEmpty() ? null : tickets.get(0);
+            }
+        }
+    }
+
+    // Retrieve one page of archived tickets matching the filter (null for all), newest (highest ID) first.
+    // Pass 0 as beforeId for the first page and the ID of the last ticket of a page for the next one.
+    public static List<Ticket> findArchivedTickets(TicketFilter filter, int beforeId, int limit) throws SQLException {
+        StringBuilder query = new StringBuilder(ARCHIVED_TICKET_SELECT_SQL);
+        List<Object> params = new ArrayList<>();
+        if (filter != null) {
+            appendFilter(query, params, filter);
+        } else {
+            query.append(" WHERE 1 = 1");
+        }
+        if (beforeId > 0) {
+            query.append(" AND t.id < ?");
+            params.add(beforeId);
         }
+        query.append(" ORDER BY t.id DESC FETCH FIRST ? ROWS ONLY");
+        params.add(limit);
 
-        String insertMessageSQL = "INSERT INTO Messages (ticket_id, sender_type, sender_name, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readTickets(rs);
+            }
+        }
+    }
+
+    // Retrieve the messages of an archived ticket, oldest first
+    public static List<Message> getArchivedMessages(int ticketId) throws SQLException {
+        String query = "SELECT * FROM MessagesHistory WHERE ticket_id = ? ORDER BY id ASC";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, ticketId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return readMessages(rs, ticketId);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error retrieving archived messages for ticket ID: " + ticketId, e);
+        }
+    }
+
+    // Streams the tickets matching the filter in ID order, reading fetchSize rows per round trip,
+    // so a scan over the whole table runs in constant memory. A null filter streams every ticket.
+    // The stream holds a pooled connection: close it, e.g. with try-with-resources, on the thread that
+    // opened it. Errors while reading are thrown as UncheckedSQLException.
+    public static Stream<Ticket> streamTickets(TicketFilter filter, int fetchSize) throws SQLException {
+        return streamTickets(filter, 0, fetchSize);
+    }
+
+    // Streams the tickets matching the filter with an ID greater than afterId; see streamTickets
+    public static Stream<Ticket> streamTickets(TicketFilter filter, int afterId, int fetchSize) throws SQLException {
+        StringBuilder query = new StringBuilder(TICKET_SELECT_SQL);
+        List<Object> params = new ArrayList<>();
+        if (filter != null) {
+            appendFilter(query, params, filter);
+        } else {
+            query.append(" WHERE 1 = 1");
+        }
+        if (afterId > 0) {
+            query.append(" AND t.id > ?");
+            params.add(afterId);
+        }
+        query.append(" ORDER BY t.id");
+        return stream(query.toString(), params, fetchSize, rs -> readTicket(rs, null, null));
+    }
+
+    // Streams all customers in ID order; see streamTickets
+    public static Stream<Customer> streamCustomers(int fetchSize) throws SQLException {
+        return stream("SELECT id, firstName, lastName, email, password FROM Customers ORDER BY id", new ArrayList<>(), fetchSize,
+                rs -> new Customer(rs.getInt("id"), rs.getString("firstName"), rs.getString("lastName"),
+                        rs.getString("email"), rs.getString("password")));
+    }
+
+    // Streams all support staff in ID order; see streamTickets
+    public static Stream<SupportStaffMember> streamSupportStaff(int fetchSize) throws SQLException {
+        return stream("SELECT id, firstName, lastName, username, email, password FROM SupportStaff ORDER BY id", new ArrayList<>(), fetchSize,
+                rs -> new SupportStaffMember(rs.getInt("id"), rs.getString("firstName"), rs.getString("lastName"),
+                        rs.getString("username"), rs.getString("email"), rs.getString("password")));
+    }
+
+    // Opens a forward-only, read-only query and hands its connection, statement and result set to a stream
+    private static <T> Stream<T> stream(String query, List<Object> params, int fetchSize,
+                                        ResultSetStream.RowMapper<T> mapper) throws SQLException {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be at least 1.");
+        }
+        Connection conn = getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+        } catch (SQLException e) {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+        return ResultSetStream.query(conn, pstmt, mapper);
+    }
+
+    // Streams the messages of all tickets with an ID greater than afterMessageId, in ID order; see streamTickets
+    public static Stream<Message> streamMessages(int afterMessageId, int fetchSize) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        params.add(afterMessageId);
+        return stream("SELECT * FROM Messages WHERE id > ? ORDER BY id", params, fetchSize,
+                rs -> new Message(rs.getInt("id"), rs.getInt("ticket_id"), rs.getString("sender_type"),
+                        rs.getString("sender_name"), rs.getString("content"), rs.getTimestamp("timestamp").toLocalDateTime()));
+    }
+
+    // Adds the WHERE clause of a ticket filter to a query built on TICKET_SELECT_SQL or ARCHIVED_TICKET_SELECT_SQL
+    private static void appendFilter(StringBuilder query, List<Object> params, TicketFilter filter) {
+        query.append(" WHERE 1 = 1");
+        if (filter.getCustomerId() != null) {
+            query.append(" AND t.customerId = ?");
+            params.add(filter.getCustomerId());
+        }
+        if (filter.getAgentId() != null) {
+            query.append(" AND t.agentId = ?");
+            params.add(filter.getAgentId());
+        }
+        if (filter.getStatus() != null) {
+            query.append(" AND t.status = ?");
+            params.add(filter.getStatus().toString());
+        }
+    }
+
+    // Count the open tickets assigned to an agent
+    public static int getOpenTicketCount(int agentId) throws SQLException {
+        String query = "SELECT COUNT(*) FROM Tickets WHERE agentId = ? AND status = 'OPEN'";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, agentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Count the open tickets of every agent that has at least one, keyed by agent ID
+    public static Map<Integer, Integer> getOpenTicketCountsByAgent() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String query = "SELECT agentId, COUNT(*) FROM Tickets WHERE status = 'OPEN' AND agentId IS NOT NULL GROUP BY agentId";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    // Builds tickets from rows selected with TICKET_SELECT_SQL.
+    // Customers and agents are created once per id and shared between the tickets of this load.
+    private static List<Ticket> readTickets(ResultSet rs) throws SQLException {
+        List<Ticket> tickets = new ArrayList<>();
+        Map<Integer, Customer> customers = new HashMap<>();
+        Map<Integer, SupportStaffMember> agents = new HashMap<>();
+
+        while (rs.next()) {
+            tickets.add(readTicket(rs, customers, agents));
+        }
+        return tickets;
+    }
+
+    // Builds the ticket in the current row. Customers and agents are looked up in and added to the
+    // given maps, or created for every row when the maps are null.
+    private static Ticket readTicket(ResultSet rs, Map<Integer, Customer> customers,
+                                     Map<Integer, SupportStaffMember> agents) throws SQLException {
+        Customer customer = null;
+        int customerId = rs.getInt("c_id");
+        if (!rs.wasNull()) {
+            customer = customers != null ? customers.get(customerId) : null;
+            if (customer == null) {
+                customer = new Customer(customerId, rs.getString("c_firstName"), rs.getString("c_lastName"),
+                        rs.getString("c_email"), rs.getString("c_password"));
+                if (customers != null) {
+                    customers.put(customerId, customer);
+                }
+            }
+        }
+
+        SupportStaffMember assignedAgent = null;
+        int agentId = rs.getInt("s_id");
+        if (!rs.wasNull()) {
+            assignedAgent = agents != null ? agents.get(agentId) : null;
+            if (assignedAgent == null) {
+                assignedAgent = new SupportStaffMember(agentId, rs.getString("s_firstName"), rs.getString("s_lastName"),
+                        rs.getString("s_username"), rs.getString("s_email"), rs.getString("s_password"));
+                if (agents != null) {
+                    agents.put(agentId, assignedAgent);
+                }
+            }
+        }
+
+        Ticket ticket = new Ticket(rs.getInt("id"), customer, assignedAgent, rs.getString("topic"), rs.getString("content"),
+                rs.getTimestamp("createdAt").toLocalDateTime(), rs.getInt("priority"));
+        String status = rs.getString("status");
+        if (status != null) {
+            ticket.setStatus(Ticket.Status.valueOf(status));
+        }
+        ticket.setVersion(rs.getInt("version"));
+        Timestamp closedAt = rs.getTimestamp("closedAt");
+        ticket.setClosedAt(closedAt != null ? closedAt.toLocalDateTime() : null);
+        return ticket;
+    }
+    
+    public static void insertMessage(Message message) throws SQLException {
+        validateMessage(message);
 
         // Using try-with-resources for connection and prepared statement
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertMessageSQL, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_MESSAGE_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-            pstmt.setInt(1, message.getTicketId());
-            pstmt.setString(2, message.getSenderType());
-            pstmt.setString(3, message.getSenderName());
-            pstmt.setString(4, message.getContent());
-            pstmt.setTimestamp(5, Timestamp.valueOf(message.getTimestamp()));
+            bindMessage(pstmt, message);
 
-            int affectedRows = pstmt.executeUpdate();
+            int affectedRows = executeIdentityInsert(pstmt);
             if (affectedRows == 0) {
                 throw new SQLException("Inserting message failed, no rows affected.");
             }
@@ -352,20 +782,245 @@ public class DatabaseUtil {
                 if (generatedKeys.next()) {
                     int messageId = generatedKeys.getInt(1);
                     message.setId(messageId);
-                    System.out.println("Message inserted successfully.");
+                    metrics.increment("db.Messages.inserted");
+                    fireAfterCommit(conn, listener -> listener.messageInserted(message));
                 } else {
                     throw new SQLException("Inserting message failed, no ID obtained.");
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error executing insertMessage: " + e.getMessage());
             throw new SQLException("Failed to insert message into the database.", e);
         }
     }
     
+    // Checks the fields a message must have before it can be stored
+    static void validateMessage(Message message) throws SQLException {
+        if (message.getSenderType() == null || message.getSenderType().isEmpty()) {
+            throw new SQLException("Sender type cannot be null or empty.");
+        }
+        if (message.getSenderName() == null || message.getSenderName().isEmpty()) {
+            throw new SQLException("Sender name cannot be null or empty.");
+        }
+        if (message.getContent() == null || message.getContent().isEmpty()) {
+            throw new SQLException("Message content cannot be null or empty.");
+        }
+    }
+
+    // Parameter binding for each insert statement
+    private static void bindCustomer(PreparedStatement pstmt, Customer customer) throws SQLException {
+        pstmt.setString(1, customer.getFirstName()); // Get first name from Customer
+        pstmt.setString(2, customer.getLastName()); // Get last name from Customer
+        pstmt.setString(3, customer.getEmail());
+        pstmt.setString(4, customer.getPassword());  // No hashing, plain password saved
+    }
+
+    private static void bindSupportStaff(PreparedStatement pstmt, SupportStaffMember staff) throws SQLException {
+        pstmt.setString(1, staff.getFirstName()); // Get first name from SupportStaffMember
+        pstmt.setString(2, staff.getLastName()); // Get last name from SupportStaffMember
+        pstmt.setString(3, staff.getUsername());
+        pstmt.setString(4, staff.getEmail());
+        pstmt.setString(5, staff.getPassword());  // Save plain password directly
+    }
+
+    private static void bindTicket(PreparedStatement pstmt, Ticket ticket) throws SQLException {
+        pstmt.setInt(1, ticket.getCustomer().getId());
+        pstmt.setObject(2, ticket.getAssignedAgent() != null ? ticket.getAssignedAgent().getId() : null, Types.INTEGER);
+        pstmt.setString(3, ticket.getTopic());
+        pstmt.setString(4, ticket.getContent());
+        pstmt.setTimestamp(5, Timestamp.valueOf(ticket.getCreatedAt()));
+        pstmt.setInt(6, ticket.getPriority());
+        pstmt.setString(7, ticket.getStatus().toString());
+    }
+
+    // Binds a ticket for INSERT_TICKET_SQL; a ticket inserted as closed without a closing time counts as closed now
+    private static void bindNewTicket(PreparedStatement pstmt, Ticket ticket) throws SQLException {
+        bindTicket(pstmt, ticket);
+        ticket.setClosedAt(closedAtFor(ticket.getStatus(), ticket.getClosedAt()));
+        pstmt.setTimestamp(8, ticket.getClosedAt() != null ? Timestamp.valueOf(ticket.getClosedAt()) : null);
+    }
+
+    private static void bindMessage(PreparedStatement pstmt, Message message) throws SQLException {
+        pstmt.setInt(1, message.getTicketId());
+        pstmt.setString(2, message.getSenderType());
+        pstmt.setString(3, message.getSenderName());
+        pstmt.setString(4, message.getContent());
+        pstmt.setTimestamp(5, Timestamp.valueOf(message.getTimestamp()));
+    }
+
+    // Batch insert customers; each customer's ID is set and all generated IDs are returned in order
+    public static int[] insertCustomers(Collection<? extends Customer> customers) throws SQLException {
+        return insertCustomers(customers.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public static int[] insertCustomers(Iterator<? extends Customer> customers, int batchSize) throws SQLException {
+        return batchInsert("Customers", INSERT_CUSTOMER_SQL, customers, batchSize, DatabaseUtil::bindCustomer, Customer::setId, null);
+    }
+
+    // Batch insert support staff; each member's ID is set and all generated IDs are returned in order
+    public static int[] insertSupportStaff(Collection<? extends SupportStaffMember> staff) throws SQLException {
+        return insertSupportStaff(staff.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public static int[] insertSupportStaff(Iterator<? extends SupportStaffMember> staff, int batchSize) throws SQLException {
+        return batchInsert("SupportStaff", INSERT_SUPPORT_STAFF_SQL, staff, batchSize, DatabaseUtil::bindSupportStaff,
+                SupportStaffMember::setId, null);
+    }
+
+    // Batch insert tickets; each ticket's ID is set and all generated IDs are returned in order
+    public static int[] insertTickets(Collection<? extends Ticket> tickets) throws SQLException {
+        return insertTickets(tickets.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public static int[] insertTickets(Iterator<? extends Ticket> tickets, int batchSize) throws SQLException {
+        return batchInsert("Tickets", INSERT_TICKET_SQL, tickets, batchSize, DatabaseUtil::bindNewTicket, Ticket::setId,
+                ticket -> fireChange(listener -> listener.ticketInserted(ticket)));
+    }
+
+    // Batch insert messages; each message's ID is set and all generated IDs are returned in order
+    public static int[] insertMessages(Collection<? extends Message> messages) throws SQLException {
+        return insertMessages(messages.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public static int[] insertMessages(Iterator<? extends Message> messages, int batchSize) throws SQLException {
+        return batchInsert("Messages", INSERT_MESSAGE_SQL, messages, batchSize, (pstmt, message) -> {
+            validateMessage(message);
+            bindMessage(pstmt, message);
+        }, Message::setId, message -> fireChange(listener -> listener.messageInserted(message)));
+    }
+
+    // Inserts rows with addBatch/executeBatch, committing one transaction per batch.
+    // If the caller already has a transaction open on its connection, the rows become part of it
+    // instead: nothing is committed, and a failure only rolls back to the state before the call.
+    // committed (which may be null) is called for each row once it is committed; rows of the
+    // caller's transaction wait for its commit, and get their IDs reset to 0 if it is rolled back.
+    // Derby only reports the last generated key of a batch, so each batch runs with the table
+    // locked exclusively: no other transaction can take identity values in between, which makes
+    // the keys of the batch the contiguous range ending at the last key.
+    private static <T> int[] batchInsert(String tableName, String insertSQL, Iterator<? extends T> rows, int batchSize,
+                                         RowBinder<T> binder, KeySetter<T> keySetter, Consumer<T> committed)
+            throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        int[] keys = new int[Math.min(batchSize, 1024)];
+        int inserted = 0;
+        List<T> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        // Rows of the caller's transaction, which are only final once the caller commits
+        List<T> uncommitted = new ArrayList<>();
+
+        try (Connection conn = getConnection()) {
+            boolean ownTransaction = conn.getAutoCommit();
+            Savepoint savepoint = null;
+            if (ownTransaction) {
+                conn.setAutoCommit(false);
+            } else {
+                savepoint = conn.setSavepoint();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS);
+                 Statement lockStmt = conn.createStatement()) {
+                while (rows.hasNext()) {
+                    batch.clear();
+                    while (batch.size() < batchSize && rows.hasNext()) {
+                        T row = rows.next();
+                        binder.bind(pstmt, row);
+                        pstmt.addBatch();
+                        batch.add(row);
+                    }
+
+                    lockStmt.execute("LOCK TABLE " + tableName + " IN EXCLUSIVE MODE");
+                    pstmt.executeBatch();
+                    int lastKey = lastBatchKey(pstmt, lockStmt, tableName);
+                    if (ownTransaction) {
+                        conn.commit();
+                    }
+
+                    if (inserted + batch.size() > keys.length) {
+                        keys = Arrays.copyOf(keys, Math.max(keys.length * 2, inserted + batch.size()));
+                    }
+                    metrics.add("db." + tableName + ".inserted", batch.size());
+                    int firstKey = lastKey - batch.size() + 1;
+                    for (int i = 0; i < batch.size(); i++) {
+                        keys[inserted++] = firstKey + i;
+                        keySetter.setId(batch.get(i), firstKey + i);
+                    }
+                    if (!ownTransaction) {
+                        uncommitted.addAll(batch);
+                    } else if (committed != null) {
+                        batch.forEach(committed);
+                    }
+                }
+                if (!uncommitted.isEmpty()) {
+                    ConnectionPool.afterTransaction(conn,
+                            committed == null ? null : () -> uncommitted.forEach(committed),
+                            () -> uncommitted.forEach(row -> keySetter.setId(row, 0)));
+                }
+            } catch (SQLException e) {
+                if (ownTransaction) {
+                    conn.rollback();
+                } else {
+                    conn.rollback(savepoint);
+                    uncommitted.forEach(row -> keySetter.setId(row, 0));
+                    inserted = 0;
+                }
+                throw new SQLException("Batch insert into " + tableName + " failed after " + inserted + " rows: " + e.getMessage(), e);
+            } finally {
+                if (ownTransaction) {
+                    conn.setAutoCommit(true);
+                } else if (savepoint != null) {
+                    releaseQuietly(conn, savepoint);
+                }
+            }
+        }
+        return inserted == keys.length ? keys : Arrays.copyOf(keys, inserted);
+    }
+
+    // A savepoint that was rolled back to is already gone, so failing to release it is expected
+    private static void releaseQuietly(Connection conn, Savepoint savepoint) {
+        try {
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // Released by the rollback
+        }
+    }
+
+    // The last key generated by a batch. The client driver returns no generated keys for a batch,
+    // so it falls back to the highest ID, which is safe while the table is locked exclusively.
+    private static int lastBatchKey(PreparedStatement pstmt, Statement lockStmt, String tableName) throws SQLException {
+        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+            if (generatedKeys != null && generatedKeys.next()) {
+                return generatedKeys.getInt(1);
+            }
+        }
+        try (ResultSet rs = lockStmt.executeQuery("SELECT MAX(id) FROM " + tableName)) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                throw new SQLException("Batch insert into " + tableName + " returned no generated key.");
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    // Binds the values of a targeted update
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    // Binds one row's values to an insert statement
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+
+    // Stores a generated key on the inserted object
+    @FunctionalInterface
+    private interface KeySetter<T> {
+        void setId(T row, int id);
+    }
+    
     public static boolean ticketExists(int ticketId) throws SQLException {
         String query = "SELECT COUNT(*) FROM Tickets WHERE id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, ticketId);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -378,34 +1033,54 @@ public class DatabaseUtil {
 
     // Retrieve all messages for a specific ticket
     public static List<Message> getMessagesForTicket(int ticketId) throws SQLException {
-        List<Message> messages = new ArrayList<>();
         String query = "SELECT * FROM Messages WHERE ticket_id = ? ORDER BY timestamp ASC";
-        establishConnection();  // Ensure the connection is open
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, ticketId);
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int id = rs.getInt("id");
-                    String senderType = rs.getString("sender_type");
-                    String senderName = rs.getString("sender_name");
-                    String content = rs.getString("content");
-                    LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
-                    messages.add(new Message(id, ticketId, senderType, senderName, content, timestamp));
-                }
+                return readMessages(rs, ticketId);
             }
         } catch (SQLException e) {
-            System.err.println("Error executing getMessagesForTicket: " + e.getMessage());
             throw new SQLException("Error retrieving messages for ticket ID: " + ticketId, e);
         }
+    }
+
+    // Retrieve the messages of a ticket with an ID greater than afterMessageId, oldest first.
+    // Pass 0 to get every message; the (ticket_id, id) index keeps this proportional to the new rows.
+    public static List<Message> getMessagesSince(int ticketId, int afterMessageId) throws SQLException {
+        String query = "SELECT * FROM Messages WHERE ticket_id = ? AND id > ? ORDER BY id ASC";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, ticketId);
+            stmt.setInt(2, afterMessageId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return readMessages(rs, ticketId);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Error retrieving new messages for ticket ID: " + ticketId, e);
+        }
+    }
+
+    private static List<Message> readMessages(ResultSet rs, int ticketId) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        while (rs.next()) {
+            int id = rs.getInt("id");
+            String senderType = rs.getString("sender_type");
+            String senderName = rs.getString("sender_name");
+            String content = rs.getString("content");
+            LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+            messages.add(new Message(id, ticketId, senderType, senderName, content, timestamp));
+        }
         return messages;
     }
     
-    public static void clearTable(String tableName) {
+    public static void clearTable(String tableName) throws SQLException {
         try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
             stmt.executeUpdate("DELETE FROM " + tableName);
             stmt.executeUpdate("ALTER TABLE " + tableName + " ALTER COLUMN ID RESTART WITH 1");
+            fireChange(listener -> listener.tableCleared(tableName));
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new SQLException("Error clearing table: " + tableName, e);
         }
     }
 }
\ No newline at end of file
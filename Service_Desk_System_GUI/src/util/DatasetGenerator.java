@@ -0,0 +1,373 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Fills the database with a synthetic but realistic dataset, for benchmarks, load tests and
+ * reproducing behaviour at production scale.
+ *
+ * The same seed always produces the same rows (IDs aside, which the database assigns):
+ *   - tickets per customer follow a Zipf distribution, so a few customers open most tickets;
+ *   - messages per ticket follow a log-normal distribution (median about 2, with a long tail);
+ *   - tickets are spread over the last year in ID order, and older tickets are more likely to
+ *     be closed, so the open tickets are mostly recent ones;
+ *   - priorities are mostly low, a few tickets are unassigned.
+ *
+ * Rows are written with the batch inserts of DatabaseUtil, one chunk of batchSize tickets (and
+ * their messages) at a time, so memory use does not grow with the number of tickets.
+ *
+ * Usage:
+ *   java util.DatasetGenerator [--customers N] [--agents N] [--tickets N] [--seed S] [--batch-size N]
+ */
+public class DatasetGenerator {
+    public static final long DEFAULT_SEED = 42;
+
+    // Zipf exponent of tickets per customer; higher means more skew
+    private static final double CUSTOMER_SKEW = 1.1;
+    // Log-normal parameters of messages per ticket
+    private static final double MESSAGES_LOG_MEAN = 0.7;
+    private static final double MESSAGES_LOG_DEVIATION = 1.0;
+    private static final int MAX_MESSAGES_PER_TICKET = 200;
+    private static final int HISTORY_DAYS = 365;
+    // Tickets this old are closed with the highest probability; newer ones less often
+    private static final int SETTLED_AFTER_DAYS = 30;
+    private static final double UNASSIGNED_FRACTION = 0.05;
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Ahmed", "Priya", "Wei", "Sofia", "Liam", "Fatima",
+            "Noah", "Olivia", "Lucas", "Aisha", "Mateo", "Emma", "Yuki", "Omar", "Chloe", "Ivan", "Sara", "David"};
+    private static final String[] LAST_NAMES = {"Smith", "Khan", "Garcia", "Chen", "Patel", "Muller", "Rossi", "Kim",
+            "Silva", "Nguyen", "Brown", "Haddad", "Novak", "Ito", "Okafor", "Jensen", "Lopez", "Wilson", "Ali", "Costa"};
+    private static final String[] TOPICS = {"Password reset", "VPN connection drops", "Printer not working",
+            "Email not syncing", "Laptop running slow", "Software installation request", "No access to shared drive",
+            "Account locked", "Wi-Fi keeps disconnecting", "Monitor flickering", "Invoice question", "Refund request",
+            "Order not delivered", "Two-factor authentication", "Application crashes on start"};
+    private static final String[] DEVICES = {"laptop", "desktop", "phone", "tablet", "printer", "router", "monitor"};
+    private static final String[] DETAILS = {"It started after the last update.", "Restarting did not help.",
+            "This is blocking my work.", "It happens a few times a day.", "Colleagues have the same problem.",
+            "I already cleared the cache.", "The error message says access denied.", "It worked fine yesterday."};
+    private static final String[] AGENT_REPLIES = {"Thanks, we are looking into it.",
+            "Could you send a screenshot of the error?", "Please try again now.",
+            "We have escalated this to the second line.", "Can you confirm the problem is solved?",
+            "A technician will contact you today."};
+    private static final String PASSWORD = "Passw0rd!";
+
+    private final Random random;
+    private final int batchSize;
+    private final PrintStream progress;
+    private final LocalDateTime end;
+
+    public DatasetGenerator(long seed) {
+        this(seed, DatabaseUtil.DEFAULT_BATCH_SIZE, null);
+    }
+
+    // progress may be null for no progress output
+    public DatasetGenerator(long seed, int batchSize, PrintStream progress) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.random = new Random(seed);
+        this.batchSize = batchSize;
+        this.progress = progress;
+        // Start of today, so datasets generated on the same day are identical
+        this.end = LocalDate.now().atStartOfDay();
+    }
+
+    public static void main(String[] args) {
+        int customers = 1_000;
+        int agents = 20;
+        int tickets = 10_000;
+        long seed = DEFAULT_SEED;
+        int batchSize = DatabaseUtil.DEFAULT_BATCH_SIZE;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                printUsage("Missing value for " + option);
+                return;
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--customers":
+                    customers = Integer.parseInt(value);
+                    break;
+                case "--agents":
+                    agents = Integer.parseInt(value);
+                    break;
+                case "--tickets":
+                    tickets = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(value);
+                    break;
+                default:
+                    printUsage("Unknown option " + option);
+                    return;
+            }
+        }
+
+        try {
+            Dataset dataset = new DatasetGenerator(seed, batchSize, System.out).generate(customers, agents, tickets);
+            System.out.println("Generated " + dataset + ".");
+        } catch (SQLException e) {
+            System.err.println("Dataset generation failed: " + e.getMessage());
+        } finally {
+            DatabaseUtil.closeConnection();
+        }
+    }
+
+    private static void printUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java util.DatasetGenerator [--customers N] [--agents N] [--tickets N] [--seed S] [--batch-size N]");
+    }
+
+    /*
+     * Inserts the given numbers of customers, agents and tickets, plus the messages of the tickets.
+     * The emails and usernames are numbered from 0, so a generator can only run once per database.
+     */
+    public Dataset generate(int customerCount, int agentCount, int ticketCount) throws SQLException {
+        if (customerCount < 1 || agentCount < 1 || ticketCount < 0) {
+            throw new IllegalArgumentException("At least one customer and one agent are needed.");
+        }
+        long started = System.currentTimeMillis();
+        Dataset dataset = new Dataset();
+
+        for (int i = 0; i < customerCount; i++) {
+            String first = pick(FIRST_NAMES);
+            String last = pick(LAST_NAMES);
+            dataset.customers.add(new Customer(0, first, last,
+                    (first + "." + last + "." + i + "@example.com").toLowerCase(), PASSWORD));
+        }
+        DatabaseUtil.insertCustomers(dataset.customers.iterator(), batchSize);
+        report("customers", customerCount, customerCount, started);
+
+        for (int i = 0; i < agentCount; i++) {
+            String first = pick(FIRST_NAMES);
+            String last = pick(LAST_NAMES);
+            String username = (first.charAt(0) + last + i).toLowerCase();
+            dataset.agents.add(new SupportStaffMember(0, first, last, username, username + "@servicedesk.example.com", PASSWORD));
+        }
+        DatabaseUtil.insertSupportStaff(dataset.agents.iterator(), batchSize);
+        report("agents", agentCount, agentCount, started);
+
+        ZipfSampler customerSampler = new ZipfSampler(customerCount, CUSTOMER_SKEW, random);
+        long spanSeconds = HISTORY_DAYS * 24L * 60 * 60;
+        LocalDateTime start = end.minusSeconds(spanSeconds);
+        long lastReport = System.currentTimeMillis();
+
+        List<Ticket> tickets = new ArrayList<>(batchSize);
+        List<Message> messages = new ArrayList<>();
+        for (int first = 0; first < ticketCount; first += batchSize) {
+            int count = Math.min(batchSize, ticketCount - first);
+            tickets.clear();
+            int[] messageCounts = new int[count];
+            for (int i = 0; i < count; i++) {
+                LocalDateTime createdAt = start.plusSeconds((long) ((first + i + random.nextDouble()) * spanSeconds / ticketCount));
+                tickets.add(newTicket(dataset, customerSampler, createdAt));
+                messageCounts[i] = messageCount();
+            }
+            DatabaseUtil.insertTickets(tickets.iterator(), batchSize);
+
+            messages.clear();
+            for (int i = 0; i < count; i++) {
+                addMessages(messages, tickets.get(i), messageCounts[i]);
+            }
+            DatabaseUtil.insertMessages(messages.iterator(), batchSize);
+
+            if (first == 0) {
+                dataset.firstTicketId = tickets.get(0).getId();
+            }
+            dataset.lastTicketId = tickets.get(count - 1).getId();
+            dataset.ticketCount += count;
+            dataset.messageCount += messages.size();
+            for (Ticket ticket : tickets) {
+                if (ticket.getStatus() == Ticket.Status.OPEN) {
+                    dataset.openTicketCount++;
+                }
+            }
+            if (System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL_MILLIS || first + count == ticketCount) {
+                report("tickets", dataset.ticketCount, ticketCount, started);
+                lastReport = System.currentTimeMillis();
+            }
+        }
+        dataset.millis = System.currentTimeMillis() - started;
+        return dataset;
+    }
+
+    private Ticket newTicket(Dataset dataset, ZipfSampler customerSampler, LocalDateTime createdAt) {
+        Customer customer = dataset.customers.get(customerSampler.next());
+        SupportStaffMember agent = random.nextDouble() < UNASSIGNED_FRACTION
+                ? null
+                : dataset.agents.get(random.nextInt(dataset.agents.size()));
+        String topic = pick(TOPICS);
+        StringBuilder content = new StringBuilder("Problem: ").append(topic.toLowerCase())
+                .append(" on my ").append(pick(DEVICES)).append('.');
+        for (int d = random.nextInt(3); d >= 0; d--) {
+            content.append(' ').append(pick(DETAILS));
+        }
+        double priority = random.nextDouble();
+        Ticket ticket = new Ticket(0, customer, agent, topic, content.toString(), createdAt,
+                priority < 0.6 ? 1 : priority < 0.9 ? 2 : 3);
+
+        double ageDays = Duration.between(createdAt, end).toHours() / 24.0;
+        double closedProbability = 0.1 + 0.85 * Math.min(1, ageDays / SETTLED_AFTER_DAYS);
+        if (random.nextDouble() < closedProbability) {
+            ticket.setStatus(Ticket.Status.CLOSED);
+        }
+        return ticket;
+    }
+
+    // A log-normal number of messages, capped
+    private int messageCount() {
+        double count = Math.exp(MESSAGES_LOG_MEAN + MESSAGES_LOG_DEVIATION * random.nextGaussian());
+        return (int) Math.min(MAX_MESSAGES_PER_TICKET, Math.floor(count));
+    }
+
+    // Adds a conversation alternating between the customer and the agent, minutes to hours apart.
+    // A closed ticket is closed a few hours after its last message.
+    private void addMessages(List<Message> messages, Ticket ticket, int count) {
+        LocalDateTime time = ticket.getCreatedAt();
+        Customer customer = ticket.getCustomer();
+        SupportStaffMember agent = ticket.getAssignedAgent();
+        for (int m = 0; m < count; m++) {
+            time = time.plusMinutes(5 + random.nextInt(240));
+            boolean fromAgent = agent != null && m % 2 == 1;
+            messages.add(fromAgent
+                    ? new Message(0, ticket.getId(), "Agent", agent.getUsername(), pick(AGENT_REPLIES), time)
+                    : new Message(0, ticket.getId(), "Customer", customer.getFirstName() + " " + customer.getLastName(),
+                            pick(DETAILS), time));
+        }
+        if (ticket.getStatus() == Ticket.Status.CLOSED) {
+            ticket.setClosedAt(time.plusMinutes(30 + random.nextInt(600)));
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private void report(String what, long done, long total, long started) {
+        if (progress == null) {
+            return;
+        }
+        double seconds = Math.max(1, System.currentTimeMillis() - started) / 1000.0;
+        progress.printf("  %,d / %,d %s (%d%%), %,.0f %s/s%n", done, total, what, total == 0 ? 100 : done * 100 / total,
+                done / seconds, what);
+    }
+
+    /*
+     * Draws indexes 0..n-1 with probability proportional to 1 / rank^skew. The ranks are shuffled
+     * so the busiest customers are spread over the ID range rather than being the first ones.
+     */
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+        private final int[] indexOfRank;
+        private final Random random;
+
+        private ZipfSampler(int n, double skew, Random random) {
+            this.random = random;
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = total;
+            }
+            indexOfRank = new int[n];
+            for (int i = 0; i < n; i++) {
+                indexOfRank[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = indexOfRank[i];
+                indexOfRank[i] = indexOfRank[j];
+                indexOfRank[j] = swap;
+            }
+        }
+
+        private int next() {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, target);
+            if (rank < 0) {
+                rank = -(rank + 1);
+            }
+            return indexOfRank[Math.min(rank, cumulative.length - 1)];
+        }
+    }
+
+    /*
+     * What generate() inserted. Tickets were inserted without other writers in between, so their
+     * IDs are the range firstTicketId..lastTicketId.
+     */
+    public static final class Dataset {
+        private final List<Customer> customers = new ArrayList<>();
+        private final List<SupportStaffMember> agents = new ArrayList<>();
+        private int firstTicketId;
+        private int lastTicketId;
+        private long ticketCount;
+        private long openTicketCount;
+        private long messageCount;
+        private long millis;
+
+        public List<Customer> getCustomers() {
+            return customers;
+        }
+
+        public List<SupportStaffMember> getAgents() {
+            return agents;
+        }
+
+        public int getFirstTicketId() {
+            return firstTicketId;
+        }
+
+        public int getLastTicketId() {
+            return lastTicketId;
+        }
+
+        public long getTicketCount() {
+            return ticketCount;
+        }
+
+        public long getOpenTicketCount() {
+            return openTicketCount;
+        }
+
+        public long getMessageCount() {
+            return messageCount;
+        }
+
+        // Time taken by generate()
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return customers.size() + " customers, " + agents.size() + " agents, " + ticketCount + " tickets ("
+                    + openTicketCount + " open) and " + messageCount + " messages in " + millis + " ms";
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import service.desk.system.Message;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Write-behind queue for new messages. Messages are collected in a bounded ring buffer and a single
+ * writer thread stores them with DatabaseUtil.insertMessages, one transaction per batch, so a burst
+ * of messages costs one log flush per batch instead of one per message.
+ *
+ * A batch is written as soon as it holds batchSize messages, or flushIntervalMillis after its first
+ * message arrived, whichever comes first. The future returned by submit completes once the message
+ * is committed (with its generated ID set), so callers that wait for it get the same durability as
+ * a direct insert. When the buffer is full, submit blocks until the writer catches up or the offer
+ * timeout passes, which slows producers down instead of letting the queue grow.
+ *
+ * If a batch fails, its messages are retried one by one so a single bad message (e.g. for a ticket
+ * that was deleted) only fails its own future.
+ */
+public class MessageIngestionQueue implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 20;
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 5_000;
+
+    private final BlockingQueue<Pending> buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread writer;
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private volatile boolean closed;
+
+    public MessageIngestionQueue() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_CAPACITY, DEFAULT_OFFER_TIMEOUT_MILLIS);
+    }
+
+    public MessageIngestionQueue(int batchSize, long flushIntervalMillis, int capacity, long offerTimeoutMillis) {
+        if (batchSize < 1 || capacity < 1 || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Batch size, flush interval and capacity must be at least 1.");
+        }
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.writer = new Thread(this::writeLoop, "message-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Queues a message; the future completes with the stored message once its batch is committed.
+    // Blocks while the buffer is full and fails with a RejectedExecutionException after the offer timeout.
+    public CompletableFuture<Message> submit(Message message) {
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        try {
+            DatabaseUtil.validateMessage(message);
+        } catch (SQLException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("Message queue is closed."));
+            return future;
+        }
+        try {
+            if (!buffer.offer(new Pending(message, future), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException("Message queue is full."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // Messages waiting to be written
+    public int getQueuedCount() {
+        return buffer.size();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getMessagesWritten() {
+        return messagesWritten.get();
+    }
+
+    // Stops accepting messages and waits until everything already queued has been written
+    @Override
+    public void close() {
+        closed = true;
+        // Not interrupted: an interrupt inside a JDBC call can leave the connection unusable.
+        // The writer notices within one flush interval.
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A submit that raced with close() may have slipped in after the writer stopped
+        Pending late;
+        while ((late = buffer.poll()) != null) {
+            late.future.completeExceptionally(new RejectedExecutionException("Message queue is closed."));
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Nothing interrupts the writer on purpose; stop waiting and write what is queued
+                closed = true;
+                buffer.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits for a first message, then for more until the batch is full or the flush interval has passed
+    private void collectBatch(List<Pending> batch) throws InterruptedException {
+        Pending first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            if (buffer.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            messages.add(pending.message);
+        }
+        try {
+            DatabaseUtil.insertMessages(messages);
+            batchesWritten.incrementAndGet();
+            messagesWritten.addAndGet(batch.size());
+            for (Pending pending : batch) {
+                pending.future.complete(pending.message);
+            }
+        } catch (SQLException e) {
+            // The batch was rolled back; store the messages one at a time so only the bad ones fail
+            for (Pending pending : batch) {
+                try {
+                    DatabaseUtil.insertMessage(pending.message);
+                    messagesWritten.incrementAndGet();
+                    pending.future.complete(pending.message);
+                } catch (SQLException | RuntimeException single) {
+                    pending.future.completeExceptionally(single);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /*
+     * A queued message and the future of its caller.
+     */
+    private static final class Pending {
+        private final Message message;
+        private final CompletableFuture<Message> future;
+
+        private Pending(Message message, CompletableFuture<Message> future) {
+            this.message = message;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * In-process counters and latency histograms, looked up by name, e.g.
+ *   "db.messages.inserted"              a counter
+ *   "service.TicketService.addTicket"  a timer of a service method
+ *   "jdbc.SELECT * FROM Messages ..."  a timer of a statement, recorded by the connection pool
+ *
+ * Counters are LongAdders and timers are LatencyHistograms, so updating either never blocks.
+ * The metrics can be read as a text snapshot, as maps (for the HTTP API) or over JMX under
+ * "servicedesk:type=Metrics" once registerMBean() was called.
+ *
+ * Setting -Dservicedesk.metrics.enabled=false turns recording into no-ops and stops the
+ * connection pool from wrapping statements.
+ */
+public class MetricsRegistry {
+    public static final String OBJECT_NAME = "servicedesk:type=Metrics";
+    // Distinct metric names kept; later names share one overflow metric so SQL built at run time
+    // cannot grow the registry without bound
+    private static final int MAX_METRICS = 2_000;
+    private static final String OVERFLOW_NAME = "other";
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry(
+            Boolean.parseBoolean(System.getProperty("servicedesk.metrics.enabled", "true")));
+
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // The registry shared by DatabaseUtil, the connection pool and the services
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void increment(String name) {
+        if (enabled) {
+            counter(name).increment();
+        }
+    }
+
+    public void add(String name, long delta) {
+        if (enabled) {
+            counter(name).add(delta);
+        }
+    }
+
+    // Records the time since startNanos, taken with System.nanoTime(), in the named timer
+    public void recordSince(String name, long startNanos) {
+        if (enabled) {
+            timer(name).recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(counters.size() < MAX_METRICS ? name : OVERFLOW_NAME, key -> new LongAdder());
+        }
+        return counter;
+    }
+
+    public LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(timers.size() < MAX_METRICS ? name : OVERFLOW_NAME, key -> new LatencyHistogram());
+        }
+        return timer;
+    }
+
+    // Current value of a counter, 0 if it was never incremented
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    public SortedMap<String, LatencyHistogram> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    // Clears every counter and timer, e.g. between load test runs
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        timers.values().forEach(LatencyHistogram::reset);
+    }
+
+    /*
+     * All metrics as text, one per line and sorted by name:
+     *   db.messages.inserted 42
+     *   service.TicketService.addTicket count=10 mean=812us p50=640us p99=2944us p999=2944us max=2950us
+     */
+    public String snapshot() {
+        StringBuilder text = new StringBuilder();
+        getCounters().forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+        getTimers().forEach((name, timer) -> text.append(name).append(' ').append(timer).append('\n'));
+        return text.toString();
+    }
+
+    /*
+     * Publishes the registry in the platform MBean server. Registering it again is a no-op.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            System.out.println("Could not register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Exposes every counter as a Long attribute, every timer as "<name>.count", ".mean", ".p50",
+     * ".p99", ".p999" and ".max" attributes (in microseconds), the text snapshot as "Snapshot",
+     * and a "reset" operation. The attribute list follows the metrics as they are created.
+     */
+    private final class MetricsMBean implements DynamicMBean {
+        private static final String SNAPSHOT = "Snapshot";
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            if (attribute.equals(SNAPSHOT)) {
+                return snapshot();
+            }
+            LongAdder counter = counters.get(attribute);
+            if (counter != null) {
+                return counter.sum();
+            }
+            int dot = attribute.lastIndexOf('.');
+            LatencyHistogram timer = dot > 0 ? timers.get(attribute.substring(0, dot)) : null;
+            if (timer != null) {
+                switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return timer.getCount();
+                    case "mean":
+                        return timer.getMeanMicros();
+                    case "p50":
+                        return timer.getPercentileMicros(50);
+                    case "p99":
+                        return timer.getPercentileMicros(99);
+                    case "p999":
+                        return timer.getPercentileMicros(99.9);
+                    case "max":
+                        return timer.getMaxMicros();
+                    default:
+                        break;
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            if (actionName.equals("reset")) {
+                reset();
+                return null;
+            }
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            attributes.add(new MBeanAttributeInfo(SNAPSHOT, String.class.getName(), "All metrics as text", true, false, false));
+            for (String name : getCounters().keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, Long.class.getName(), "Counter", true, false, false));
+            }
+            for (Map.Entry<String, LatencyHistogram> timer : getTimers().entrySet()) {
+                for (String field : new String[]{"count", "p50", "p99", "p999", "max"}) {
+                    attributes.add(new MBeanAttributeInfo(timer.getKey() + "." + field, Long.class.getName(),
+                            "Timer " + field + (field.equals("count") ? "" : " in microseconds"), true, false, false));
+                }
+                attributes.add(new MBeanAttributeInfo(timer.getKey() + ".mean", Double.class.getName(),
+                        "Timer mean in microseconds", true, false, false));
+            }
+            MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears every counter and timer",
+                    null, "void", MBeanOperationInfo.ACTION);
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Service desk counters and latency timers",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+        }
+    }
+}
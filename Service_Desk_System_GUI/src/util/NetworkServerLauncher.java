@@ -0,0 +1,115 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.sql.SQLException;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Starts or attaches to a Derby Network Server on this machine.
+ *
+ * If something is already listening on the host and port, the server is assumed to be running and
+ * is simply used. Otherwise a server is started inside this JVM. The server classes live in
+ * derbynet.jar, which is not bundled with the project, so they are loaded by reflection and a
+ * clear error is raised when the jar is missing. A server started here stops when this JVM exits,
+ * so the process that starts it should be the one that stays up longest (e.g. ServiceDeskServer).
+ */
+public final class NetworkServerLauncher {
+    private static final String SERVER_CLASS = "org.apache.derby.drda.NetworkServerControl";
+    private static final int CONNECT_TIMEOUT_MILLIS = 500;
+    private static final long STARTUP_TIMEOUT_MILLIS = 10_000;
+
+    private static Object startedServer;
+
+    private NetworkServerLauncher() {
+    }
+
+    // Makes sure a network server is accepting connections on host:port, starting one if needed
+    public static synchronized void ensureRunning(String host, int port) throws SQLException {
+        if (isListening(host, port)) {
+            return;
+        }
+        InetAddress address;
+        try {
+            address = InetAddress.getByName(host);
+            if (!address.isLoopbackAddress() && NetworkInterface.getByInetAddress(address) == null) {
+                throw new SQLException("No Derby Network Server is running on " + host + ":" + port
+                        + " and it is not a local address, so none can be started.");
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot resolve database host " + host + ": " + e.getMessage(), e);
+        }
+
+        try {
+            Class<?> serverClass = Class.forName(SERVER_CLASS);
+            Object server = serverClass.getConstructor(InetAddress.class, int.class).newInstance(address, port);
+            serverClass.getMethod("start", PrintWriter.class).invoke(server, (PrintWriter) null);
+            waitUntilUp(serverClass, server, host, port);
+            startedServer = server;
+            System.out.println("Started Derby Network Server on " + host + ":" + port);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("No Derby Network Server is running on " + host + ":" + port
+                    + " and derbynet.jar is not on the classpath to start one.", e);
+        } catch (ReflectiveOperationException e) {
+            Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+            throw new SQLException("Could not start the Derby Network Server: " + cause.getMessage(), cause);
+        }
+    }
+
+    // Stops the server started by ensureRunning, if any; servers started elsewhere are left alone
+    public static synchronized void shutdown() {
+        if (startedServer == null) {
+            return;
+        }
+        try {
+            startedServer.getClass().getMethod("shutdown").invoke(startedServer);
+            System.out.println("Derby Network Server stopped.");
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Error stopping the Derby Network Server: " + e.getMessage());
+        }
+        startedServer = null;
+    }
+
+    // True once ping() succeeds; start() returns before the server accepts connections
+    private static void waitUntilUp(Class<?> serverClass, Object server, String host, int port)
+            throws ReflectiveOperationException, SQLException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                serverClass.getMethod("ping").invoke(server);
+                return;
+            } catch (InvocationTargetException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new SQLException("Derby Network Server on " + host + ":" + port + " did not start in time.", e.getCause());
+                }
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while starting the Derby Network Server.", e);
+            }
+        }
+    }
+
+    private static boolean isListening(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
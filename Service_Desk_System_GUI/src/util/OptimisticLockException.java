@@ -0,0 +1,40 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.sql.SQLException;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Thrown when a ticket update finds that the row has been changed since the ticket was loaded,
+ * i.e. its version column no longer matches. Nothing has been written; the caller should reload
+ * the ticket and decide whether to apply the change again.
+ */
+public class OptimisticLockException extends SQLException {
+    private static final long serialVersionUID = 1L;
+    // SQL state for a serialization failure, so callers that only look at SQLException can tell
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    private final int ticketId;
+    private final int expectedVersion;
+
+    public OptimisticLockException(int ticketId, int expectedVersion) {
+        super("Ticket " + ticketId + " was changed by someone else. Reload the ticket and try again.", SERIALIZATION_FAILURE);
+        this.ticketId = ticketId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    // The version the update expected to find
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Turns an open query into a lazily read Stream, one row per element.
+ *
+ * The connection, statement and result set stay open while the stream is consumed and are
+ * closed when the stream is closed, so callers must use try-with-resources. They are also
+ * closed as soon as the last row has been read or reading fails.
+ */
+final class ResultSetStream {
+
+    private ResultSetStream() {
+    }
+
+    // Builds a stream over the rows of rs; the resources are owned by the stream from here on
+    static <T> Stream<T> of(Connection conn, PreparedStatement pstmt, ResultSet rs, RowMapper<T> mapper) {
+        Resources resources = new Resources(conn, pstmt, rs);
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (resources.closed) {
+                    return false;
+                }
+                try {
+                    if (!rs.next()) {
+                        resources.close();
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    resources.close();
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(resources::close);
+    }
+
+    // Runs a prepared query and streams its rows, closing everything if the query itself fails
+    static <T> Stream<T> query(Connection conn, PreparedStatement pstmt, RowMapper<T> mapper) throws SQLException {
+        ResultSet rs;
+        try {
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            new Resources(conn, pstmt, null).close();
+            throw e;
+        }
+        return of(conn, pstmt, rs, mapper);
+    }
+
+    /*
+     * Builds one element from the current row.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /*
+     * The JDBC objects behind a stream, closed once in reverse order.
+     */
+    private static final class Resources {
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private boolean closed;
+
+        private Resources(Connection conn, PreparedStatement pstmt, ResultSet rs) {
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+            } catch (SQLException e) {
+                System.out.println("Error closing result set: " + e.getMessage());
+            }
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing statement: " + e.getMessage());
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+}
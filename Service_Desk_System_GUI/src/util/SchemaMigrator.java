@@ -0,0 +1,224 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Brings the database schema up to date using an ordered list of versioned migrations.
+ *
+ * The applied version is stored in the SchemaVersion table, so a startup check is a single
+ * query. Each migration runs in its own transaction together with the update of the version
+ * table. Migrations are also idempotent: "already exists" errors are ignored, which lets
+ * databases created before versioning was introduced pick up the schema without failing.
+ */
+public class SchemaMigrator {
+    private static final String VERSION_TABLE = "SchemaVersion";
+
+    // Derby SQL states for "object already exists" and "table does not exist"
+    private static final String ALREADY_EXISTS = "X0Y32";
+    private static final String TABLE_NOT_FOUND = "42X05";
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        // Version 1: the original tables
+        MIGRATIONS.add(new Migration(1, "Create base tables",
+                "CREATE TABLE Customers (" +
+                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                        "firstName VARCHAR(100)," +
+                        "lastName VARCHAR(100)," +
+                        "email VARCHAR(100) UNIQUE," +
+                        "password VARCHAR(100))",
+                "CREATE TABLE SupportStaff (" +
+                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                        "firstName VARCHAR(100)," +
+                        "lastName VARCHAR(100)," +
+                        "username VARCHAR(50)," +
+                        "email VARCHAR(100) UNIQUE," +
+                        "password VARCHAR(100))",
+                "CREATE TABLE Tickets (" +
+                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                        "customerId INT," +
+                        "agentId INT," +
+                        "topic VARCHAR(100)," +
+                        "content VARCHAR(255)," +
+                        "createdAt TIMESTAMP," +
+                        "priority INT," +
+                        "status VARCHAR(10)," +
+                        "FOREIGN KEY (customerId) REFERENCES Customers(id)," +
+                        "FOREIGN KEY (agentId) REFERENCES SupportStaff(id))",
+                "CREATE TABLE Messages (" +
+                        "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY," +
+                        "ticket_id INT," +
+                        "sender_type VARCHAR(50)," +
+                        "sender_name VARCHAR(100)," +
+                        "content VARCHAR(255)," +
+                        "timestamp TIMESTAMP," +
+                        "FOREIGN KEY (ticket_id) REFERENCES Tickets(id))"));
+
+        // Version 2: secondary indexes on the columns every screen filters on. Lookups of tickets by
+        // customer or agent and status use the paged listing indexes of version 3.
+        MIGRATIONS.add(new Migration(2, "Add indexes on ticket and message lookup columns",
+                "CREATE INDEX idx_tickets_status_priority ON Tickets (status, priority DESC, id)",
+                "CREATE INDEX idx_messages_ticket_time ON Messages (ticket_id, timestamp)",
+                "CREATE INDEX idx_supportstaff_username ON SupportStaff (username)"));
+
+        // Version 3: indexes that serve the keyset-paged listings without a sort
+        MIGRATIONS.add(new Migration(3, "Add indexes for paged ticket listings by customer and agent",
+                "CREATE INDEX idx_tickets_customer_page ON Tickets (customerId, status, priority DESC, id)",
+                "CREATE INDEX idx_tickets_agent_page ON Tickets (agentId, status, priority DESC, id)"));
+
+        // Version 4: lets a conversation be read incrementally by message ID
+        MIGRATIONS.add(new Migration(4, "Add index for fetching new messages of a ticket",
+                "CREATE INDEX idx_messages_ticket_id ON Messages (ticket_id, id)"));
+
+        // Version 5: row version for optimistic concurrency on ticket updates
+        MIGRATIONS.add(new Migration(5, "Add version column to tickets",
+                "ALTER TABLE Tickets ADD COLUMN version INT NOT NULL DEFAULT 0"));
+
+        // Version 6: closed tickets and their messages are moved to history tables by TicketArchiver.
+        // Tickets closed before this version count as closed now.
+        MIGRATIONS.add(new Migration(6, "Add closedAt and the ticket and message history tables",
+                "ALTER TABLE Tickets ADD COLUMN closedAt TIMESTAMP",
+                "UPDATE Tickets SET closedAt = CURRENT_TIMESTAMP WHERE status = 'CLOSED' AND closedAt IS NULL",
+                "CREATE INDEX idx_tickets_status_closed ON Tickets (status, closedAt)",
+                "CREATE TABLE TicketsHistory (" +
+                        "id INT PRIMARY KEY," +
+                        "customerId INT," +
+                        "agentId INT," +
+                        "topic VARCHAR(100)," +
+                        "content VARCHAR(255)," +
+                        "createdAt TIMESTAMP," +
+                        "priority INT," +
+                        "status VARCHAR(10)," +
+                        "version INT NOT NULL DEFAULT 0," +
+                        "closedAt TIMESTAMP," +
+                        "archivedAt TIMESTAMP," +
+                        "FOREIGN KEY (customerId) REFERENCES Customers(id)," +
+                        "FOREIGN KEY (agentId) REFERENCES SupportStaff(id))",
+                "CREATE TABLE MessagesHistory (" +
+                        "id INT PRIMARY KEY," +
+                        "ticket_id INT," +
+                        "sender_type VARCHAR(50)," +
+                        "sender_name VARCHAR(100)," +
+                        "content VARCHAR(255)," +
+                        "timestamp TIMESTAMP," +
+                        "FOREIGN KEY (ticket_id) REFERENCES TicketsHistory(id))",
+                "CREATE INDEX idx_tickets_history_customer ON TicketsHistory (customerId, id)",
+                "CREATE INDEX idx_tickets_history_agent ON TicketsHistory (agentId, id)",
+                "CREATE INDEX idx_messages_history_ticket ON MessagesHistory (ticket_id, id)"));
+    }
+
+    // Returns the version the schema will have once all migrations are applied
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Applies every migration newer than the stored schema version and returns the resulting version
+    public static synchronized int migrate(Connection conn) throws SQLException {
+        int current = getCurrentVersion(conn);
+        if (current >= getLatestVersion()) {
+            return current;
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) {
+                    continue;
+                }
+                try {
+                    migration.apply(conn);
+                    recordVersion(conn, migration);
+                    conn.commit();
+                    current = migration.version;
+                    System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return current;
+    }
+
+    // Reads the applied schema version, creating the version table on a fresh database
+    private static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + VERSION_TABLE)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (!TABLE_NOT_FOUND.equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE " + VERSION_TABLE + " (" +
+                    "version INT PRIMARY KEY," +
+                    "description VARCHAR(200)," +
+                    "appliedAt TIMESTAMP)");
+        }
+        return 0;
+    }
+
+    private static void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String insertSQL = "INSERT INTO " + VERSION_TABLE + " (version, description, appliedAt) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            pstmt.executeUpdate();
+        }
+    }
+
+    /*
+     * A numbered schema change made of one or more DDL/DML statements.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = Collections.unmodifiableList(Arrays.asList(statements));
+        }
+
+        // Runs the statements, skipping objects that already exist
+        private void apply(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    try {
+                        stmt.executeUpdate(sql);
+                    } catch (SQLException e) {
+                        if (!ALREADY_EXISTS.equals(e.getSQLState())) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
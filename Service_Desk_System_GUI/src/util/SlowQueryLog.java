@@ -0,0 +1,258 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Writes statements that take longer than a threshold to a rotating log file, with their SQL,
+ * redacted bind parameters, row count and, when available, the plan Derby used for them.
+ *
+ * The connection pool reports every statement execution here (see StatementMetrics). A query is
+ * measured from its execution until its result set is closed, so reading the rows counts too.
+ *
+ * Derby only records a plan while runtime statistics are switched on for the connection, which
+ * costs time on every statement, so they are switched on for a sample of executions only:
+ *   - a random fraction (sampleRate) of all executions, and
+ *   - the next execution of a statement that was slow without a plan.
+ * At most maxEntriesPerMinute entries are written; the rest are only counted.
+ *
+ * String parameters are replaced by their length, since they hold names, emails, passwords and
+ * message text. Numbers, dates and nulls are written as they are.
+ *
+ * Settings are read from system properties by getDefault():
+ *   servicedesk.slowlog.thresholdMillis  log statements slower than this (default 500, negative disables)
+ *   servicedesk.slowlog.sampleRate       fraction of executions run with runtime statistics (default 0.01)
+ *   servicedesk.slowlog.maxPerMinute     entries written per minute at most (default 60)
+ *   servicedesk.slowlog.file             FileHandler pattern of the log (default servicedesk-slow-%g.log)
+ */
+public class SlowQueryLog {
+    private static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    private static final double DEFAULT_SAMPLE_RATE = 0.01;
+    private static final int DEFAULT_MAX_ENTRIES_PER_MINUTE = 60;
+    private static final String DEFAULT_FILE_PATTERN = "servicedesk-slow-%g.log";
+    // Rotation: files of at most FILE_LIMIT_BYTES, FILE_COUNT of them
+    private static final int FILE_LIMIT_BYTES = 10 * 1024 * 1024;
+    private static final int FILE_COUNT = 5;
+    // Statements remembered as slow without a plan, so they are not a way to grow memory
+    private static final int MAX_SUSPECTS = 1_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static volatile SlowQueryLog defaultLog;
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxEntriesPerMinute;
+    private final String filePattern;
+    private final Set<String> suspects = ConcurrentHashMap.newKeySet();
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    // Guarded by this
+    private FileHandler handler;
+    private long windowStart;
+    private int windowEntries;
+    private boolean closed;
+
+    // thresholdMillis below 0 disables the log
+    public SlowQueryLog(long thresholdMillis, double sampleRate, int maxEntriesPerMinute, String filePattern) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+        this.maxEntriesPerMinute = maxEntriesPerMinute;
+        this.filePattern = filePattern;
+    }
+
+    // The log the connection pool reports to, created from the system properties on first use
+    public static SlowQueryLog getDefault() {
+        SlowQueryLog log = defaultLog;
+        if (log == null) {
+            synchronized (SlowQueryLog.class) {
+                if (defaultLog == null) {
+                    defaultLog = new SlowQueryLog(
+                            Long.getLong("servicedesk.slowlog.thresholdMillis", DEFAULT_THRESHOLD_MILLIS),
+                            Double.parseDouble(System.getProperty("servicedesk.slowlog.sampleRate", String.valueOf(DEFAULT_SAMPLE_RATE))),
+                            Integer.getInteger("servicedesk.slowlog.maxPerMinute", DEFAULT_MAX_ENTRIES_PER_MINUTE),
+                            System.getProperty("servicedesk.slowlog.file", DEFAULT_FILE_PATTERN));
+                }
+                log = defaultLog;
+            }
+        }
+        return log;
+    }
+
+    // Replaces the log the connection pool reports to, e.g. to change the threshold at run time.
+    // The previous log is closed; statements already running may still report to it.
+    public static synchronized void setDefault(SlowQueryLog log) {
+        SlowQueryLog previous = defaultLog;
+        defaultLog = log;
+        if (previous != null && previous != log) {
+            previous.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return isEnabled() && elapsedNanos >= thresholdNanos;
+    }
+
+    // Whether the next execution of the SQL should run with runtime statistics
+    boolean shouldCapturePlan(String sql) {
+        if (!isEnabled()) {
+            return false;
+        }
+        return suspects.remove(sql) || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /*
+     * Logs a slow execution. parameters holds the bind values by index (index 0 unused) and may be
+     * null; rows is -1 when unknown; plan is null when runtime statistics were off, in which case
+     * the next execution of the same SQL is sampled.
+     */
+    void log(String sql, Object[] parameters, long elapsedNanos, long rows, String plan) {
+        if (plan == null && suspects.size() < MAX_SUSPECTS) {
+            suspects.add(sql);
+        }
+        if (!tryAcquire()) {
+            suppressed.increment();
+            return;
+        }
+        StringBuilder entry = new StringBuilder();
+        entry.append(TIME_FORMAT.format(LocalDateTime.now()))
+                .append(String.format(" slow statement %.1f ms (threshold %d ms)", elapsedNanos / 1e6,
+                        TimeUnit.NANOSECONDS.toMillis(thresholdNanos)))
+                .append(", rows ").append(rows < 0 ? "unknown" : String.valueOf(rows))
+                .append(", thread ").append(Thread.currentThread().getName()).append('\n');
+        entry.append("  SQL: ").append(WHITESPACE.matcher(sql.trim()).replaceAll(" ")).append('\n');
+        if (parameters != null && parameters.length > 1) {
+            entry.append("  Parameters:");
+            for (int i = 1; i < parameters.length; i++) {
+                entry.append(' ').append(i).append('=').append(redact(parameters[i]));
+            }
+            entry.append('\n');
+        }
+        if (plan != null) {
+            entry.append("  Plan:\n");
+            for (String line : plan.split("\\R")) {
+                if (!line.trim().isEmpty()) {
+                    entry.append("    ").append(line).append('\n');
+                }
+            }
+        } else {
+            entry.append("  Plan: not captured; the next execution will be sampled\n");
+        }
+        write(entry.toString());
+    }
+
+    // A bind value as it may appear in the log
+    static String redact(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Date || value instanceof TemporalAccessor) {
+            return value.toString();
+        }
+        if (value instanceof String) {
+            return "<string:" + ((String) value).length() + ">";
+        }
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+
+    // Switches Derby's runtime statistics on or off for the connection
+    static void setRuntimeStatistics(Connection connection, boolean on) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(" + (on ? 1 : 0) + ")");
+        }
+    }
+
+    // The statistics, including the plan, of the statement last executed on the connection
+    static String getRuntimeStatistics(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    // At most maxEntriesPerMinute entries in each minute
+    private synchronized boolean tryAcquire() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= 60_000) {
+            windowStart = now;
+            windowEntries = 0;
+        }
+        if (windowEntries >= maxEntriesPerMinute) {
+            return false;
+        }
+        windowEntries++;
+        return true;
+    }
+
+    // Opens the file on the first entry, so no file is created while nothing is slow
+    private synchronized void write(String entry) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (handler == null) {
+                handler = new FileHandler(filePattern, FILE_LIMIT_BYTES, FILE_COUNT, true);
+                handler.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return record.getMessage();
+                    }
+                });
+            }
+            handler.publish(new LogRecord(Level.WARNING, entry));
+            handler.flush();
+            logged.increment();
+        } catch (IOException e) {
+            System.out.println("Could not write the slow query log " + filePattern + ": " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    // Entries written so far
+    public long getLoggedCount() {
+        return logged.sum();
+    }
+
+    // Slow statements left out because of maxEntriesPerMinute
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (handler != null) {
+            handler.close();
+            handler = null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ *
+ * Callers get a wrapper whose close() clears the statement and puts it back in the cache
+ * instead of closing it, so the usual try-with-resources code reuses compiled statements.
+ * Result sets the caller forgot to close are closed when the statement is returned, and the
+ * fetch size, maximum rows, query timeout, fetch direction and maximum field size go back to the
+ * values the statement was prepared with. A statement whose other settings were changed, such as
+ * its cursor name, is closed instead of being returned to the cache.
+ * A statement that is already checked out (for example by an outer call on the same
+ * connection) is never handed out twice; the second caller gets an uncached statement.
+ *
+ * Only used by the thread that has the connection checked out, so it is not synchronized.
+ */
+public class StatementCache {
+    // Statement settings that release() puts back; changing any other one keeps the statement out of the cache
+    private static final Set<String> RESETTABLE_SETTINGS = Set.of(
+            "setFetchSize", "setMaxRows", "setQueryTimeout", "setFetchDirection", "setMaxFieldSize");
+
+    private final Connection connection;
+    private final int capacity;
+    private final Stats stats;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    public StatementCache(Connection connection, int capacity, Stats stats) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Returns a cached statement for the SQL, preparing and caching it on a miss
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        String key = autoGeneratedKeys + ":" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            stats.hits.increment();
+        } else if (cached != null) {
+            // Already checked out further up the call stack on this connection
+            stats.misses.increment();
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            stats.misses.increment();
+            cached = new CachedStatement(connection.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, cached);
+            evictIfNeeded();
+        }
+        cached.inUse = true;
+        cached.closed = false;
+        return cached.newHandle();
+    }
+
+    // Closes the least recently used statements that are not checked out once over capacity
+    private void evictIfNeeded() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                closeQuietly(eldest.statement);
+                stats.evictions.increment();
+            }
+        }
+    }
+
+    // Closes every cached statement; called before the physical connection is closed
+    public void close() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close cached statement: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Hit, miss and eviction counters shared by all statement caches of a pool.
+     */
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        // Fraction of prepareStatement calls served from a cache
+        public double getHitRate() {
+            long total = getHits() + getMisses();
+            return total == 0 ? 0.0 : (double) getHits() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%",
+                    getHits(), getMisses(), getEvictions(), getHitRate() * 100);
+        }
+    }
+
+    /*
+     * A physical statement owned by the cache, plus the state of its current checkout.
+     */
+    private final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+        private boolean closed;
+        // The settings as prepared, taken before the first change; null until a setting is changed
+        private int[] defaultSettings;
+        private boolean settingsChanged;
+        private boolean notReusable;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement newHandle() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            if (method.getDeclaringClass() == Statement.class) {
+                trackSetting(method.getName());
+            }
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        // Notes a change of a statement setting, keeping the values it replaces the first time
+        private void trackSetting(String methodName) throws SQLException {
+            if (RESETTABLE_SETTINGS.contains(methodName)) {
+                if (defaultSettings == null) {
+                    defaultSettings = new int[]{statement.getFetchSize(), statement.getMaxRows(),
+                            statement.getQueryTimeout(), statement.getFetchDirection(), statement.getMaxFieldSize()};
+                }
+                settingsChanged = true;
+            } else if (methodName.startsWith("set") || methodName.equals("closeOnCompletion")) {
+                notReusable = true;
+            }
+        }
+
+        // Resets the statement for its next user and makes it available again
+        private void release() throws SQLException {
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                openResults.clear();
+                statement.clearParameters();
+                statement.clearBatch();
+                if (notReusable) {
+                    discard();
+                    return;
+                }
+                if (settingsChanged) {
+                    statement.setFetchSize(defaultSettings[0]);
+                    statement.setMaxRows(defaultSettings[1]);
+                    statement.setQueryTimeout(defaultSettings[2]);
+                    statement.setFetchDirection(defaultSettings[3]);
+                    statement.setMaxFieldSize(defaultSettings[4]);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                // A statement that cannot be reset is dropped from the cache
+                discard();
+                return;
+            } finally {
+                inUse = false;
+            }
+            evictIfNeeded();
+        }
+
+        // Drops the statement from the cache and closes it
+        private void discard() {
+            statements.values().remove(this);
+            closeQuietly(statement);
+        }
+    }
+}
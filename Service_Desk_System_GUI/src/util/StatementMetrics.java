@@ -0,0 +1,352 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Wraps a statement handed out by the connection pool so that every execute call is timed in
+ * the MetricsRegistry under "jdbc." plus the SQL, and every failure counted under "jdbc.errors".
+ * Only the execution is timed, not reading the rows of a result set.
+ *
+ * When a SlowQueryLog is given, the wrapper also keeps the bind parameters, counts the rows read
+ * from the result set it returns, and reports executions that turn out slow to the log. For the
+ * executions the log samples, Derby's runtime statistics are switched on just around the
+ * statement and read back once it has finished.
+ *
+ * Runtime statistics belong to the connection and describe whatever ran on it last, so a plan is
+ * only captured while no other query is open on the connection. If another statement runs on the
+ * connection before a captured query's result set is closed, for example from a nested lease, the
+ * capture is given up and statistics are switched off straight away; the query is then logged
+ * without a plan and sampled again next time.
+ */
+final class StatementMetrics implements InvocationHandler {
+    private static final int MAX_NAME_LENGTH = 160;
+    // Runs of placeholders, as in the IN lists built for a number of IDs
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_CACHED_NAMES = 1_000;
+    private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<>();
+    // Bind values beyond this index are not kept for the slow query log
+    private static final int MAX_PARAMETERS = 100;
+    // Queries with an open result set, by physical connection; connections without any are absent
+    private static final ConcurrentHashMap<Connection, OpenQueries> OPEN_QUERIES = new ConcurrentHashMap<>();
+
+    private final Statement statement;
+    private final MetricsRegistry metrics;
+    // Null for a plain Statement, whose SQL comes with each execute call
+    private final String name;
+    private final String sql;
+    // Null when slow statements are not logged
+    private final SlowQueryLog slowLog;
+    // Bind values by parameter index, kept for the slow query log only
+    private Object[] parameters;
+    // The query whose result set is still open; it is measured until that is closed
+    private PendingQuery pending;
+
+    private StatementMetrics(Statement statement, String sql, MetricsRegistry metrics, SlowQueryLog slowLog) {
+        this.statement = statement;
+        this.metrics = metrics;
+        this.sql = sql;
+        this.name = sql != null ? nameOf(sql) : null;
+        this.slowLog = slowLog;
+    }
+
+    // Returns a proxy of the same statement interface (Statement, PreparedStatement or CallableStatement);
+    // slowLog may be null
+    static Object wrap(Class<?> type, Statement statement, String sql, MetricsRegistry metrics, SlowQueryLog slowLog) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new StatementMetrics(statement, sql, metrics, slowLog));
+    }
+
+    // The metric name of a statement: its SQL on one line, placeholder lists folded and cut to length
+    static String nameOf(String sql) {
+        String name = NAMES.get(sql);
+        if (name == null) {
+            name = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+            name = PLACEHOLDER_LIST.matcher(name).replaceAll("?...");
+            if (name.length() > MAX_NAME_LENGTH) {
+                name = name.substring(0, MAX_NAME_LENGTH) + "...";
+            }
+            name = "jdbc." + name;
+            if (NAMES.size() < MAX_CACHED_NAMES) {
+                NAMES.put(sql, name);
+            }
+        }
+        return name;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return statement.toString();
+            default:
+                break;
+        }
+        if (!method.getName().startsWith("execute")) {
+            if (slowLog != null) {
+                trackCall(method, args);
+            }
+            return invokeOnStatement(method, args);
+        }
+        String text = sql != null ? sql : args != null && args.length > 0 ? (String) args[0] : null;
+        String metric = text != null ? (name != null ? name : nameOf(text)) : "jdbc.batch";
+        if (slowLog == null) {
+            long start = System.nanoTime();
+            try {
+                return invokeOnStatement(method, args);
+            } catch (SQLException e) {
+                metrics.increment("jdbc.errors");
+                throw e;
+            } finally {
+                metrics.recordSince(metric, start);
+            }
+        }
+
+        finishPending();
+        Connection connection = statement.getConnection();
+        String logged = text != null ? text : "batch";
+        boolean capture = claimStatistics(connection) && slowLog.shouldCapturePlan(logged) && setRuntimeStatistics(true);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invokeOnStatement(method, args);
+        } catch (SQLException e) {
+            metrics.increment("jdbc.errors");
+            if (capture) {
+                setRuntimeStatistics(false);
+            }
+            throw e;
+        } finally {
+            metrics.recordSince(metric, start);
+        }
+        if (result instanceof ResultSet) {
+            pending = new PendingQuery(connection, logged, start, capture, (ResultSet) result);
+            opened(pending);
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, pending);
+        }
+        finish(logged, start, rowCountOf(result), capture);
+        return result;
+    }
+
+    // Keeps the bind values and reports an open query when the statement is closed
+    private void trackCall(Method method, Object[] args) throws SQLException {
+        String methodName = method.getName();
+        if (methodName.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            int index = (Integer) args[0];
+            if (index > 0 && index <= MAX_PARAMETERS) {
+                if (parameters == null || parameters.length <= index) {
+                    parameters = Arrays.copyOf(parameters != null ? parameters : new Object[0], index + 1);
+                }
+                parameters[index] = methodName.equals("setNull") ? null : args[1];
+            }
+        } else if (methodName.equals("clearParameters")) {
+            parameters = null;
+        } else if (methodName.equals("close")) {
+            finishPending();
+        }
+    }
+
+    // The rows an update or batch changed, -1 if the statement returned none
+    private static long rowCountOf(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            return Arrays.stream((int[]) result).filter(count -> count > 0).asLongStream().sum();
+        }
+        if (result instanceof long[]) {
+            return Arrays.stream((long[]) result).filter(count -> count > 0).sum();
+        }
+        return -1;
+    }
+
+    private void finishPending() throws SQLException {
+        if (pending != null) {
+            PendingQuery query = pending;
+            pending = null;
+            try {
+                // The statistics of a query are complete once its result set is closed
+                query.results.close();
+                finish(query.sql, query.start, query.rows, query.capture);
+            } finally {
+                closed(query);
+            }
+        }
+    }
+
+    // Whether this execution may switch on runtime statistics: only when no other query is open
+    // on the connection. A capture still waiting for its result set to close is given up, since
+    // this execution replaces the statistics it would read.
+    private static boolean claimStatistics(Connection connection) {
+        OpenQueries open = OPEN_QUERIES.get(connection);
+        if (open == null) {
+            return true;
+        }
+        PendingQuery capturing = open.capturing;
+        if (capturing != null) {
+            open.capturing = null;
+            capturing.capture = false;
+            setRuntimeStatistics(connection, false);
+        }
+        return false;
+    }
+
+    private static void opened(PendingQuery query) {
+        OPEN_QUERIES.compute(query.connection, (connection, open) -> {
+            OpenQueries queries = open != null ? open : new OpenQueries();
+            queries.count++;
+            if (query.capture) {
+                queries.capturing = query;
+            }
+            return queries;
+        });
+    }
+
+    private static void closed(PendingQuery query) {
+        OPEN_QUERIES.computeIfPresent(query.connection, (connection, open) -> {
+            if (open.capturing == query) {
+                open.capturing = null;
+            }
+            return --open.count > 0 ? open : null;
+        });
+    }
+
+    // Called by the pool when a connection is handed back; forgets result sets that were never closed
+    static void connectionReleased(Connection connection) {
+        OpenQueries open = OPEN_QUERIES.remove(connection);
+        if (open != null && open.capturing != null) {
+            open.capturing.capture = false;
+            setRuntimeStatistics(connection, false);
+        }
+    }
+
+    // Reports the execution to the slow query log if it took too long, and switches runtime
+    // statistics off again if they were on
+    private void finish(String text, long start, long rows, boolean capture) {
+        long elapsed = System.nanoTime() - start;
+        boolean slow = slowLog.isSlow(elapsed);
+        String plan = null;
+        if (capture) {
+            if (slow) {
+                try {
+                    plan = SlowQueryLog.getRuntimeStatistics(statement.getConnection());
+                } catch (SQLException e) {
+                    plan = "unavailable: " + e.getMessage();
+                }
+            }
+            setRuntimeStatistics(false);
+        }
+        if (slow) {
+            metrics.increment("jdbc.slow");
+            slowLog.log(text, parameters, elapsed, rows, plan);
+        }
+    }
+
+    // Failing to collect statistics must not fail the statement itself
+    private boolean setRuntimeStatistics(boolean on) {
+        try {
+            return setRuntimeStatistics(statement.getConnection(), on);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean setRuntimeStatistics(Connection connection, boolean on) {
+        try {
+            SlowQueryLog.setRuntimeStatistics(connection, on);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Object invokeOnStatement(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * The result set of a query that is being measured: counts the rows read and finishes the
+     * measurement when the caller closes it.
+     */
+    private final class PendingQuery implements InvocationHandler {
+        private final Connection connection;
+        private final String sql;
+        private final long start;
+        private final ResultSet results;
+        private long rows;
+        // Cleared when another statement runs on the connection before the result set is closed
+        private volatile boolean capture;
+
+        PendingQuery(Connection connection, String sql, long start, boolean capture, ResultSet results) {
+            this.connection = connection;
+            this.sql = sql;
+            this.start = start;
+            this.capture = capture;
+            this.results = results;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (pending == this) {
+                        finishPending();
+                    } else {
+                        results.close();
+                    }
+                    return null;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(results, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            }
+            return result;
+        }
+    }
+
+    /*
+     * The queries with an open result set on one connection, and the one of them, if any, that
+     * runs with runtime statistics switched on.
+     */
+    private static final class OpenQueries {
+        private int count;
+        private PendingQuery capturing;
+    }
+}
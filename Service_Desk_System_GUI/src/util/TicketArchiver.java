@@ -0,0 +1,184 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Moves closed tickets, and their messages, out of the Tickets and Messages tables into
+ * TicketsHistory and MessagesHistory once they have been closed for longer than the retention
+ * period. The working tables (and their indexes) then only hold open and recently closed tickets.
+ *
+ * Tickets are moved in chunks of chunkSize, each in its own transaction, so locks are held briefly
+ * and a failure only rolls back one chunk. The chunk is read with REPEATABLE READ, which keeps the
+ * selected tickets locked until they are deleted: a ticket cannot be reopened halfway through.
+ * An update of a ticket that has already been moved fails as if the ticket was changed by
+ * someone else. Archived tickets are read with DatabaseUtil.getArchivedTicketById,
+ * findArchivedTickets and getArchivedMessages.
+ */
+public class TicketArchiver {
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+
+    private static final String SELECT_DUE_SQL = "SELECT id FROM Tickets WHERE status = 'CLOSED' AND closedAt < ? " +
+            "ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final String COPY_TICKETS_SQL = "INSERT INTO TicketsHistory " +
+            "(id, customerId, agentId, topic, content, createdAt, priority, status, version, closedAt, archivedAt) " +
+            "SELECT id, customerId, agentId, topic, content, createdAt, priority, status, version, closedAt, CURRENT_TIMESTAMP " +
+            "FROM Tickets WHERE id IN ";
+    private static final String COPY_MESSAGES_SQL = "INSERT INTO MessagesHistory " +
+            "(id, ticket_id, sender_type, sender_name, content, timestamp) " +
+            "SELECT id, ticket_id, sender_type, sender_name, content, timestamp FROM Messages WHERE ticket_id IN ";
+    private static final String DELETE_MESSAGES_SQL = "DELETE FROM Messages WHERE ticket_id IN ";
+    private static final String DELETE_TICKETS_SQL = "DELETE FROM Tickets WHERE id IN ";
+
+    private final long retentionMillis;
+    private final int chunkSize;
+    private final AtomicLong ticketsArchived = new AtomicLong();
+    private final AtomicLong messagesArchived = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public TicketArchiver(long retentionMillis) {
+        this(retentionMillis, DEFAULT_CHUNK_SIZE);
+    }
+
+    public TicketArchiver(long retentionMillis, int chunkSize) {
+        if (retentionMillis < 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("Retention must not be negative and the chunk size must be at least 1.");
+        }
+        this.retentionMillis = retentionMillis;
+        this.chunkSize = chunkSize;
+    }
+
+    // Moves every ticket that is due, one chunk per transaction, and returns how many were moved
+    public int archiveOnce() throws SQLException {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - retentionMillis);
+        int total = 0;
+        int moved;
+        do {
+            moved = archiveChunk(cutoff);
+            total += moved;
+        } while (moved == chunkSize);
+        return total;
+    }
+
+    // Runs archiveOnce every periodMillis on a background thread until stop() is called
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("The archiver is already running.");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                int moved = archiveOnce();
+                if (moved > 0) {
+                    System.out.println("Archived " + moved + " closed tickets.");
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Try again on the next run; a failed chunk has been rolled back
+                System.out.println("Error archiving tickets: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the background runs and waits for a run in progress to finish its chunk
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        // Not interrupted: an interrupt inside a JDBC call can leave the connection unusable
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    public long getTicketsArchived() {
+        return ticketsArchived.get();
+    }
+
+    public long getMessagesArchived() {
+        return messagesArchived.get();
+    }
+
+    private int archiveChunk(Timestamp cutoff) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                List<Integer> ids = selectDue(conn, cutoff);
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                String idList = "(" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+                executeForIds(conn, COPY_TICKETS_SQL + idList, ids);
+                int messages = executeForIds(conn, COPY_MESSAGES_SQL + idList, ids);
+                executeForIds(conn, DELETE_MESSAGES_SQL + idList, ids);
+                executeForIds(conn, DELETE_TICKETS_SQL + idList, ids);
+                conn.commit();
+
+                ticketsArchived.addAndGet(ids.size());
+                messagesArchived.addAndGet(messages);
+                List<Integer> archivedIds = Collections.unmodifiableList(ids);
+                DatabaseUtil.fireChange(listener -> listener.ticketsArchived(archivedIds));
+                return ids.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Archiving closed tickets failed: " + e.getMessage(), e);
+            } finally {
+                conn.setTransactionIsolation(isolation);
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // IDs of the oldest tickets closed before the cutoff, locked until the transaction ends
+    private List<Integer> selectDue(Connection conn, Timestamp cutoff) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_DUE_SQL)) {
+            pstmt.setTimestamp(1, cutoff);
+            pstmt.setInt(2, chunkSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int executeForIds(Connection conn, String sql, List<Integer> ids) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+}
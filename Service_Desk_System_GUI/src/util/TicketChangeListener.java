@@ -0,0 +1,46 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import java.util.List;
+import service.desk.system.Message;
+import service.desk.system.Person;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Notified by DatabaseUtil after tickets, messages and persons have been committed, so derived data
+ * such as the search index and the person caches can be kept up to date without reloading. Register with
+ * DatabaseUtil.addChangeListener.
+ *
+ * Callbacks run on the thread that made the change, right after its commit, and may run
+ * concurrently. They should be quick; an exception thrown by a listener is logged and does not
+ * affect the change itself. Only changes made through this JVM are reported.
+ */
+public interface TicketChangeListener {
+
+    // A new ticket was stored; its ID has been set
+    default void ticketInserted(Ticket ticket) {
+    }
+
+    // A new message was stored; its ID has been set
+    default void messageInserted(Message message) {
+    }
+
+    // Tickets were moved to the history tables, together with their messages
+    default void ticketsArchived(List<Integer> ticketIds) {
+    }
+
+    // A customer or support staff member was inserted or updated
+    default void personChanged(Person person) {
+    }
+
+    // Every row of the table was deleted, e.g. by a test
+    default void tableCleared(String tableName) {
+    }
+}
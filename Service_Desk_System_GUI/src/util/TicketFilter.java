@@ -0,0 +1,58 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Conditions for a paged ticket listing. A null field matches every ticket.
+ */
+public final class TicketFilter {
+    private final Integer customerId;
+    private final Integer agentId;
+    private final Ticket.Status status;
+
+    public TicketFilter(Integer customerId, Integer agentId, Ticket.Status status) {
+        this.customerId = customerId;
+        this.agentId = agentId;
+        this.status = status;
+    }
+
+    // All open tickets
+    public static TicketFilter open() {
+        return new TicketFilter(null, null, Ticket.Status.OPEN);
+    }
+
+    // Open tickets created by a customer
+    public static TicketFilter openForCustomer(int customerId) {
+        return new TicketFilter(customerId, null, Ticket.Status.OPEN);
+    }
+
+    // Open tickets assigned to an agent
+    public static TicketFilter openForAgent(int agentId) {
+        return new TicketFilter(null, agentId, Ticket.Status.OPEN);
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public Integer getAgentId() {
+        return agentId;
+    }
+
+    public Ticket.Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketFilter[customerId=" + customerId + ", agentId=" + agentId + ", status=" + status + "]";
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package util;
+
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+/**
+ * Position in a ticket listing ordered by priority (highest first) and then ID.
+ * The next page starts with the first ticket that sorts after this key, so pages stay
+ * stable when tickets before the key are added or closed.
+ */
+public final class TicketPageKey {
+    private final int priority;
+    private final int id;
+
+    public TicketPageKey(int priority, int id) {
+        this.priority = priority;
+        this.id = id;
+    }
+
+    // Key of the last ticket of a page, used to fetch the page after it
+    public static TicketPageKey after(Ticket ticket) {
+        return new TicketPageKey(ticket.getPriority(), ticket.getId());
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TicketPageKey)) {
+            return false;
+        }
+        TicketPageKey other = (TicketPageKey) o;
+        return priority == other.priority && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * priority + id;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketPageKey[priority=" + priority + ", id=" + id + "]";
+    }
+}
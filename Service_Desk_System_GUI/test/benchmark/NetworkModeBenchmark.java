@@ -0,0 +1,180 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+import util.DatabaseConfig;
+import util.DatabaseUtil;
+import util.NetworkServerLauncher;
+import util.TicketFilter;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Compares throughput of the common DatabaseUtil operations in embedded mode and through the
+ * Derby client driver to a Network Server, with the same pool size and number of threads.
+ *
+ * Both runs use in-memory databases, so the project database is left untouched. The network run
+ * starts a server inside this JVM, so derbynet.jar must be on the classpath:
+ *   java -cp <classpath>:derbynet.jar benchmark.NetworkModeBenchmark [port]
+ */
+public class NetworkModeBenchmark {
+    private static final int THREADS = 8;
+    private static final int CUSTOMERS = 100;
+    private static final int AGENTS = 10;
+    private static final int SEED_TICKETS = 2_000;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DatabaseConfig.DEFAULT_PORT;
+
+        List<double[]> results = new ArrayList<>();
+        results.add(run(DatabaseConfig.embedded("memory:netmodebench_embedded").withPoolSize(THREADS)));
+        results.add(run(DatabaseConfig.network("localhost", port, "memory:netmodebench_network", true).withPoolSize(THREADS)));
+        DatabaseUtil.closeConnection();
+        NetworkServerLauncher.shutdown();
+
+        System.out.printf("%n%-22s %14s %14s %10s%n", "operation (ops/s)", "embedded", "network", "ratio");
+        for (int i = 0; i < Operation.values().length; i++) {
+            double embedded = results.get(0)[i];
+            double network = results.get(1)[i];
+            System.out.printf("%-22s %14.0f %14.0f %9.1fx%n", Operation.values()[i].label, embedded, network, embedded / network);
+        }
+    }
+
+    // Seeds a fresh database with the given settings and measures every operation on it
+    private static double[] run(DatabaseConfig config) throws Exception {
+        System.out.println("Running against " + config);
+        DatabaseUtil.configure(config);
+        DatabaseUtil.initializeDatabase();
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Customer(0, "Customer", "No" + i, "customer" + i + "@example.com", "Password1!"));
+        }
+        DatabaseUtil.insertCustomers(customers);
+        List<SupportStaffMember> agents = new ArrayList<>();
+        for (int i = 0; i < AGENTS; i++) {
+            agents.add(new SupportStaffMember(0, "Agent", "No" + i, "agent" + i, "agent" + i + "@example.com", "Password1!"));
+        }
+        DatabaseUtil.insertSupportStaff(agents);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < SEED_TICKETS; i++) {
+            tickets.add(new Ticket(0, customers.get(i % CUSTOMERS), agents.get(i % AGENTS),
+                    "Topic " + i, "Content " + i, LocalDateTime.now(), 1 + i % 3));
+        }
+        DatabaseUtil.insertTickets(tickets);
+        Fixture fixture = new Fixture(customers, agents, tickets);
+
+        double[] opsPerSecond = new double[Operation.values().length];
+        for (Operation operation : Operation.values()) {
+            measure(operation, fixture, WARMUP_MILLIS);
+            opsPerSecond[operation.ordinal()] = measure(operation, fixture, MEASURE_MILLIS);
+            System.out.printf("  %-22s %10.0f ops/s%n", operation.label, opsPerSecond[operation.ordinal()]);
+        }
+        return opsPerSecond;
+    }
+
+    // Runs the operation on THREADS threads for the given time and returns operations per second
+    private static double measure(Operation operation, Fixture fixture, long millis) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            counts.add(executor.submit(() -> {
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    operation.run(fixture);
+                    count++;
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> count : counts) {
+            total += count.get();
+        }
+        executor.shutdown();
+        return total * 1000.0 / millis;
+    }
+
+    /*
+     * The seeded rows the operations pick from.
+     */
+    private static final class Fixture {
+        private final List<Customer> customers;
+        private final List<SupportStaffMember> agents;
+        private final List<Ticket> tickets;
+
+        private Fixture(List<Customer> customers, List<SupportStaffMember> agents, List<Ticket> tickets) {
+            this.customers = customers;
+            this.agents = agents;
+            this.tickets = tickets;
+        }
+
+        private <T> T any(List<T> list) {
+            return list.get(ThreadLocalRandom.current().nextInt(list.size()));
+        }
+    }
+
+    private enum Operation {
+        TICKET_BY_ID("ticket by id") {
+            @Override
+            void run(Fixture fixture) throws SQLException {
+                DatabaseUtil.getTicketById(fixture.any(fixture.tickets).getId());
+            }
+        },
+        CUSTOMER_PAGE("customer ticket page") {
+            @Override
+            void run(Fixture fixture) throws SQLException {
+                DatabaseUtil.findTickets(TicketFilter.openForCustomer(fixture.any(fixture.customers).getId()), null, 50);
+            }
+        },
+        INSERT_TICKET("insert ticket") {
+            @Override
+            void run(Fixture fixture) throws SQLException {
+                DatabaseUtil.insertTicket(new Ticket(0, fixture.any(fixture.customers), fixture.any(fixture.agents),
+                        "Topic", "Content", LocalDateTime.now(), 1));
+            }
+        },
+        INSERT_MESSAGE("insert message") {
+            @Override
+            void run(Fixture fixture) throws SQLException {
+                DatabaseUtil.insertMessage(new Message(0, fixture.any(fixture.tickets).getId(), "Customer", "Customer",
+                        "Any update?", LocalDateTime.now()));
+            }
+        },
+        READ_MESSAGES("messages since") {
+            @Override
+            void run(Fixture fixture) throws SQLException {
+                DatabaseUtil.getMessagesSince(fixture.any(fixture.tickets).getId(), 0);
+            }
+        };
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        abstract void run(Fixture fixture) throws SQLException;
+    }
+}
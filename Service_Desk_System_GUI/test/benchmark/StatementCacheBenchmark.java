@@ -0,0 +1,81 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import util.ConnectionPool;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Measures a getPersonById-style lookup through a pool with and without the per-connection
+ * prepared statement cache.
+ *
+ * Runs against an in-memory Derby database so the project database is left untouched:
+ *   java -cp <classpath> benchmark.StatementCacheBenchmark
+ */
+public class StatementCacheBenchmark {
+    private static final String URL = "jdbc:derby:memory:stmtcachebench;create=true";
+    private static final String LOOKUP_SQL = "SELECT * FROM Customers WHERE id = ?";
+    private static final int CUSTOMERS = 1_000;
+    private static final int LOOKUPS = 50_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Customers (id INT PRIMARY KEY, firstName VARCHAR(50), lastName VARCHAR(50), "
+                    + "email VARCHAR(100), password VARCHAR(100))");
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Customers VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= CUSTOMERS; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "Customer");
+                    insert.setString(3, "No" + i);
+                    insert.setString(4, "customer" + i + "@example.com");
+                    insert.setString(5, "Password1!");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+
+        System.out.printf("%12s %16s %16s%n", "cache size", "lookups/s", "hit rate");
+        for (int cacheSize : new int[]{0, 50}) {
+            ConnectionPool pool = new ConnectionPool(URL, 1, 1, 60_000, 5_000, cacheSize);
+            lookups(pool); // warm up
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                lookups(pool);
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("%12d %16.0f %15.1f%%%n", cacheSize, LOOKUPS * ROUNDS / seconds,
+                    pool.getStatementCacheStats().getHitRate() * 100);
+            pool.shutdown();
+        }
+    }
+
+    // One borrow and one prepared lookup per call, the way PersonService.getPersonById works
+    private static void lookups(ConnectionPool pool) throws SQLException {
+        for (int i = 0; i < LOOKUPS; i++) {
+            try (Connection conn = pool.borrow();
+                 PreparedStatement pstmt = conn.prepareStatement(LOOKUP_SQL)) {
+                pstmt.setInt(1, i % CUSTOMERS + 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Missing customer " + (i % CUSTOMERS + 1));
+                    }
+                }
+            }
+        }
+    }
+}
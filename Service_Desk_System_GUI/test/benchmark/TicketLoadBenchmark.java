@@ -0,0 +1,104 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import service.desk.system.Customer;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+import services.PersonService;
+import util.DatabaseUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Compares the joined ticket load in DatabaseUtil.getAllTickets against the old
+ * per-row lookup of customer and agent, for a growing number of open tickets.
+ *
+ * Runs against an in-memory Derby database so the project database is left untouched:
+ *   java -cp <classpath> benchmark.TicketLoadBenchmark
+ */
+public class TicketLoadBenchmark {
+    private static final int[] TICKET_COUNTS = {100, 1_000, 5_000, 10_000};
+    private static final int CUSTOMERS = 200;
+    private static final int AGENTS = 20;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws SQLException {
+        System.setProperty("servicedesk.db.url", "jdbc:derby:memory:ticketloadbench;create=true");
+        DatabaseUtil.initializeDatabase();
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer(0, "Customer", "No" + i, "customer" + i + "@example.com", "Password1!");
+            customer.setId(DatabaseUtil.insertCustomer(customer));
+            customers.add(customer);
+        }
+        PersonService<SupportStaffMember> agentService = new PersonService<>(SupportStaffMember.class);
+        for (int i = 0; i < AGENTS; i++) {
+            agentService.addPerson(new SupportStaffMember(0, "Agent", "No" + i, "agent" + i, "agent" + i + "@example.com", "Password1!"));
+        }
+        List<SupportStaffMember> agents = agentService.getAllPersons();
+
+        System.out.printf("%10s %16s %16s %10s%n", "tickets", "joined (ms)", "per-row (ms)", "speedup");
+        int inserted = 0;
+        for (int target : TICKET_COUNTS) {
+            for (; inserted < target; inserted++) {
+                Customer customer = customers.get(inserted % customers.size());
+                SupportStaffMember agent = agents.get(inserted % agents.size());
+                DatabaseUtil.insertTicket(new Ticket(0, customer, agent, "Topic " + inserted, "Content " + inserted, LocalDateTime.now(), 1));
+            }
+
+            double joined = time(() -> DatabaseUtil.getAllTickets().size(), target);
+            double perRow = time(TicketLoadBenchmark::loadTicketsPerRow, target);
+            System.out.printf("%10d %16.2f %16.2f %9.1fx%n", target, joined, perRow, perRow / joined);
+        }
+        DatabaseUtil.closeConnection();
+    }
+
+    // Runs a load once to warm up, then returns the average time of ROUNDS runs in milliseconds
+    private static double time(Load load, int expected) throws SQLException {
+        if (load.run() != expected) {
+            throw new IllegalStateException("Unexpected ticket count");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            load.run();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ROUNDS;
+    }
+
+    // The previous load path: one ticket query plus a customer and an agent query per row
+    private static int loadTicketsPerRow() throws SQLException {
+        PersonService<Customer> customerService = new PersonService<>(Customer.class);
+        PersonService<SupportStaffMember> agentService = new PersonService<>(SupportStaffMember.class);
+        List<Ticket> tickets = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM Tickets WHERE status = 'OPEN'")) {
+            while (rs.next()) {
+                Customer customer = customerService.getPersonById(rs.getInt("customerId"));
+                SupportStaffMember agent = agentService.getPersonById(rs.getInt("agentId"));
+                tickets.add(new Ticket(rs.getInt("id"), customer, agent, rs.getString("topic"), rs.getString("content"),
+                        rs.getTimestamp("createdAt").toLocalDateTime(), rs.getInt("priority")));
+            }
+        }
+        return tickets.size();
+    }
+
+    @FunctionalInterface
+    private interface Load {
+        int run() throws SQLException;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.SupportStaffMember;
+import service.desk.system.Ticket;
+import services.PersonService;
+import services.TicketService;
+import util.DatabaseConfig;
+import util.DatabaseUtil;
+import util.DatasetGenerator;
+import util.LatencyHistogram;
+import util.TicketFilter;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/*
+ * Drives TicketService and PersonService from many threads at once, to find where throughput
+ * stops growing and latency starts to climb.
+ *
+ * Every virtual customer and agent is a thread that thinks for an exponentially distributed time
+ * and then does one action:
+ *   - customers log in, open tickets and post messages on their open tickets;
+ *   - agents list their queue, read the messages of a ticket, then reply, change its priority
+ *     or resolve it.
+ * The users wait for each response before thinking again (a closed model), so once the services
+ * saturate the achieved rate falls below the offered one; compare the two in the report.
+ *
+ * The run uses a fresh in-memory database seeded by DatasetGenerator, so the project database is
+ * left untouched. After the warm-up the throughput, errors and p50/p99/p999 latencies of every
+ * operation are measured. Lookups that return an empty list on failure cannot be told apart from
+ * empty results, so they never count as errors.
+ *
+ * Usage:
+ *   java benchmark.WorkloadSimulator [--customers N] [--agents N] [--arrival-rate R]
+ *       [--customer-think-ms N] [--agent-think-ms N] [--duration S] [--warmup S]
+ *       [--seed-tickets N] [--pool-size N]
+ * --arrival-rate is the number of customer actions per second over all customers; it sets
+ * the customer think time to customers / rate.
+ */
+public class WorkloadSimulator {
+    private static final int PAGE_SIZE = 20;
+    // Chances of the customer actions other than posting a message
+    private static final double LOGIN_SHARE = 0.1;
+    private static final double NEW_TICKET_SHARE = 0.35;
+    // Chances of the agent actions other than resolving a ticket
+    private static final double REPLY_SHARE = 0.45;
+    private static final double PRIORITISE_SHARE = 0.25;
+
+    enum Operation {
+        LOGIN("customer login"),
+        CREATE_TICKET("create ticket"),
+        LIST_OWN_TICKETS("list own tickets"),
+        POST_MESSAGE("post message"),
+        LIST_QUEUE("list agent queue"),
+        READ_MESSAGES("read messages"),
+        PRIORITISE("set priority"),
+        RESOLVE("resolve ticket");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final int customerCount;
+    private final int agentCount;
+    private final long customerThinkMillis;
+    private final long agentThinkMillis;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] errors = new LongAdder[Operation.values().length];
+
+    private PersonService<Customer> customerService;
+    private TicketService ticketService;
+    private volatile boolean running = true;
+
+    public WorkloadSimulator(int customerCount, int agentCount, long customerThinkMillis, long agentThinkMillis) {
+        this.customerCount = customerCount;
+        this.agentCount = agentCount;
+        this.customerThinkMillis = customerThinkMillis;
+        this.agentThinkMillis = agentThinkMillis;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int customers = 50;
+        int agents = 10;
+        double arrivalRate = 0;
+        long customerThinkMillis = 1_000;
+        long agentThinkMillis = 500;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        int seedTickets = 5_000;
+        int poolSize = DatabaseConfig.DEFAULT_POOL_SIZE;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--customers":
+                    customers = Integer.parseInt(value);
+                    break;
+                case "--agents":
+                    agents = Integer.parseInt(value);
+                    break;
+                case "--arrival-rate":
+                    arrivalRate = Double.parseDouble(value);
+                    break;
+                case "--customer-think-ms":
+                    customerThinkMillis = Long.parseLong(value);
+                    break;
+                case "--agent-think-ms":
+                    agentThinkMillis = Long.parseLong(value);
+                    break;
+                case "--duration":
+                    durationSeconds = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "--seed-tickets":
+                    seedTickets = Integer.parseInt(value);
+                    break;
+                case "--pool-size":
+                    poolSize = Integer.parseInt(value);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (arrivalRate > 0) {
+            customerThinkMillis = Math.round(customers * 1000 / arrivalRate);
+        }
+
+        DatabaseUtil.configure(DatabaseConfig.embedded("memory:workload" + System.nanoTime()).withPoolSize(poolSize));
+        DatabaseUtil.initializeDatabase();
+        System.out.println("Seeding " + seedTickets + " tickets...");
+        DatasetGenerator.Dataset dataset = new DatasetGenerator(DatasetGenerator.DEFAULT_SEED)
+                .generate(customers, agents, seedTickets);
+
+        WorkloadSimulator simulator = new WorkloadSimulator(customers, agents, customerThinkMillis, agentThinkMillis);
+        System.out.printf("Running %d customers (think %d ms, offered %.1f actions/s) and %d agents (think %d ms) "
+                + "on a pool of %d connections for %d s after %d s warm-up%n", customers, customerThinkMillis,
+                customers * 1000.0 / Math.max(1, customerThinkMillis), agents, agentThinkMillis, poolSize,
+                durationSeconds, warmupSeconds);
+        simulator.run(dataset, warmupSeconds, durationSeconds);
+        DatabaseUtil.closeConnection();
+    }
+
+    /*
+     * Runs the virtual users against the dataset and prints the report. The services print a line
+     * for most calls, so standard output is silenced while the users run.
+     */
+    public void run(DatasetGenerator.Dataset dataset, int warmupSeconds, int durationSeconds) throws Exception {
+        customerService = new PersonService<>(Customer.class);
+        ticketService = new TicketService();
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        ExecutorService users = Executors.newFixedThreadPool(customerCount + agentCount);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < customerCount; i++) {
+                Customer customer = dataset.getCustomers().get(i % dataset.getCustomers().size());
+                futures.add(users.submit(() -> runCustomer(customer)));
+            }
+            for (int i = 0; i < agentCount; i++) {
+                SupportStaffMember agent = dataset.getAgents().get(i % dataset.getAgents().size());
+                futures.add(users.submit(() -> runAgent(agent)));
+            }
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].reset();
+                errors[i].reset();
+            }
+            long started = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+            long elapsedNanos = System.nanoTime() - started;
+            // Freeze the numbers before the users finish their last calls
+            String report = report(elapsedNanos / 1e9);
+
+            running = false;
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            out.print(report);
+        } finally {
+            running = false;
+            users.shutdown();
+            System.setOut(out);
+        }
+    }
+
+    private void runCustomer(Customer customer) {
+        measure(Operation.LOGIN, () -> customerService.findPersonByEmail(customer.getEmail()) != null);
+        while (think(customerThinkMillis)) {
+            double action = ThreadLocalRandom.current().nextDouble();
+            if (action < LOGIN_SHARE) {
+                measure(Operation.LOGIN, () -> customerService.findPersonByEmail(customer.getEmail()) != null);
+            } else if (action < LOGIN_SHARE + NEW_TICKET_SHARE) {
+                measure(Operation.CREATE_TICKET, () -> {
+                    Ticket ticket = new Ticket(0, customer, null, "Simulated ticket",
+                            "Opened by the workload simulator", LocalDateTime.now(), 1 + ThreadLocalRandom.current().nextInt(3));
+                    return ticketService.addTicketToNextAgent(ticket) > 0;
+                });
+            } else {
+                List<Ticket> tickets = measureList(Operation.LIST_OWN_TICKETS,
+                        () -> ticketService.findTickets(TicketFilter.openForCustomer(customer.getId()), null, PAGE_SIZE));
+                if (!tickets.isEmpty()) {
+                    Ticket ticket = pick(tickets);
+                    measure(Operation.POST_MESSAGE, () -> ticketService.addMessageToTicket(ticket.getId(),
+                            new Message(0, ticket.getId(), "Customer", customer.getFirstName() + " " + customer.getLastName(),
+                                    "Any news on this?", LocalDateTime.now())));
+                }
+            }
+        }
+    }
+
+    private void runAgent(SupportStaffMember agent) {
+        while (think(agentThinkMillis)) {
+            List<Ticket> queue = measureList(Operation.LIST_QUEUE,
+                    () -> ticketService.findTickets(TicketFilter.openForAgent(agent.getId()), null, PAGE_SIZE));
+            if (queue.isEmpty()) {
+                continue;
+            }
+            // The queue is ordered by priority, so agents mostly work on the first tickets
+            Ticket ticket = queue.get(ThreadLocalRandom.current().nextInt(Math.min(3, queue.size())));
+            measure(Operation.READ_MESSAGES, () -> ticketService.getMessagesForTicket(ticket.getId()) != null);
+
+            double action = ThreadLocalRandom.current().nextDouble();
+            if (action < REPLY_SHARE) {
+                measure(Operation.POST_MESSAGE, () -> ticketService.addMessageToTicket(ticket.getId(),
+                        new Message(0, ticket.getId(), "Agent", agent.getUsername(), "We are working on it.", LocalDateTime.now())));
+            } else if (action < REPLY_SHARE + PRIORITISE_SHARE) {
+                Ticket other = pick(queue);
+                measure(Operation.PRIORITISE, () ->
+                        ticketService.setTicketPriority(other.getId(), 1 + ThreadLocalRandom.current().nextInt(3)));
+            } else {
+                measure(Operation.RESOLVE, () -> ticketService.resolveTicket(ticket.getId()));
+            }
+        }
+    }
+
+    // Times one call; a false result or an exception counts as an error
+    private void measure(Operation operation, BooleanSupplier call) {
+        boolean succeeded;
+        long start = System.nanoTime();
+        try {
+            succeeded = call.getAsBoolean();
+        } catch (RuntimeException e) {
+            succeeded = false;
+        }
+        latencies[operation.ordinal()].recordNanos(System.nanoTime() - start);
+        if (!succeeded) {
+            errors[operation.ordinal()].increment();
+        }
+    }
+
+    // Times a lookup; only an exception counts as an error
+    private List<Ticket> measureList(Operation operation, Supplier<List<Ticket>> call) {
+        List<Ticket> result;
+        long start = System.nanoTime();
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            errors[operation.ordinal()].increment();
+            result = List.of();
+        }
+        latencies[operation.ordinal()].recordNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    // Sleeps for an exponentially distributed time with the given mean; false once the run is over
+    private boolean think(long meanMillis) {
+        if (meanMillis > 0) {
+            long millis = (long) (-meanMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return running;
+    }
+
+    private static <T> T pick(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private String report(double seconds) {
+        StringBuilder report = new StringBuilder(String.format("%n%-18s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "calls", "ops/s", "errors", "mean ms", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        long totalCalls = 0;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram latency = latencies[operation.ordinal()];
+            long calls = latency.getCount();
+            long failed = errors[operation.ordinal()].sum();
+            totalCalls += calls;
+            totalErrors += failed;
+            report.append(String.format("%-18s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.label, calls,
+                    calls / seconds, failed, latency.getMeanMicros() / 1000, latency.getPercentileMicros(50) / 1000.0,
+                    latency.getPercentileMicros(99) / 1000.0, latency.getPercentileMicros(99.9) / 1000.0,
+                    latency.getMaxMicros() / 1000.0));
+        }
+        report.append(String.format("%-18s %9d %9.1f %7d%n", "total", totalCalls, totalCalls / seconds, totalErrors));
+        return report.toString();
+    }
+}
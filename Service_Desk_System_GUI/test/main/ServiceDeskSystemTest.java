@@ -4,16 +4,38 @@
  */
 package main;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import service.desk.system.Customer;
+import service.desk.system.Message;
 import service.desk.system.SupportStaffMember;
 import service.desk.system.Ticket;
 import services.PersonService;
 import services.TicketService;
+import util.BulkLoader;
 import util.DatabaseUtil;
+import util.OptimisticLockException;
+import util.TicketFilter;
+import util.TicketPageKey;
 
 
 /**
@@ -32,7 +54,7 @@ public class ServiceDeskSystemTest {
 
     // Clears tables and initializes services before each test
     @Before
-    public void setUp() {
+    public void setUp() throws SQLException {
         DatabaseUtil.clearTable("Messages");
         DatabaseUtil.clearTable("Tickets");
         DatabaseUtil.clearTable("Customers");
@@ -78,10 +100,7 @@ public class ServiceDeskSystemTest {
         SupportStaffMember retrievedAgent = agentService.findPersonByUsername("asmith");
 
         Ticket ticket = new Ticket(0, retrievedCustomer, retrievedAgent, "Issue Topic", "Issue Content", LocalDateTime.now(), 1);
-        ticketService.addTicket(ticket);
-
-        int newTicketId = DatabaseUtil.getMaxTicketId();
-        ticket.setId(newTicketId);
+        int newTicketId = ticketService.addTicket(ticket);
         Ticket retrievedTicket = ticketService.getTicketById(newTicketId);
 
         assertNotNull(retrievedTicket);
@@ -101,10 +120,7 @@ public class ServiceDeskSystemTest {
         SupportStaffMember retrievedAgent = agentService.findPersonByUsername("asmith");
 
         Ticket ticket = new Ticket(0, retrievedCustomer, retrievedAgent, "Issue Topic", "Issue Content", LocalDateTime.now(), 1);
-        ticketService.addTicket(ticket);
-
-        int newTicketId = DatabaseUtil.getMaxTicketId();
-        ticket.setId(newTicketId);
+        int newTicketId = ticketService.addTicket(ticket);
 
         ticket.setPriority(1);
         DatabaseUtil.updateTicket(ticket);
@@ -129,10 +145,351 @@ public class ServiceDeskSystemTest {
         SupportStaffMember retrievedAgent = agentService.findPersonByUsername("asmith");
 
         Ticket ticket = new Ticket(0, retrievedCustomer, retrievedAgent, "Issue Topic", "Issue Content", LocalDateTime.now(), 1);
+        int newTicketId = ticketService.addTicket(ticket);
+        ticketService.resolveTicket(newTicketId);
+    }
+
+    // Tests that tickets created concurrently each get a unique ID matching the stored row
+    @Test
+    public void testConcurrentTicketCreationIds() throws Exception {
+        Customer customer = new Customer(0, "John", "Doe", "johndoe@example.com", "password123");
+        customerService.addPerson(customer);
+
+        SupportStaffMember agent = new SupportStaffMember(0, "Agent", "Smith", "asmith", "agent@example.com", "password123");
+        agentService.addPerson(agent);
+
+        Customer retrievedCustomer = customerService.findPersonByEmail("johndoe@example.com");
+        SupportStaffMember retrievedAgent = agentService.findPersonByUsername("asmith");
+
+        int threads = 8;
+        int ticketsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Integer, String>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                Map<Integer, String> created = new HashMap<>();
+                for (int i = 0; i < ticketsPerThread; i++) {
+                    String topic = "Topic " + thread + "-" + i;
+                    Ticket ticket = new Ticket(0, retrievedCustomer, retrievedAgent, topic, "Issue Content", LocalDateTime.now(), 1);
+                    int ticketId = ticketService.addTicket(ticket);
+                    assertEquals(ticketId, ticket.getId());
+                    created.put(ticketId, topic);
+                }
+                return created;
+            }));
+        }
+
+        Map<Integer, String> allCreated = new HashMap<>();
+        for (Future<Map<Integer, String>> future : futures) {
+            for (Map.Entry<Integer, String> entry : future.get(60, TimeUnit.SECONDS).entrySet()) {
+                assertNull("Duplicate ticket ID " + entry.getKey(), allCreated.put(entry.getKey(), entry.getValue()));
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * ticketsPerThread, allCreated.size());
+        for (Map.Entry<Integer, String> entry : allCreated.entrySet()) {
+            assertTrue(entry.getKey() > 0);
+            Ticket stored = ticketService.getTicketById(entry.getKey());
+            assertNotNull(stored);
+            assertEquals(entry.getValue(), stored.getTopic());
+        }
+    }
+
+    // Tests that batch inserts return the generated IDs in insertion order
+    @Test
+    public void testBatchInsertReturnsGeneratedIds() throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            customers.add(new Customer(0, "Batch", "Customer" + i, "batch" + i + "@example.com", "password123"));
+        }
+
+        int[] ids = DatabaseUtil.insertCustomers(customers.iterator(), 10);
+
+        assertEquals(customers.size(), ids.length);
+        for (int i = 0; i < customers.size(); i++) {
+            assertEquals(ids[i], customers.get(i).getId());
+            Customer stored = customerService.findPersonByEmail("batch" + i + "@example.com");
+            assertNotNull(stored);
+            assertEquals(ids[i], stored.getId());
+        }
+    }
+
+    // Tests that a batch insert inside the caller's transaction is rolled back with it
+    @Test
+    public void testBatchInsertJoinsCallersTransaction() throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            customers.add(new Customer(0, "Batch", "Customer" + i, "batch" + i + "@example.com", "password123"));
+        }
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            DatabaseUtil.insertCustomer(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+            assertEquals(25, DatabaseUtil.insertCustomers(customers.iterator(), 10).length);
+            assertTrue(DatabaseUtil.emailExists("batch24@example.com"));
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+
+        assertFalse(DatabaseUtil.emailExists("johndoe@example.com"));
+        for (int i = 0; i < customers.size(); i++) {
+            assertFalse(DatabaseUtil.emailExists("batch" + i + "@example.com"));
+        }
+    }
+
+    // Tests that the bulk loader skips and counts an invalid message instead of stopping the load
+    @Test
+    public void testBulkLoaderSkipsInvalidMessages() throws Exception {
+        Path customers = Files.createTempFile("customers", ".txt");
+        Path tickets = Files.createTempFile("tickets", ".txt");
+        try {
+            Files.write(customers, Arrays.asList("1,John,johndoe@example.com,password123", "2,Broken"));
+            Files.write(tickets, Arrays.asList(
+                    "TicketID: 1", "CustomerEmail: johndoe@example.com", "Topic: First", "Issue: Content",
+                    "Message:", "SenderType: Customer", "SenderName: John", "Content: Hello",
+                    "Message:", "SenderType: Customer", "Content: No sender name",
+                    "EndTicket",
+                    "TicketID: 2", "CustomerEmail: johndoe@example.com", "Topic: Second", "Issue: Content",
+                    "EndTicket"));
+
+            BulkLoader loader = new BulkLoader(1);
+            assertEquals(1, loader.loadCustomers(customers));
+            assertEquals(2, loader.loadTickets(tickets));
+            assertEquals(2, loader.getSkippedRows());
+
+            Ticket first = DatabaseUtil.getOpenTicketsByCustomer(customerService.findPersonByEmail("johndoe@example.com").getId()).get(0);
+            List<Message> messages = DatabaseUtil.getMessagesForTicket(first.getId());
+            assertEquals(1, messages.size());
+            assertEquals("Hello", messages.get(0).getContent());
+        } finally {
+            Files.delete(customers);
+            Files.delete(tickets);
+        }
+    }
+
+    // Tests that repeated lookups are cached and that updating a customer drops the stale copy
+    @Test
+    public void testPersonLookupCacheIsInvalidatedOnUpdate() {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+
+        Customer first = customerService.findPersonByEmail("johndoe@example.com");
+        long hits = customerService.getCacheStats().getHits();
+        assertEquals(first.getId(), customerService.findPersonByEmail("johndoe@example.com").getId());
+        assertEquals(first.getId(), customerService.getPersonById(first.getId()).getId());
+        assertEquals(hits + 2, customerService.getCacheStats().getHits());
+
+        // Lookups hand out copies, so changing one does not change the cache
+        first.setPassword("changed");
+        assertNotSame(first, customerService.getPersonById(first.getId()));
+        assertEquals("password123", customerService.getPersonById(first.getId()).getPassword());
+
+        Customer changed = new Customer(first.getId(), "John", "Doe", "john.doe@example.com", "password456");
+        customerService.updatePerson(changed);
+
+        assertNull(customerService.findPersonByEmail("johndoe@example.com"));
+        Customer reloaded = customerService.getPersonById(first.getId());
+        assertEquals("john.doe@example.com", reloaded.getEmail());
+        assertEquals("password456", reloaded.getPassword());
+    }
+
+    // Tests that an update through one PersonService, or straight through DatabaseUtil, is seen by the others
+    @Test
+    public void testPersonUpdatesAreSeenByEveryService() throws Exception {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        PersonService<Customer> otherService = new PersonService<>(Customer.class);
+        Customer cached = otherService.findPersonByEmail("johndoe@example.com");
+        assertEquals("password123", otherService.getPersonById(cached.getId()).getPassword());
+
+        customerService.updatePerson(new Customer(cached.getId(), "John", "Doe", "johndoe@example.com", "password456"));
+        assertEquals("password456", otherService.findPersonByEmail("johndoe@example.com").getPassword());
+
+        DatabaseUtil.updateCustomer(new Customer(cached.getId(), "John", "Doe", "johndoe@example.com", "password789"));
+        assertEquals("password789", otherService.getPersonById(cached.getId()).getPassword());
+    }
+
+    // Tests that only the paged listing indexes serve ticket lookups by customer or agent and status
+    @Test
+    public void testRedundantTicketIndexesAreNotCreated() throws Exception {
+        Set<String> indexes = new HashSet<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             ResultSet rs = conn.getMetaData().getIndexInfo(null, null, "TICKETS", false, false)) {
+            while (rs.next()) {
+                indexes.add(rs.getString("INDEX_NAME"));
+            }
+        }
+        assertTrue(indexes.contains("IDX_TICKETS_CUSTOMER_PAGE"));
+        assertTrue(indexes.contains("IDX_TICKETS_AGENT_PAGE"));
+        assertFalse(indexes.contains("IDX_TICKETS_CUSTOMER_STATUS"));
+        assertFalse(indexes.contains("IDX_TICKETS_AGENT_STATUS"));
+    }
+
+    // Tests that paging through an agent's tickets returns each ticket once, by priority and then ID
+    @Test
+    public void testKeysetPaginationOrdersByPriorityThenId() {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        agentService.addPerson(new SupportStaffMember(0, "Alice", "Smith", "asmith", "alice@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        SupportStaffMember agent = agentService.findPersonByUsername("asmith");
+
+        for (int i = 0; i < 11; i++) {
+            ticketService.addTicket(new Ticket(0, customer, agent, "Topic " + i, "Content " + i, LocalDateTime.now(), i % 3 + 1));
+        }
+        Ticket closed = new Ticket(0, customer, agent, "Closed", "Closed", LocalDateTime.now(), 3);
+        ticketService.addTicket(closed);
+        ticketService.resolveTicket(closed.getId());
+
+        List<Ticket> all = new ArrayList<>();
+        TicketPageKey afterKey = null;
+        List<Ticket> page;
+        do {
+            page = ticketService.findTickets(TicketFilter.openForAgent(agent.getId()), afterKey, 4);
+            assertTrue(page.size() <= 4);
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                afterKey = TicketPageKey.after(page.get(page.size() - 1));
+            }
+        } while (page.size() == 4);
+
+        assertEquals(11, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Ticket previous = all.get(i - 1);
+            Ticket current = all.get(i);
+            assertTrue(previous.getPriority() > current.getPriority()
+                    || (previous.getPriority() == current.getPriority() && previous.getId() < current.getId()));
+            assertEquals(Ticket.Status.OPEN, current.getStatus());
+        }
+    }
+
+    // Tests that a conversation buffer only fetches the messages added since its last refresh
+    @Test
+    public void testConversationBufferFetchesOnlyNewMessages() throws Exception {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        Ticket ticket = new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1);
         ticketService.addTicket(ticket);
 
-        int newTicketId = DatabaseUtil.getMaxTicketId();
-        ticket.setId(newTicketId);
-        ticketService.resolveTicket(newTicketId);
+        DatabaseUtil.insertMessage(new Message(0, ticket.getId(), "Customer", "John", "First", LocalDateTime.now()));
+        DatabaseUtil.insertMessage(new Message(0, ticket.getId(), "Agent", "Alice", "Second", LocalDateTime.now()));
+
+        ConversationBuffer conversation = new ConversationBuffer(ticket.getId());
+        assertEquals(2, conversation.fetchNew().size());
+        assertTrue(conversation.fetchNew().isEmpty());
+
+        DatabaseUtil.insertMessage(new Message(0, ticket.getId(), "Customer", "John", "Third", LocalDateTime.now()));
+        List<Message> added = conversation.fetchNew();
+        assertEquals(1, added.size());
+        assertEquals("Third", added.get(0).getContent());
+        assertEquals(3, conversation.getMessages().size());
+        assertEquals(added.get(0).getId(), conversation.getLastMessageId());
+        assertEquals(added, conversation.getMessagesFrom(2));
+        assertTrue(conversation.getMessagesFrom(3).isEmpty());
+    }
+
+    // Tests that an update based on a stale copy of a ticket is rejected and writes nothing
+    @Test
+    public void testConcurrentTicketUpdateIsDetected() throws Exception {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        agentService.addPerson(new SupportStaffMember(0, "Agent", "Smith", "asmith", "agent@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        Ticket ticket = new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1);
+        ticketService.addTicket(ticket);
+
+        // Two users load the same ticket
+        Ticket first = ticketService.getTicketById(ticket.getId());
+        Ticket second = ticketService.getTicketById(ticket.getId());
+        assertEquals(0, first.getVersion());
+
+        DatabaseUtil.updateTicketPriority(first, 3);
+        assertEquals(1, first.getVersion());
+        try {
+            DatabaseUtil.updateTicketAgent(second, agentService.findPersonByUsername("asmith"));
+            fail("Expected an OptimisticLockException");
+        } catch (OptimisticLockException e) {
+            assertEquals(ticket.getId(), e.getTicketId());
+        }
+
+        Ticket stored = ticketService.getTicketById(ticket.getId());
+        assertEquals(3, stored.getPriority());
+        assertNull(stored.getAssignedAgent());
+        assertEquals("Content", stored.getContent());
+        assertEquals(1, stored.getVersion());
+
+        // After a reload the change goes through
+        DatabaseUtil.updateTicketStatus(stored, Ticket.Status.CLOSED);
+        assertEquals(Ticket.Status.CLOSED, ticketService.getTicketById(ticket.getId()).getStatus());
+    }
+
+    // Tests that tickets can be streamed in ID order and that closing a stream early releases its connection
+    @Test
+    public void testStreamTicketsReadsEveryTicketInIdOrder() throws Exception {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            tickets.add(new Ticket(0, customer, null, "Topic " + i, "Content", LocalDateTime.now(), 1 + i % 3));
+        }
+        DatabaseUtil.insertTickets(tickets);
+        DatabaseUtil.updateTicketStatus(tickets.get(0), Ticket.Status.CLOSED);
+
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Ticket> stream = DatabaseUtil.streamTickets(null, 16)) {
+            stream.forEach(ticket -> ids.add(ticket.getId()));
+        }
+        assertEquals(120, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+
+        try (Stream<Ticket> stream = DatabaseUtil.streamTickets(TicketFilter.openForCustomer(customer.getId()), 16)) {
+            assertEquals(119, stream.count());
+        }
+
+        // Far more early-closed streams than the pool has connections
+        for (int i = 0; i < 50; i++) {
+            try (Stream<Customer> stream = DatabaseUtil.streamCustomers(DatabaseUtil.DEFAULT_FETCH_SIZE)) {
+                assertEquals("johndoe@example.com", stream.findFirst().get().getEmail());
+            }
+        }
+    }
+
+    // Messages added through the service are stored, and the status and priority updates report their outcome
+    @Test
+    public void testServiceMessagesAndUpdatesAreStored() {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        int ticketId = ticketService.addTicket(new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1));
+
+        assertTrue(ticketService.addMessageToTicket(ticketId, new Message(0, 0, "Customer", "John", "Hello", LocalDateTime.now())));
+        List<Message> messages = ticketService.getMessagesForTicket(ticketId);
+        assertEquals(1, messages.size());
+        assertEquals("Hello", messages.get(0).getContent());
+
+        assertTrue(ticketService.setTicketPriority(ticketId, 3));
+        assertTrue(ticketService.resolveTicket(ticketId));
+        Ticket stored = ticketService.getTicketById(ticketId);
+        assertEquals(3, stored.getPriority());
+        assertEquals(Ticket.Status.CLOSED, stored.getStatus());
+
+        assertFalse(ticketService.resolveTicket(ticketId + 1));
+        assertFalse(ticketService.addMessageToTicket(ticketId + 1, new Message(0, 0, "Customer", "John", "Lost", LocalDateTime.now())));
+    }
+
+    // Every default TicketService shares one engine, and a newly registered agent takes tickets at once
+    @Test
+    public void testNewAgentsAreAssignedWithoutWaitingForARefresh() {
+        customerService.addPerson(new Customer(0, "John", "Doe", "johndoe@example.com", "password123"));
+        Customer customer = customerService.findPersonByEmail("johndoe@example.com");
+        assertSame(ticketService.getAssignmentEngine(), new TicketService().getAssignmentEngine());
+
+        assertEquals(TicketService.NO_AGENT,
+                ticketService.addTicketToNextAgent(new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1)));
+
+        agentService.addPerson(new SupportStaffMember(0, "Jane", "Smith", "janesmith", "jane@example.com", "password123"));
+        Ticket ticket = new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1);
+        assertTrue(ticketService.addTicketToNextAgent(ticket) > 0);
+        assertEquals("janesmith", ticket.getAssignedAgent().getUsername());
+        assertEquals(1, ticketService.getAssignmentEngine().getOpenTicketCount(ticket.getAssignedAgent().getId()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import util.DatabaseUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests that drive the HTTP API end to end: registration, login, tickets, messages,
+ * resolution and access control.
+ */
+public class ServiceDeskServerTest {
+
+    private ServiceDeskServer server;
+
+    // Starts a server on a free port against empty tables
+    @Before
+    public void setUp() throws IOException, SQLException {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+        DatabaseUtil.clearTable("SupportStaff");
+
+        server = new ServiceDeskServer(0, 4, 16);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    // A customer opens a ticket, both sides exchange messages and the agent resolves it
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTicketLifecycleOverHttp() throws IOException {
+        assertEquals(201, call("POST", "/api/agents", null,
+                "{\"firstName\":\"Ann\",\"lastName\":\"Agent\",\"username\":\"ann\",\"email\":\"ann@example.com\",\"password\":\"Passw0rd!\"}").status);
+        assertEquals(201, call("POST", "/api/customers", null,
+                "{\"firstName\":\"Carl\",\"lastName\":\"Customer\",\"email\":\"carl@example.com\",\"password\":\"Passw0rd!\"}").status);
+
+        String customerToken = login("{\"role\":\"customer\",\"email\":\"carl@example.com\",\"password\":\"Passw0rd!\"}");
+        String agentToken = login("{\"role\":\"agent\",\"username\":\"ann\",\"password\":\"Passw0rd!\"}");
+
+        Reply created = call("POST", "/api/tickets", customerToken, "{\"topic\":\"Printer\",\"content\":\"It jams\"}");
+        assertEquals(201, created.status);
+        long ticketId = (Long) created.json.get("id");
+        assertEquals("ann", created.json.get("agentUsername"));
+
+        // The ticket shows up in the agent's queue
+        Reply agentList = call("GET", "/api/tickets", agentToken, null);
+        List<Object> tickets = (List<Object>) agentList.json.get("tickets");
+        assertEquals(1, tickets.size());
+        assertEquals(ticketId, ((Map<String, Object>) tickets.get(0)).get("id"));
+
+        Reply first = call("POST", "/api/tickets/" + ticketId + "/messages", customerToken, "{\"content\":\"Hello\"}");
+        assertEquals(201, first.status);
+        call("POST", "/api/tickets/" + ticketId + "/messages", agentToken, "{\"content\":\"On it\"}");
+
+        // Only messages after the first one are returned
+        Reply messages = call("GET", "/api/tickets/" + ticketId + "/messages?after=" + first.json.get("id"), customerToken, null);
+        List<Object> newer = (List<Object>) messages.json.get("messages");
+        assertEquals(1, newer.size());
+        assertEquals("On it", ((Map<String, Object>) newer.get(0)).get("content"));
+
+        Reply resolved = call("POST", "/api/tickets/" + ticketId + "/resolve", agentToken, null);
+        assertEquals(200, resolved.status);
+        assertEquals("CLOSED", resolved.json.get("status"));
+        assertTrue(((List<Object>) call("GET", "/api/tickets", customerToken, null).json.get("tickets")).isEmpty());
+
+        // The calls above were timed; only agents may read the metrics
+        Reply metrics = call("GET", "/api/metrics", agentToken, null);
+        assertEquals(200, metrics.status);
+        Map<String, Object> timers = (Map<String, Object>) metrics.json.get("timers");
+        assertTrue((Long) ((Map<String, Object>) timers.get("service.TicketService.addTicketToNextAgent")).get("count") >= 1);
+        assertEquals(403, call("GET", "/api/metrics", customerToken, null).status);
+    }
+
+    // Requests without a valid token are rejected and tickets of other customers are hidden
+    @Test
+    public void testAuthenticationAndAccessControl() throws IOException {
+        call("POST", "/api/agents", null,
+                "{\"firstName\":\"Ann\",\"lastName\":\"Agent\",\"username\":\"ann\",\"email\":\"ann@example.com\",\"password\":\"Passw0rd!\"}");
+        call("POST", "/api/customers", null,
+                "{\"firstName\":\"Carl\",\"lastName\":\"Customer\",\"email\":\"carl@example.com\",\"password\":\"Passw0rd!\"}");
+        call("POST", "/api/customers", null,
+                "{\"firstName\":\"Dora\",\"lastName\":\"Customer\",\"email\":\"dora@example.com\",\"password\":\"Passw0rd!\"}");
+
+        assertEquals(401, call("GET", "/api/tickets", null, null).status);
+        assertEquals(401, call("GET", "/api/tickets", "not-a-token", null).status);
+        assertEquals(401, call("POST", "/api/login", null,
+                "{\"role\":\"customer\",\"email\":\"carl@example.com\",\"password\":\"wrong\"}").status);
+        assertEquals(409, call("POST", "/api/customers", null,
+                "{\"firstName\":\"Carl\",\"lastName\":\"Again\",\"email\":\"carl@example.com\",\"password\":\"Passw0rd!\"}").status);
+
+        String carl = login("{\"role\":\"customer\",\"email\":\"carl@example.com\",\"password\":\"Passw0rd!\"}");
+        String dora = login("{\"role\":\"customer\",\"email\":\"dora@example.com\",\"password\":\"Passw0rd!\"}");
+        long ticketId = (Long) call("POST", "/api/tickets", carl, "{\"topic\":\"VPN\",\"content\":\"Down\"}").json.get("id");
+
+        assertEquals(200, call("GET", "/api/tickets/" + ticketId, carl, null).status);
+        assertEquals(404, call("GET", "/api/tickets/" + ticketId, dora, null).status);
+        assertEquals(404, call("POST", "/api/tickets/" + ticketId + "/resolve", dora, null).status);
+
+        // A token stops working after logout
+        assertEquals(200, call("POST", "/api/logout", dora, null).status);
+        assertEquals(401, call("GET", "/api/tickets", dora, null).status);
+
+        // Deeply nested bodies are refused instead of overflowing the parser
+        StringBuilder nested = new StringBuilder("{\"role\":");
+        for (int i = 0; i < 30_000; i++) {
+            nested.append('[');
+        }
+        assertEquals(400, call("POST", "/api/login", null, nested.toString()).status);
+        assertEquals(200, call("GET", "/api/tickets", carl, null).status);
+        assertEquals(400, call("GET", "/api/tickets?limit=0", carl, null).status);
+        assertEquals(400, call("GET", "/api/tickets?limit=-5", carl, null).status);
+    }
+
+    private String login(String body) throws IOException {
+        Reply reply = call("POST", "/api/login", null, body);
+        assertEquals(200, reply.status);
+        return (String) reply.json.get("token");
+    }
+
+    private Reply call(String method, String path, String token, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        try (InputStream stream = in) {
+            return new Reply(status, Json.parseObject(new String(stream.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static final class Reply {
+        private final int status;
+        private final Map<String, Object> json;
+
+        private Reply(int status, Map<String, Object> json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+}
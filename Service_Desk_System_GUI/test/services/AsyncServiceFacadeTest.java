@@ -0,0 +1,110 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for the executor behaviour of AsyncServiceFacade: results, timeouts, the bounded
+ * queue and cancellation. The calls are plain lambdas, so the database is not touched.
+ */
+public class AsyncServiceFacadeTest {
+
+    private AsyncServiceFacade facade;
+
+    @After
+    public void tearDown() {
+        facade.shutdown();
+    }
+
+    // A call's result is delivered through the future, off the calling thread
+    @Test
+    public void testSupplyCompletesWithResult() throws Exception {
+        facade = new AsyncServiceFacade(null, null, null, 2, 10, 5_000);
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Boolean> future = facade.supply(() -> Thread.currentThread() != caller);
+
+        assertTrue(future.get(5, TimeUnit.SECONDS));
+    }
+
+    // A call that takes longer than the timeout fails with a TimeoutException
+    @Test
+    public void testSlowCallTimesOut() throws Exception {
+        facade = new AsyncServiceFacade(null, null, null, 1, 10, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            facade.supply(() -> release.await(5, TimeUnit.SECONDS)).get(5, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Once the workers are busy and the queue is full, new calls are rejected immediately
+    @Test
+    public void testFullQueueRejectsCalls() throws Exception {
+        facade = new AsyncServiceFacade(null, null, null, 1, 1, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            facade.supply(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            facade.supply(() -> true);
+
+            CompletableFuture<Boolean> rejected = facade.supply(() -> true);
+            assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Cancelling a call that is still queued removes it, so it never runs
+    @Test
+    public void testCancelledQueuedCallDoesNotRun() throws Exception {
+        facade = new AsyncServiceFacade(null, null, null, 1, 10, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        CompletableFuture<Boolean> blocker = facade.supply(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = facade.supply(() -> ran.getAndSet(true));
+        assertEquals(1, facade.getQueuedCalls());
+
+        assertTrue(queued.cancel(false));
+        assertEquals(0, facade.getQueuedCalls());
+        release.countDown();
+        assertTrue(blocker.get(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.SupportStaffMember;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for the person lookup cache. A fake clock is used, so nothing sleeps and the
+ * database is not touched.
+ */
+public class PersonCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private static SupportStaffMember agent(int id, String username) {
+        return new SupportStaffMember(id, "Agent", "No" + id, username, username + "@example.com", "password123");
+    }
+
+    // A cached person is found by ID, email and username, and it is the same object each time
+    @Test
+    public void testLookupByEveryKeyReturnsSameInstance() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(10, 60_000, now::get);
+        SupportStaffMember ann = agent(1, "ann");
+        cache.put(ann);
+
+        assertSame(ann, cache.getById(1));
+        assertSame(ann, cache.getByEmail("ann@example.com"));
+        assertSame(ann, cache.getByUsername("ann"));
+        assertNull(cache.getByUsername("bob"));
+        assertEquals(3, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    // A load that started before an invalidation does not cache the row it read
+    @Test
+    public void testLoadRacingAnInvalidationIsNotCached() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(10, 60_000, now::get);
+        long version = cache.getVersion();
+        // The person is updated, and the update invalidates it, while the load runs
+        cache.invalidateId(1);
+
+        assertFalse(cache.putIfUnchanged(agent(1, "ann"), version));
+        assertNull(cache.getById(1));
+        assertTrue(cache.putIfUnchanged(agent(1, "anne"), cache.getVersion()));
+        assertEquals("anne", cache.getById(1).getUsername());
+    }
+
+    // Entries older than the time to live are dropped from every index
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(10, 60_000, now::get);
+        cache.put(agent(1, "ann"));
+
+        now.addAndGet(59_999);
+        assertNotNull(cache.getById(1));
+        now.addAndGet(1);
+        assertNull(cache.getByEmail("ann@example.com"));
+        assertNull(cache.getById(1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStats().getExpirations());
+    }
+
+    // The least recently used person is evicted once the cache is full
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(2, 60_000, now::get);
+        cache.put(agent(1, "ann"));
+        cache.put(agent(2, "bob"));
+        cache.getByUsername("ann");
+        cache.put(agent(3, "cat"));
+
+        assertNotNull(cache.getById(1));
+        assertNull(cache.getByUsername("bob"));
+        assertNotNull(cache.getById(3));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    // Replacing a person under the same ID removes the old email and username keys
+    @Test
+    public void testReplacedPersonIsReindexed() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(10, 60_000, now::get);
+        cache.put(agent(1, "ann"));
+        cache.put(agent(1, "anne"));
+
+        assertNull(cache.getByUsername("ann"));
+        assertNull(cache.getByEmail("ann@example.com"));
+        assertEquals("anne", cache.getById(1).getUsername());
+        assertEquals(1, cache.size());
+    }
+
+    // Invalidating by email drops the person from every index
+    @Test
+    public void testInvalidateRemovesAllKeys() {
+        PersonCache<SupportStaffMember> cache = new PersonCache<>(10, 60_000, now::get);
+        cache.put(agent(1, "ann"));
+        cache.invalidateEmail("ann@example.com");
+
+        assertNull(cache.getById(1));
+        assertNull(cache.getByUsername("ann"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for SessionRegistry: token lookup, idle expiry through the timer wheel and the
+ * session limit. The clock is controlled by the test and the wheel is advanced by hand.
+ */
+public class SessionRegistryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // A session is found by its token until it is invalidated
+    @Test
+    public void testLookupByToken() {
+        SessionRegistry registry = new SessionRegistry(60_000, 10, now::get, false);
+        SessionRegistry.Session session = registry.create("Agent", "ann@example.com", "Ann Agent", "ann", 7);
+
+        SessionRegistry.Session found = registry.get(session.getToken());
+        assertSame(session, found);
+        assertEquals("Agent", found.getRole());
+        assertEquals(7, found.getId());
+        assertNull(registry.get("unknown"));
+
+        assertTrue(registry.invalidate(session.getToken()));
+        assertNull(registry.get(session.getToken()));
+        assertEquals(0, registry.size());
+    }
+
+    // Idle sessions are removed by the wheel; sessions that are used stay
+    @Test
+    public void testIdleSessionsExpire() {
+        SessionRegistry registry = new SessionRegistry(60_000, 10, now::get, false);
+        SessionRegistry.Session idle = registry.create("Customer", "a@example.com", "A", null, 1);
+        SessionRegistry.Session active = registry.create("Customer", "b@example.com", "B", null, 2);
+
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(10_000);
+            assertNotNull(registry.get(active.getToken()));
+            registry.expireIdle();
+        }
+
+        assertEquals(1, registry.size());
+        assertNull(registry.get(idle.getToken()));
+        assertNotNull(registry.get(active.getToken()));
+    }
+
+    // A full registry rejects new sessions unless idle ones can be expired to make room
+    @Test
+    public void testSessionLimit() {
+        SessionRegistry registry = new SessionRegistry(60_000, 2, now::get, false);
+        registry.create("Customer", "a@example.com", "A", null, 1);
+        registry.create("Customer", "b@example.com", "B", null, 2);
+        try {
+            registry.create("Customer", "c@example.com", "C", null, 3);
+            fail("Expected the session limit to be enforced");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        now.addAndGet(120_000);
+        assertNotNull(registry.create("Customer", "c@example.com", "C", null, 3));
+        assertEquals(1, registry.size());
+    }
+
+    // Logging in and out many times does not leave ended sessions behind in the wheel
+    @Test
+    public void testInvalidatedSessionsLeaveTheWheel() {
+        SessionRegistry registry = new SessionRegistry(60_000, 10, now::get, false);
+        for (int i = 0; i < 1_000; i++) {
+            SessionRegistry.Session session = registry.create("Customer", "a@example.com", "A", null, 1);
+            assertTrue(registry.invalidate(session.getToken()));
+        }
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.scheduledCount());
+    }
+
+    // Concurrent logins get distinct tokens and are all counted
+    @Test
+    public void testConcurrentCreate() throws Exception {
+        SessionRegistry registry = new SessionRegistry(60_000, 10_000, now::get, false);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int id = i;
+            tokens.add(executor.submit(() -> registry.create("Customer", id + "@example.com", "User", null, id).getToken()));
+        }
+        Set<String> unique = new HashSet<>();
+        for (Future<String> token : tokens) {
+            unique.add(token.get());
+        }
+        executor.shutdown();
+
+        assertEquals(2_000, unique.size());
+        assertEquals(2_000, registry.size());
+    }
+}
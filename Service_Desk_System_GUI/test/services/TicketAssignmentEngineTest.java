@@ -0,0 +1,154 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.SupportStaffMember;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for agent selection in TicketAssignmentEngine. The engine is seeded directly,
+ * so these tests do not touch the database.
+ */
+public class TicketAssignmentEngineTest {
+
+    private static final List<SupportStaffMember> AGENTS = Arrays.asList(
+            new SupportStaffMember(1, "Ann", "One", "ann", "ann@example.com", "password123"),
+            new SupportStaffMember(2, "Bob", "Two", "bob", "bob@example.com", "password123"),
+            new SupportStaffMember(3, "Cat", "Three", "cat", "cat@example.com", "password123"));
+
+    // Picks the agent with the fewest open tickets
+    @Test
+    public void testLeastLoadedAgentIsSelected() {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(AGENTS, counts(1, 4, 2, 1, 3, 5));
+
+        assertEquals(2, engine.selectAgent().getId());
+    }
+
+    // Ties between equally loaded agents always go to the lowest ID
+    @Test
+    public void testTiesAreBrokenByAgentId() {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(AGENTS, counts(1, 2, 2, 1, 3, 1));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, engine.selectAgent().getId());
+        }
+    }
+
+    // Created, resolved and reassigned tickets update the counts used for the next pick
+    @Test
+    public void testCountsFollowTicketLifecycle() {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(AGENTS, new HashMap<>());
+
+        engine.ticketOpened(1);
+        engine.ticketOpened(2);
+        assertEquals(3, engine.selectAgent().getId());
+
+        engine.ticketOpened(3);
+        engine.ticketClosed(2);
+        assertEquals(2, engine.selectAgent().getId());
+
+        engine.ticketReassigned(1, 2);
+        assertEquals(0, engine.getOpenTicketCount(1));
+        assertEquals(1, engine.getOpenTicketCount(2));
+        assertEquals(1, engine.selectAgent().getId());
+    }
+
+    // Spreading new tickets over equally loaded agents hands them out evenly
+    @Test
+    public void testRepeatedAssignmentBalancesLoad() {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(AGENTS, new HashMap<>());
+
+        for (int i = 0; i < 30; i++) {
+            engine.ticketOpened(engine.selectAgent().getId());
+        }
+        for (SupportStaffMember agent : AGENTS) {
+            assertEquals(10, engine.getOpenTicketCount(agent.getId()));
+        }
+    }
+
+    // Concurrent creators each get the agent counted for them, so picks are not duplicated
+    @Test
+    public void testConcurrentAssignmentBalancesLoad() throws Exception {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(AGENTS, new HashMap<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        List<Callable<SupportStaffMember>> creators = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            creators.add(engine::assignAgent);
+        }
+        try {
+            for (Future<SupportStaffMember> assigned : pool.invokeAll(creators)) {
+                assertNotNull(assigned.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (SupportStaffMember agent : AGENTS) {
+            assertEquals(100, engine.getOpenTicketCount(agent.getId()));
+        }
+    }
+
+    // Weighted round-robin hands out tickets in proportion to the weights
+    @Test
+    public void testWeightedRoundRobinFollowsWeights() {
+        WeightedRoundRobinStrategy strategy = new WeightedRoundRobinStrategy();
+        strategy.setWeight(1, 3);
+        strategy.setWeight(2, 1);
+        strategy.setWeight(3, 0);
+        TicketAssignmentEngine engine = new TicketAssignmentEngine(strategy);
+        engine.seed(AGENTS, new HashMap<>());
+
+        int[] picks = new int[4];
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            int agentId = engine.selectAgent().getId();
+            picks[agentId]++;
+            order.append(agentId);
+        }
+        assertEquals(6, picks[1]);
+        assertEquals(2, picks[2]);
+        assertEquals(0, picks[3]);
+        assertEquals("11211121", order.toString());
+    }
+
+    // An engine without agents has nobody to assign
+    @Test
+    public void testNoAgentsReturnsNull() {
+        TicketAssignmentEngine engine = new TicketAssignmentEngine();
+        engine.seed(Arrays.asList(), new HashMap<>());
+
+        assertNull(engine.selectAgent());
+        assertNull(engine.assignAgent());
+    }
+
+    // Builds an agent ID to open ticket count map from id/count pairs
+    private static Map<Integer, Integer> counts(int... idCountPairs) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < idCountPairs.length; i += 2) {
+            counts.put(idCountPairs[i], idCountPairs[i + 1]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.Ticket;
+import util.DatabaseUtil;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for TicketSearchIndex: ranking, incremental updates from DatabaseUtil and the
+ * on-disk segment.
+ */
+public class TicketSearchIndexTest {
+
+    private Customer customer;
+    private Path segment;
+    private TicketSearchIndex index;
+
+    @Before
+    public void setUp() throws SQLException, IOException {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+        customer = new Customer(0, "John", "Doe", "johndoe@example.com", "password123");
+        customer.setId(DatabaseUtil.insertCustomer(customer));
+        segment = Files.createTempFile("search", ".idx");
+        Files.delete(segment);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (index != null) {
+            DatabaseUtil.removeChangeListener(index);
+        }
+        Files.deleteIfExists(segment);
+    }
+
+    // Tickets mentioning a rare query word often rank above tickets that mention common words
+    @Test
+    public void testRanksByBm25() {
+        index = new TicketSearchIndex();
+        index.indexTicket(ticket(1, "Printer jammed", "The printer on floor two is jammed again"));
+        index.indexTicket(ticket(2, "Password reset", "Please reset my password"));
+        index.indexTicket(ticket(3, "Printer toner", "Toner is low"));
+        index.indexMessage(new Message(1, 3, "Customer", "John", "Still no toner in the printer", LocalDateTime.now()));
+
+        List<TicketSearchIndex.Hit> hits = index.search("jammed printer", 10);
+        assertEquals(2, hits.size());
+        assertEquals(1, hits.get(0).getTicketId());
+        assertEquals(3, hits.get(1).getTicketId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+
+        assertEquals(2, index.search("PASSWORD", 10).get(0).getTicketId());
+        assertTrue(index.search("the and of", 10).isEmpty());
+        assertEquals(1, index.search("printer", 1).size());
+
+        index.removeTickets(Arrays.asList(1));
+        assertEquals(3, index.search("jammed printer", 10).get(0).getTicketId());
+    }
+
+    // New tickets and messages are searchable straight away, and a saved segment is caught up on open
+    @Test
+    public void testFollowsDatabaseAndReopensFromSegment() throws SQLException, IOException {
+        Ticket vpn = insertTicket("VPN drops", "The VPN connection drops every hour");
+        index = TicketSearchIndex.open(segment);
+        assertEquals(vpn.getId(), index.search("vpn", 10).get(0).getTicketId());
+
+        Ticket laptop = insertTicket("Laptop", "Screen flickers");
+        DatabaseUtil.insertMessage(new Message(0, vpn.getId(), "Customer", "John", "Also the wifi is slow", LocalDateTime.now()));
+        assertEquals(laptop.getId(), index.search("flickers", 10).get(0).getTicketId());
+        assertEquals(vpn.getId(), index.search("wifi", 10).get(0).getTicketId());
+        index.close();
+
+        // Written while the index was closed
+        Ticket mail = insertTicket("Mail", "Outlook keeps crashing");
+        DatabaseUtil.insertMessage(new Message(0, laptop.getId(), "Customer", "John", "Flickers when docked", LocalDateTime.now()));
+
+        index = TicketSearchIndex.open(segment);
+        assertEquals(3, index.getDocumentCount());
+        assertEquals(mail.getId(), index.search("outlook", 10).get(0).getTicketId());
+        assertEquals(vpn.getId(), index.search("wifi", 10).get(0).getTicketId());
+        List<TicketSearchIndex.Hit> flickers = index.search("flickers docked", 10);
+        assertEquals(1, flickers.size());
+        assertEquals(laptop.getId(), flickers.get(0).getTicketId());
+        assertEquals(1, index.search("vpn", 10).size());
+    }
+
+    // Clearing the tables restarts the IDs, so tickets reusing an ID are indexed afresh
+    @Test
+    public void testClearedTablesAreForgotten() throws SQLException {
+        Ticket vpn = insertTicket("VPN drops", "The VPN connection drops every hour");
+        index = TicketSearchIndex.open(segment);
+        DatabaseUtil.insertMessage(new Message(0, vpn.getId(), "Customer", "John", "Also the wifi is slow", LocalDateTime.now()));
+
+        DatabaseUtil.clearTable("Messages");
+        assertTrue(index.search("wifi", 10).isEmpty());
+        assertEquals(vpn.getId(), index.search("vpn", 10).get(0).getTicketId());
+
+        DatabaseUtil.clearTable("Tickets");
+        assertEquals(0, index.getDocumentCount());
+        Ticket printer = insertTicket("Printer", "Paper jam");
+        assertEquals(vpn.getId(), printer.getId());
+        DatabaseUtil.insertMessage(new Message(0, printer.getId(), "Customer", "John", "Still jammed", LocalDateTime.now()));
+        assertEquals(printer.getId(), index.search("jammed", 10).get(0).getTicketId());
+        assertTrue(index.search("vpn", 10).isEmpty());
+    }
+
+    // sync() picks up rows the listener did not report and saves the segment without closing
+    @Test
+    public void testSyncReadsUnreportedRowsAndSaves() throws SQLException, IOException {
+        index = TicketSearchIndex.open(segment);
+        DatabaseUtil.removeChangeListener(index);
+        Ticket mail = insertTicket("Mail", "Outlook keeps crashing");
+        assertTrue(index.search("outlook", 10).isEmpty());
+
+        index.sync();
+        assertEquals(mail.getId(), index.search("outlook", 10).get(0).getTicketId());
+        assertEquals(mail.getId(), TicketSearchIndex.load(segment).search("outlook", 10).get(0).getTicketId());
+    }
+
+    // Tickets batch inserted in a transaction are indexed on commit, and forgotten with their IDs on rollback
+    @Test
+    public void testBatchInsertInTransactionIsIndexedOnCommit() throws SQLException {
+        index = TicketSearchIndex.open(segment);
+        Ticket printer = ticket(0, "Printer", "Printer jammed");
+        Ticket mail = ticket(0, "Mail", "Outlook keeps crashing");
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            DatabaseUtil.insertTickets(Arrays.asList(printer));
+            Savepoint beforeMail = conn.setSavepoint();
+            DatabaseUtil.insertTickets(Arrays.asList(mail));
+            assertTrue(mail.getId() > 0);
+            conn.rollback(beforeMail);
+            assertEquals(0, mail.getId());
+            assertTrue(index.search("printer", 10).isEmpty());
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        assertTrue(printer.getId() > 0);
+        assertEquals(printer.getId(), index.search("printer", 10).get(0).getTicketId());
+        assertTrue(index.search("outlook", 10).isEmpty());
+    }
+
+    private Ticket insertTicket(String topic, String content) throws SQLException {
+        Ticket ticket = new Ticket(0, customer, null, topic, content, LocalDateTime.now(), 1);
+        DatabaseUtil.insertTicket(ticket);
+        return ticket;
+    }
+
+    private Ticket ticket(int id, String topic, String content) {
+        return new Ticket(id, customer, null, topic, content, LocalDateTime.now(), 1);
+    }
+}
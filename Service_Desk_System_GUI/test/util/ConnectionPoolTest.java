@@ -0,0 +1,241 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for the bounded connection pool, run against an in-memory Derby database.
+ */
+public class ConnectionPoolTest {
+
+    private static final String TEST_DB_URL = "jdbc:derby:memory:pooltest;create=true";
+
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ConnectionPool(TEST_DB_URL, 2, 0, 60_000, 500);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    // Closing a borrowed connection returns it to the pool instead of closing it
+    @Test
+    public void testCloseReturnsConnectionToPool() throws SQLException {
+        Connection conn = pool.borrow();
+        assertEquals(1, pool.getTotalConnections());
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertEquals(1, pool.getTotalConnections());
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    // A returned connection is reused by the next borrow instead of opening a new one
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("VALUES 1");
+        }
+        try (Connection conn = pool.borrow()) {
+            conn.createStatement().execute("VALUES 1");
+        }
+        assertEquals(1, pool.getTotalConnections());
+    }
+
+    // Nested borrows on the same thread share one physical connection
+    @Test
+    public void testNestedBorrowSharesConnection() throws SQLException {
+        try (Connection outer = pool.borrow()) {
+            try (Connection inner = pool.borrow()) {
+                assertFalse(inner.isClosed());
+                assertEquals(1, pool.getTotalConnections());
+            }
+            assertFalse(outer.isClosed());
+            outer.createStatement().execute("VALUES 1");
+        }
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    // A lease closed on another thread hands the connection back, and the borrowing thread's next
+    // borrow takes a connection of its own instead of sharing the returned one
+    @Test
+    public void testLeaseClosedOnAnotherThreadIsNotSharedAgain() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Connection first = pool.borrow();
+            executor.submit(() -> {
+                first.close();
+                return null;
+            }).get();
+            assertEquals(1, pool.getIdleConnections());
+
+            try (Connection second = pool.borrow()) {
+                assertFalse(second.isClosed());
+                assertEquals(0, pool.getIdleConnections());
+                // The other thread gets the second connection rather than the one in use here
+                Future<Integer> other = executor.submit(() -> {
+                    try (Connection conn = pool.borrow()) {
+                        return pool.getTotalConnections();
+                    }
+                });
+                assertEquals(Integer.valueOf(2), other.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Borrowing blocks once the pool is exhausted and times out if nothing is returned
+    @Test(expected = SQLException.class)
+    public void testBorrowTimesOutWhenPoolExhausted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch held = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.submit(() -> {
+                    try (Connection conn = pool.borrow()) {
+                        assertFalse(conn.isClosed());
+                        held.countDown();
+                        done.await();
+                    }
+                    return null;
+                });
+            }
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+            pool.borrow();
+        } finally {
+            done.countDown();
+            executor.shutdown();
+        }
+    }
+
+    // A waiting borrower receives the connection as soon as another thread returns it
+    @Test
+    public void testWaitingBorrowerIsServedOnReturn() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    try (Connection conn = pool.borrow()) {
+                        conn.createStatement().execute("VALUES 1");
+                        Thread.sleep(50);
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertTrue(pool.getTotalConnections() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Preparing the same SQL again after closing the statement is served from the statement cache
+    @Test
+    public void testRepeatedPrepareHitsStatementCache() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow();
+                 PreparedStatement pstmt = conn.prepareStatement("VALUES CAST(? AS INT)")) {
+                pstmt.setInt(1, i);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(i, rs.getInt(1));
+                }
+            }
+        }
+        assertEquals(1, pool.getStatementCacheStats().getMisses());
+        assertEquals(2, pool.getStatementCacheStats().getHits());
+    }
+
+    // Settings changed by one user of a cached statement are not seen by the next one
+    @Test
+    public void testCachedStatementSettingsAreReset() throws SQLException {
+        int defaultFetchSize;
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("VALUES 1")) {
+            defaultFetchSize = pstmt.getFetchSize();
+            pstmt.setFetchSize(defaultFetchSize + 50);
+            pstmt.setMaxRows(1);
+            pstmt.setQueryTimeout(5);
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("VALUES 1")) {
+            assertEquals(defaultFetchSize, pstmt.getFetchSize());
+            assertEquals(0, pstmt.getMaxRows());
+            assertEquals(0, pstmt.getQueryTimeout());
+        }
+        assertEquals(1, pool.getStatementCacheStats().getHits());
+    }
+
+    // A statement whose cursor name was set is closed instead of being cached
+    @Test
+    public void testStatementWithCursorNameIsNotCached() throws SQLException {
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("VALUES 1")) {
+            pstmt.setCursorName("named_cursor");
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("VALUES 1")) {
+            assertTrue(pstmt.executeQuery().next());
+        }
+        assertEquals(2, pool.getStatementCacheStats().getMisses());
+        assertEquals(0, pool.getStatementCacheStats().getHits());
+    }
+
+    // A statement that is still open is not handed out again for the same SQL
+    @Test
+    public void testNestedPrepareGetsSeparateStatement() throws SQLException {
+        try (Connection conn = pool.borrow();
+             PreparedStatement outer = conn.prepareStatement("VALUES CAST(? AS INT)")) {
+            outer.setInt(1, 1);
+            try (PreparedStatement inner = conn.prepareStatement("VALUES CAST(? AS INT)")) {
+                assertNotSame(outer, inner);
+                inner.setInt(1, 2);
+                try (ResultSet rs = inner.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(2, rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = outer.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+            }
+        }
+    }
+
+    // Using a connection after it has been returned fails instead of touching someone else's connection
+    @Test(expected = SQLException.class)
+    public void testUseAfterCloseFails() throws SQLException {
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.createStatement();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for the URLs and modes built by DatabaseConfig.
+ */
+public class DatabaseConfigTest {
+
+    // Network mode connects through the client driver to the given host and port
+    @Test
+    public void testNetworkConfigBuildsClientUrl() {
+        DatabaseConfig config = DatabaseConfig.network("dbhost", 1600, "servicedesksystem_ebd", false);
+
+        assertEquals(DatabaseConfig.Mode.NETWORK, config.getMode());
+        assertEquals("jdbc:derby://dbhost:1600/servicedesksystem_ebd;create=true", config.getUrl());
+        assertFalse(config.isStartServer());
+    }
+
+    // An explicit URL selects the mode from its prefix
+    @Test
+    public void testModeIsDetectedFromUrl() {
+        DatabaseConfig client = DatabaseConfig.fromUrl("jdbc:derby://localhost:1528/memory:test;create=true", true);
+        assertEquals(DatabaseConfig.Mode.NETWORK, client.getMode());
+        assertEquals("localhost", client.getHost());
+        assertEquals(1528, client.getPort());
+
+        DatabaseConfig embedded = DatabaseConfig.fromUrl("jdbc:derby:memory:test;create=true", true);
+        assertEquals(DatabaseConfig.Mode.EMBEDDED, embedded.getMode());
+        assertEquals(20, embedded.withPoolSize(20).getPoolSize());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for DatasetGenerator.
+ */
+public class DatasetGeneratorTest {
+
+    @Before
+    public void setUp() throws SQLException {
+        clearTables();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        clearTables();
+    }
+
+    // The requested rows are inserted, with skewed customers and consistent close times
+    @Test
+    public void testGeneratesRequestedDataset() throws SQLException {
+        DatasetGenerator.Dataset dataset = new DatasetGenerator(7, 64, null).generate(50, 5, 300);
+
+        assertEquals(50, dataset.getCustomers().size());
+        assertEquals(5, dataset.getAgents().size());
+        assertEquals(300, dataset.getTicketCount());
+        assertEquals(299, dataset.getLastTicketId() - dataset.getFirstTicketId());
+        assertEquals(dataset.getOpenTicketCount(), DatabaseUtil.getAllTickets().size());
+
+        Map<Integer, Integer> ticketsPerCustomer = new HashMap<>();
+        long messages = 0;
+        for (int id = dataset.getFirstTicketId(); id <= dataset.getLastTicketId(); id++) {
+            Ticket ticket = DatabaseUtil.getTicketById(id);
+            ticketsPerCustomer.merge(ticket.getCustomer().getId(), 1, Integer::sum);
+            messages += DatabaseUtil.getMessagesForTicket(id).size();
+            if (ticket.getStatus() == Ticket.Status.CLOSED) {
+                assertTrue(ticket.getClosedAt().isAfter(ticket.getCreatedAt()));
+            } else {
+                assertNull(ticket.getClosedAt());
+            }
+        }
+        assertEquals(dataset.getMessageCount(), messages);
+        // 300 tickets over 50 customers is 6 on average; the busiest customer has far more
+        assertTrue(ticketsPerCustomer.values().stream().mapToInt(Integer::intValue).max().getAsInt() > 30);
+    }
+
+    // The same seed gives the same dataset
+    @Test
+    public void testSameSeedGivesSameData() throws SQLException {
+        List<String> first = fingerprint(new DatasetGenerator(11, 32, null).generate(20, 3, 100));
+        clearTables();
+        List<String> second = fingerprint(new DatasetGenerator(11, 32, null).generate(20, 3, 100));
+        assertEquals(first, second);
+    }
+
+    private List<String> fingerprint(DatasetGenerator.Dataset dataset) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        for (int id = dataset.getFirstTicketId(); id <= dataset.getLastTicketId(); id++) {
+            Ticket ticket = DatabaseUtil.getTicketById(id);
+            rows.add(ticket.getCustomer().getEmail() + "|" + ticket.getTopic() + "|" + ticket.getContent() + "|"
+                    + ticket.getPriority() + "|" + ticket.getStatus() + "|" + ticket.getCreatedAt() + "|"
+                    + DatabaseUtil.getMessagesForTicket(id).size());
+        }
+        return rows;
+    }
+
+    private void clearTables() throws SQLException {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+        DatabaseUtil.clearTable("SupportStaff");
+    }
+}
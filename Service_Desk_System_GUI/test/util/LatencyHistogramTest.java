@@ -0,0 +1,68 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    // Percentiles are within the bucket precision of the exact values
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(99));
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMeanMicros(), 0.001);
+        assertEquals(10_000, histogram.getMaxMicros());
+        assertEquals(1, histogram.getPercentileMicros(0));
+        assertEquals(5_000, histogram.getPercentileMicros(50), 5_000 * 0.04);
+        assertEquals(9_900, histogram.getPercentileMicros(99), 9_900 * 0.04);
+        assertEquals(9_990, histogram.getPercentileMicros(99.9), 9_990 * 0.04);
+        assertEquals(10_000, histogram.getPercentileMicros(100));
+
+        histogram.reset();
+        histogram.recordMicros(17);
+        assertEquals(17, histogram.getPercentileMicros(50));
+        assertEquals(1, histogram.getCount());
+    }
+
+    // Nothing is lost when many threads record at once
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.recordNanos(i * 1_000L);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(800_000, histogram.getCount());
+        assertEquals(99_999, histogram.getMaxMicros());
+    }
+}
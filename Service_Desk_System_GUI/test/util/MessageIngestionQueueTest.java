@@ -0,0 +1,120 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for MessageIngestionQueue: batched writes, acknowledgements and failure handling.
+ */
+public class MessageIngestionQueueTest {
+
+    private MessageIngestionQueue queue;
+    private Ticket ticket;
+
+    // Clears the tables and creates one ticket for the messages
+    @Before
+    public void setUp() throws SQLException {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+        DatabaseUtil.clearTable("SupportStaff");
+
+        Customer customer = new Customer(0, "John", "Doe", "johndoe@example.com", "password123");
+        customer.setId(DatabaseUtil.insertCustomer(customer));
+        ticket = new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1);
+        DatabaseUtil.insertTicket(ticket);
+    }
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    // Messages posted concurrently are acknowledged with their IDs and written in fewer transactions
+    @Test
+    public void testConcurrentMessagesAreWrittenInBatches() throws Exception {
+        queue = new MessageIngestionQueue(50, 20, 1_000, 5_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Message>> acks = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Message message = new Message(0, ticket.getId(), "Customer", "John", "Message " + i, LocalDateTime.now());
+            acks.add(executor.submit(() -> queue.submit(message).get(10, TimeUnit.SECONDS)));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Future<Message> ack : acks) {
+            ids.add(ack.get(10, TimeUnit.SECONDS).getId());
+        }
+        executor.shutdown();
+
+        assertEquals(400, ids.size());
+        assertFalse(ids.contains(0));
+        assertEquals(400, DatabaseUtil.getMessagesSince(ticket.getId(), 0).size());
+        assertEquals(400, queue.getMessagesWritten());
+        assertTrue("Expected group commits, got " + queue.getBatchesWritten() + " batches", queue.getBatchesWritten() < 400);
+    }
+
+    // A message for a missing ticket fails on its own; the rest of its batch is still stored
+    @Test
+    public void testBadMessageOnlyFailsItsOwnFuture() throws Exception {
+        queue = new MessageIngestionQueue(10, 50, 100, 5_000);
+        CompletableFuture<Message> good = queue.submit(new Message(0, ticket.getId(), "Customer", "John", "Good", LocalDateTime.now()));
+        CompletableFuture<Message> bad = queue.submit(new Message(0, ticket.getId() + 1000, "Customer", "John", "Bad", LocalDateTime.now()));
+
+        assertEquals("Good", good.get(10, TimeUnit.SECONDS).getContent());
+        try {
+            bad.get(10, TimeUnit.SECONDS);
+            fail("Expected the insert to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+        assertEquals(1, DatabaseUtil.getMessagesSince(ticket.getId(), 0).size());
+    }
+
+    // Closing writes what is queued; later and invalid messages are refused straight away
+    @Test
+    public void testCloseFlushesAndRejectsLaterMessages() throws Exception {
+        queue = new MessageIngestionQueue(100, 1_000, 100, 5_000);
+        CompletableFuture<Message> queued = queue.submit(new Message(0, ticket.getId(), "Customer", "John", "Queued", LocalDateTime.now()));
+        CompletableFuture<Message> invalid = queue.submit(new Message(0, ticket.getId(), "Customer", "John", "", LocalDateTime.now()));
+        queue.close();
+
+        assertTrue(queued.isDone());
+        assertTrue(queued.get().getId() > 0);
+        assertTrue(invalid.isCompletedExceptionally());
+        try {
+            queue.submit(new Message(0, ticket.getId(), "Customer", "John", "Late", LocalDateTime.now())).get();
+            fail("Expected the closed queue to reject the message");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
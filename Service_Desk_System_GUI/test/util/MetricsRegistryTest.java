@@ -0,0 +1,94 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Customer;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for MetricsRegistry and the statement timing of the connection pool.
+ */
+public class MetricsRegistryTest {
+
+    @Before
+    public void setUp() throws SQLException {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+    }
+
+    // Counters and timers are created on first use and show up in the snapshot
+    @Test
+    public void testCountersTimersAndSnapshot() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.increment("requests");
+        registry.add("requests", 2);
+        registry.recordSince("work", System.nanoTime() - 5_000_000);
+
+        assertEquals(3, registry.getCount("requests"));
+        assertEquals(1, registry.timer("work").getCount());
+        assertTrue(registry.timer("work").getMaxMicros() >= 5_000);
+        String snapshot = registry.snapshot();
+        assertTrue(snapshot.contains("requests 3\n"));
+        assertTrue(snapshot.contains("work count=1"));
+
+        registry.reset();
+        assertEquals(0, registry.getCount("requests"));
+
+        MetricsRegistry disabled = new MetricsRegistry(false);
+        disabled.increment("requests");
+        disabled.recordSince("work", System.nanoTime());
+        assertEquals("", disabled.snapshot());
+    }
+
+    // Statements run through DatabaseUtil are timed by their SQL, and the registry is readable over JMX
+    @Test
+    public void testStatementsAreTimedAndExportedOverJmx() throws Exception {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        String insertTicket = StatementMetrics.nameOf("INSERT INTO Tickets (customerId, agentId, topic, content, createdAt, "
+                + "priority, status, closedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        assertEquals("jdbc.INSERT INTO Tickets (customerId, agentId, topic, content, createdAt, priority, status, closedAt) "
+                + "VALUES (?...)", insertTicket);
+        long inserts = registry.timer(insertTicket).getCount();
+        long inserted = registry.getCount("db.Tickets.inserted");
+
+        Customer customer = new Customer(0, "John", "Doe", "johndoe@example.com", "password123");
+        customer.setId(DatabaseUtil.insertCustomer(customer));
+        DatabaseUtil.insertTicket(new Ticket(0, customer, null, "Topic", "Content", LocalDateTime.now(), 1));
+        assertEquals(inserts + 1, registry.timer(insertTicket).getCount());
+        assertEquals(inserted + 1, registry.getCount("db.Tickets.inserted"));
+
+        long errors = registry.getCount("jdbc.errors");
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT nothing FROM NoSuchTable");
+            fail("The query should fail");
+        } catch (SQLException e) {
+            assertEquals(errors + 1, registry.getCount("jdbc.errors"));
+        }
+
+        registry.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MetricsRegistry.OBJECT_NAME);
+        assertEquals(registry.getCount("db.Tickets.inserted"), server.getAttribute(name, "db.Tickets.inserted"));
+        assertEquals(registry.timer(insertTicket).getCount(), server.getAttribute(name, insertTicket + ".count"));
+        assertTrue(((String) server.getAttribute(name, "Snapshot")).contains(insertTicket));
+    }
+}
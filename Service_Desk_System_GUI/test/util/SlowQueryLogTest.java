@@ -0,0 +1,124 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Customer;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for SlowQueryLog and how the connection pool reports statements to it.
+ */
+public class SlowQueryLogTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+        directory = Files.createTempDirectory("slowlog");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SlowQueryLog.setDefault(new SlowQueryLog(-1, 0, 0, null));
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    // With a threshold of 0 every statement is logged, with redacted parameters, row counts and plans
+    @Test
+    public void testStatementsAreLoggedWithRedactedParametersAndPlans() throws Exception {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 1_000, directory.resolve("slow-%g.log").toString());
+        SlowQueryLog.setDefault(log);
+
+        Customer customer = new Customer(0, "John", "Doe", "johndoe@example.com", "Passw0rd!");
+        customer.setId(DatabaseUtil.insertCustomer(customer));
+        for (int i = 0; i < 3; i++) {
+            DatabaseUtil.insertTicket(new Ticket(0, customer, null, "Topic " + i, "Content", LocalDateTime.now(), 1));
+        }
+        assertEquals(3, DatabaseUtil.getOpenTicketsByCustomer(customer.getId()).size());
+        log.close();
+
+        String text = new String(Files.readAllBytes(directory.resolve("slow-0.log")), StandardCharsets.UTF_8);
+        assertTrue(text.contains("SQL: INSERT INTO Customers"));
+        assertTrue(text.contains("<string:19>"));
+        assertFalse(text.contains("johndoe@example.com"));
+        assertFalse(text.contains("Passw0rd!"));
+        assertTrue(text.contains(", rows 1,"));
+        assertTrue(text.contains(", rows 3,"));
+        assertTrue(text.contains("Parameters: 1=" + customer.getId()));
+        assertTrue(text.contains("Statement Text"));
+        assertTrue(log.getLoggedCount() >= 5);
+    }
+
+    // A statement run on the same connection while a sampled query is open must not leave its plan
+    // in place of the query's, so the query is logged without a plan instead
+    @Test
+    public void testPlanIsNotTakenFromStatementsRunWhileResultSetIsOpen() throws Exception {
+        SlowQueryLog log = new SlowQueryLog(0, 1.0, 1_000, directory.resolve("slow-%g.log").toString());
+        SlowQueryLog.setDefault(log);
+        String outer = "SELECT COUNT(*) FROM Customers";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(outer)) {
+            // Borrows the same connection as a nested lease
+            DatabaseUtil.getAllTickets();
+            assertTrue(rs.next());
+        }
+        log.close();
+
+        String text = new String(Files.readAllBytes(directory.resolve("slow-0.log")), StandardCharsets.UTF_8);
+        String entry = text.substring(text.indexOf("SQL: " + outer));
+        entry = entry.substring(0, entry.contains(" slow statement ") ? entry.indexOf(" slow statement ") : entry.length());
+        assertTrue(entry.contains("Plan: not captured"));
+        assertFalse(entry.contains("Tickets"));
+    }
+
+    // Fast statements are not logged, slow ones without a plan get one next time, and the rate is capped
+    @Test
+    public void testThresholdSamplingAndRateLimit() throws Exception {
+        SlowQueryLog log = new SlowQueryLog(60_000, 0, 1, directory.resolve("slow-%g.log").toString());
+        SlowQueryLog.setDefault(log);
+        DatabaseUtil.getAllCustomers();
+        assertEquals(0, log.getLoggedCount());
+        assertFalse(directory.resolve("slow-0.log").toFile().exists());
+
+        assertFalse(log.shouldCapturePlan("SELECT 1"));
+        log.log("SELECT 1", new Object[]{null, 7, "secret"}, 61_000_000_000L, -1, null);
+        assertTrue(log.shouldCapturePlan("SELECT 1"));
+        assertFalse(log.shouldCapturePlan("SELECT 1"));
+        log.log("SELECT 1", null, 61_000_000_000L, 1, "plan");
+        assertEquals(1, log.getLoggedCount());
+        assertEquals(1, log.getSuppressedCount());
+        log.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("slow-0.log"));
+        assertTrue(lines.get(0).contains("slow statement 61000.0 ms (threshold 60000 ms), rows unknown"));
+        assertEquals("  Parameters: 1=7 2=<string:6>", lines.get(2));
+        assertEquals("NULL", SlowQueryLog.redact(null));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import service.desk.system.Customer;
+import service.desk.system.Message;
+import service.desk.system.Ticket;
+
+/**
+ *
+ * @author rayyanabzal
+ */
+
+/**
+ * JUnit tests for TicketArchiver and the archive queries of DatabaseUtil.
+ */
+public class TicketArchiverTest {
+
+    private Customer customer;
+
+    // Clears the working and history tables and creates one customer
+    @Before
+    public void setUp() throws SQLException {
+        clearHistory();
+        DatabaseUtil.clearTable("Messages");
+        DatabaseUtil.clearTable("Tickets");
+        DatabaseUtil.clearTable("Customers");
+
+        customer = new Customer(0, "John", "Doe", "johndoe@example.com", "password123");
+        customer.setId(DatabaseUtil.insertCustomer(customer));
+    }
+
+    // Other tests restart the ticket IDs, so archived rows must not outlive this test
+    @After
+    public void tearDown() throws SQLException {
+        clearHistory();
+    }
+
+    // Only tickets closed before the retention period are moved, together with their messages, in chunks
+    @Test
+    public void testArchivesOnlyTicketsClosedLongEnoughAgo() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            Ticket old = createTicket("Old " + i);
+            DatabaseUtil.insertMessage(new Message(0, old.getId(), "Customer", "John", "Message " + i, LocalDateTime.now()));
+            close(old, LocalDateTime.now().minusDays(10));
+        }
+        Ticket recent = createTicket("Recent");
+        close(recent, LocalDateTime.now().minusDays(1));
+        Ticket open = createTicket("Open");
+
+        TicketArchiver archiver = new TicketArchiver(TimeUnit.DAYS.toMillis(7), 2);
+        assertEquals(5, archiver.archiveOnce());
+        assertEquals(5, archiver.getMessagesArchived());
+        assertEquals(0, archiver.archiveOnce());
+
+        assertNotNull(DatabaseUtil.getTicketById(recent.getId()));
+        assertNotNull(DatabaseUtil.getTicketById(open.getId()));
+        assertNull(DatabaseUtil.getTicketById(1));
+        assertTrue(DatabaseUtil.getMessagesForTicket(1).isEmpty());
+
+        Ticket archived = DatabaseUtil.getArchivedTicketById(1);
+        assertEquals("Old 0", archived.getTopic());
+        assertEquals(Ticket.Status.CLOSED, archived.getStatus());
+        assertEquals(customer.getEmail(), archived.getCustomer().getEmail());
+        assertNotNull(archived.getClosedAt());
+        List<Message> messages = DatabaseUtil.getArchivedMessages(1);
+        assertEquals(1, messages.size());
+        assertEquals("Message 0", messages.get(0).getContent());
+    }
+
+    // Archived tickets are paged newest first and can be filtered like the working table
+    @Test
+    public void testFindArchivedTicketsPagesByDescendingId() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            close(createTicket("Old " + i), LocalDateTime.now().minusDays(10));
+        }
+        new TicketArchiver(0).archiveOnce();
+
+        List<Ticket> first = DatabaseUtil.findArchivedTickets(null, 0, 2);
+        assertEquals(2, first.size());
+        assertEquals(3, first.get(0).getId());
+        assertEquals(2, first.get(1).getId());
+        List<Ticket> second = DatabaseUtil.findArchivedTickets(null, first.get(1).getId(), 2);
+        assertEquals(1, second.size());
+        assertEquals(1, second.get(0).getId());
+
+        assertEquals(3, DatabaseUtil.findArchivedTickets(new TicketFilter(customer.getId(), null, null), 0, 10).size());
+        assertTrue(DatabaseUtil.findArchivedTickets(new TicketFilter(customer.getId() + 1, null, null), 0, 10).isEmpty());
+    }
+
+    // Closing a ticket records when it was closed; reopening it clears the time again
+    @Test
+    public void testStatusChangesMaintainClosedAt() throws SQLException {
+        Ticket ticket = createTicket("Topic");
+        DatabaseUtil.updateTicketStatus(ticket, Ticket.Status.CLOSED);
+        assertNotNull(ticket.getClosedAt());
+        assertNotNull(DatabaseUtil.getTicketById(ticket.getId()).getClosedAt());
+
+        DatabaseUtil.updateTicketStatus(ticket, Ticket.Status.OPEN);
+        assertNull(ticket.getClosedAt());
+        assertNull(DatabaseUtil.getTicketById(ticket.getId()).getClosedAt());
+    }
+
+    private Ticket createTicket(String topic) throws SQLException {
+        Ticket ticket = new Ticket(0, customer, null, topic, "Content", LocalDateTime.now(), 1);
+        DatabaseUtil.insertTicket(ticket);
+        return ticket;
+    }
+
+    private static void close(Ticket ticket, LocalDateTime closedAt) throws SQLException {
+        ticket.setStatus(Ticket.Status.CLOSED);
+        ticket.setClosedAt(closedAt);
+        DatabaseUtil.updateTicket(ticket);
+    }
+
+    private static void clearHistory() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM MessagesHistory");
+            stmt.executeUpdate("DELETE FROM TicketsHistory");
+        }
+    }
+}